@@ -0,0 +1,133 @@
+package com.mobilebanking.transferservice;
+
+import io.javalin.Javalin;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keeps a fixed number of transfers in flight against one pair of accounts, so every request waits for the same
+// locks, and prints throughput, latency percentiles and failures. Anything after the options is set as a
+// transferservice property, e.g.
+// HandlerLoadTest --concurrency 2000 --requests 50000 server.maxThreads=32 handlers=executor pipeline=sequenced
+public class HandlerLoadTest {
+	private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+	private static final int PORT = 7070;
+	private static final String URL = "http://localhost:" + PORT;
+
+	public static void main(String[] args) throws InterruptedException, IOException {
+		int concurrency = 1000;
+		int requests = 20_000;
+		int i = 0;
+
+		for (; i < args.length - 1 && args[i].startsWith("--"); i += 2) {
+			if (args[i].equals("--concurrency")) {
+				concurrency = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("--requests")) {
+				requests = Integer.parseInt(args[i + 1]);
+			}
+		}
+
+		for (String property : Arrays.copyOfRange(args, i, args.length)) {
+			String[] nameAndValue = property.split("=", 2);
+			System.setProperty("transferservice." + nameAndValue[0], nameAndValue[1]);
+		}
+
+		Javalin app = App.initApp().start(PORT);
+
+		Dispatcher dispatcher = new Dispatcher();
+		dispatcher.setMaxRequests(concurrency);
+		dispatcher.setMaxRequestsPerHost(concurrency);
+
+		OkHttpClient client = new OkHttpClient.Builder()
+				.dispatcher(dispatcher)
+				.connectionPool(new ConnectionPool(concurrency, 1, TimeUnit.MINUTES))
+				.readTimeout(1, TimeUnit.MINUTES)
+				.build();
+
+		long source = createAccount(client, "1000000000");
+		long target = createAccount(client, "0");
+		String transfer = "{\"fromAccountId\":" + source + ",\"toAccountId\":" + target + ",\"amount\":1}";
+
+		long[] latencies = new long[requests];
+		AtomicInteger failures = new AtomicInteger();
+		Semaphore inFlight = new Semaphore(concurrency);
+		CountDownLatch done = new CountDownLatch(requests);
+
+		long start = System.nanoTime();
+
+		for (int request = 0; request < requests; request++) {
+			inFlight.acquire();
+
+			int index = request;
+			long sent = System.nanoTime();
+
+			client.newCall(new Request.Builder().url(URL + "/v1/transaction/").post(RequestBody.create(JSON, transfer)).build())
+					.enqueue(new Callback() {
+						@Override
+						public void onResponse(Call call, Response response) {
+							if (response.code() != 201) {
+								failures.incrementAndGet();
+							}
+
+							response.close();
+							finish();
+						}
+
+						@Override
+						public void onFailure(Call call, IOException e) {
+							failures.incrementAndGet();
+							finish();
+						}
+
+						private void finish() {
+							latencies[index] = System.nanoTime() - sent;
+							inFlight.release();
+							done.countDown();
+						}
+					});
+		}
+
+		done.await();
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		Arrays.sort(latencies);
+
+		System.out.printf("requests=%d concurrency=%d failures=%d%n", requests, concurrency, failures.get());
+		System.out.printf("throughput=%.0f/s p50=%.1fms p99=%.1fms max=%.1fms%n", requests / seconds,
+				percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[requests - 1] / 1e6);
+
+		client.dispatcher().executorService().shutdown();
+		app.stop();
+		System.exit(0);
+	}
+
+	private static long createAccount(OkHttpClient client, String balance) throws IOException {
+		Request request = new Request.Builder()
+				.url(URL + "/v1/account")
+				.post(RequestBody.create(JSON, "{\"balance\":" + balance + "}"))
+				.build();
+
+		try (Response response = client.newCall(request).execute()) {
+			String body = response.body().string();
+
+			return Long.parseLong(body.replaceAll(".*\"id\":(\\d+).*", "$1"));
+		}
+	}
+
+	private static double percentile(long[] sorted, double percentile) {
+		return sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * percentile) - 1)] / 1e6;
+	}
+}
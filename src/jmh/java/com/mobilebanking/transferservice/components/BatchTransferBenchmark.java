@@ -0,0 +1,74 @@
+package com.mobilebanking.transferservice.components;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionBody;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.dtos.TransferResult;
+import com.mobilebanking.transferservice.services.StripedLockStorageImpl;
+import io.vavr.collection.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Transfers per second of a payroll-like batch, one source paying many accounts, against the same transfers one by one.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BatchTransferBenchmark {
+	private static final int BATCH_SIZE = 1000;
+
+	private TransferComponent transferComponent;
+	private List<TransactionBody> transfers;
+
+	@Setup(Level.Trial)
+	public void populate() {
+		StripedLockStorageImpl storage = new StripedLockStorageImpl();
+		transferComponent = new TransferComponentImpl(storage);
+
+		Long payer = storage.createAccount(Money.valueOf(Long.MAX_VALUE / 2)).getId();
+		transfers = List.empty();
+
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			Long payee = storage.createAccount(Money.ZERO).getId();
+			transfers = transfers.prepend(ImmutableTransactionBody
+					.builder()
+					.fromAccountId(payer)
+					.toAccountId(payee)
+					.amount(Money.valueOf(1))
+					.build());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void oneByOne(Blackhole blackhole) throws NotSufficientBalance, AccountIsNotAvailable {
+		for (TransactionBody transfer : transfers) {
+			blackhole.consume(transferComponent
+					.transferMoney(transfer.getFromAccountId(), transfer.getToAccountId(), transfer.getAmount()));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public List<TransferResult> batch() throws NotSufficientBalance, AccountIsNotAvailable {
+		return transferComponent.transferMoney(transfers, BatchTransferBody.BatchMode.ATOMIC);
+	}
+}
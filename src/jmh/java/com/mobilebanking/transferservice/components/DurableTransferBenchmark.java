@@ -0,0 +1,80 @@
+package com.mobilebanking.transferservice.components;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.services.SimpleInMemoryStorageImpl;
+import com.mobilebanking.transferservice.services.wal.WriteAheadLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Transfer throughput of the simple storage with and without the write-ahead log,
+// on the request threads or queued to the single-writer sequencer.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(128)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DurableTransferBenchmark {
+	@Param({"false", "true"})
+	private boolean durable;
+
+	@Param({"0", "200"})
+	private long flushIntervalMicros;
+
+	@Param({"locking", "sequenced"})
+	private String pipeline;
+
+	private SimpleInMemoryStorageImpl storage;
+	private TransferComponent transferComponent;
+
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		if (durable) {
+			Path directory = Files.createTempDirectory("benchmark");
+			storage = new SimpleInMemoryStorageImpl(
+					new WriteAheadLog(directory, Duration.ofNanos(flushIntervalMicros * 1000), 1024));
+		} else {
+			storage = new SimpleInMemoryStorageImpl();
+		}
+
+		transferComponent = pipeline.equals("sequenced")
+				? new SequencedTransferComponentImpl(storage, 1 << 14)
+				: new TransferComponentImpl(storage);
+	}
+
+	@TearDown(Level.Trial)
+	public void close() throws IOException {
+		if (transferComponent instanceof SequencedTransferComponentImpl) {
+			((SequencedTransferComponentImpl) transferComponent).close();
+		}
+
+		storage.close();
+	}
+
+	@Benchmark
+	public Transaction transfer() throws NotSufficientBalance, AccountIsNotAvailable {
+		return transferComponent.transferMoney(1L, 2L, Money.ZERO);
+	}
+}
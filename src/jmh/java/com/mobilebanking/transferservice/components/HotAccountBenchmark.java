@@ -0,0 +1,77 @@
+package com.mobilebanking.transferservice.components;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.services.StripedLockStorageImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Every transfer pays a share into one treasury account, with and without sub-balances for it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+public class HotAccountBenchmark {
+	private static final int ACCOUNT_COUNT = 100_000;
+	private static final Money AMOUNT = Money.valueOf(1);
+
+	@Param({"false", "true"})
+	private boolean hot;
+
+	@Param({"16"})
+	private int shards;
+
+	private TransferComponent transferComponent;
+	private Long treasury;
+	private Long[] accountIds;
+
+	@Setup(Level.Trial)
+	public void populate() {
+		StripedLockStorageImpl storage = new StripedLockStorageImpl();
+		transferComponent = new TransferComponentImpl(storage);
+
+		treasury = storage.createAccount(Money.ZERO).getId();
+		if (hot) {
+			storage.enableHotAccount(treasury, shards);
+		}
+
+		accountIds = new Long[ACCOUNT_COUNT];
+		for (int i = 0; i < ACCOUNT_COUNT; i++) {
+			accountIds[i] = storage.createAccount(Money.valueOf(1_000_000_000L)).getId();
+		}
+	}
+
+	@Benchmark
+	public Transaction payTreasury(AccountPicker picker) throws NotSufficientBalance, AccountIsNotAvailable {
+		return transferComponent.transferMoney(accountIds[picker.random.nextInt(ACCOUNT_COUNT)], treasury, AMOUNT);
+	}
+
+	@State(Scope.Thread)
+	public static class AccountPicker {
+		private SplittableRandom random;
+
+		@Setup(Level.Trial)
+		public void seed() {
+			random = new SplittableRandom();
+		}
+	}
+}
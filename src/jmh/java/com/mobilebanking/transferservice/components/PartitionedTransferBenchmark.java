@@ -0,0 +1,82 @@
+package com.mobilebanking.transferservice.components;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.services.PartitionedStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Transfers on every core as partitions are added. One partition is a single simple storage behind one lock,
+// "local" keeps both accounts in the same partition and "uniform" crosses partitions as often as random ids do.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+public class PartitionedTransferBenchmark {
+	private static final int ACCOUNT_COUNT = 100_000;
+	private static final Money AMOUNT = Money.valueOf(1);
+
+	@Param({"1", "2", "4", "8", "16"})
+	private int partitions;
+
+	@Param({"local", "uniform"})
+	private String access;
+
+	private PartitionedStorage storage;
+	private TransferComponent transferComponent;
+	private Long[] accountIds;
+
+	@Setup(Level.Trial)
+	public void populate() {
+		storage = new PartitionedStorage(partitions);
+		transferComponent = new PartitionedTransferComponentImpl(storage);
+
+		accountIds = new Long[ACCOUNT_COUNT];
+		for (int i = 0; i < ACCOUNT_COUNT; i++) {
+			accountIds[i] = storage.createAccount(Money.valueOf(1_000_000_000L)).getId();
+		}
+	}
+
+	@Benchmark
+	public Transaction transfer(AccountPicker picker) throws NotSufficientBalance, AccountIsNotAvailable {
+		int from = picker.random.nextInt(ACCOUNT_COUNT);
+		int to = picker.random.nextInt(ACCOUNT_COUNT);
+
+		// Accounts are created in every partition in turn, the same index modulo the count is the same partition.
+		if (access.equals("local")) {
+			to -= Math.floorMod(to - from, partitions);
+			to = to < 0 ? to + partitions : to;
+		}
+
+		return transferComponent.transferMoney(accountIds[from], accountIds[to], AMOUNT);
+	}
+
+	@State(Scope.Thread)
+	public static class AccountPicker {
+		private SplittableRandom random;
+
+		@Setup(Level.Trial)
+		public void seed() {
+			random = new SplittableRandom();
+		}
+	}
+}
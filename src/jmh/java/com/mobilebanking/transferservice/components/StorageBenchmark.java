@@ -0,0 +1,136 @@
+package com.mobilebanking.transferservice.components;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionQuery;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import com.mobilebanking.transferservice.services.CachingStorage;
+import com.mobilebanking.transferservice.services.FastPathStorageImpl;
+import com.mobilebanking.transferservice.services.OffHeapStorageImpl;
+import com.mobilebanking.transferservice.services.SimpleInMemoryStorageImpl;
+import com.mobilebanking.transferservice.services.Storage;
+import com.mobilebanking.transferservice.services.StripedLockStorageImpl;
+import io.vavr.control.Option;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Transfer, account lookup and history paging against every storage. Throughput and SampleTime together give
+// ops per microsecond and latency percentiles, StorageBenchmarkRunner adds thread counts and the GC profiler.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StorageBenchmark {
+	private static final Money INITIAL_BALANCE = Money.valueOf(1_000_000_000L);
+	private static final Money AMOUNT = Money.valueOf(1);
+	private static final TransactionQuery FIRST_PAGE = ImmutableTransactionQuery.builder().limit(100).build();
+
+	// Share of operations and number of accounts in the hot set when access is "hot".
+	private static final int HOT_PERCENT = 90;
+	private static final int HOT_ACCOUNTS = 16;
+
+	@Param({"striped", "simple", "offheap", "fastpath", "cached"})
+	private String storageType;
+
+	@Param({"10000", "1000000"})
+	private int accountCount;
+
+	@Param({"100000"})
+	private int historySize;
+
+	@Param({"uniform", "hot"})
+	private String access;
+
+	private Storage storage;
+	private TransferComponent transferComponent;
+	private Long[] accountIds;
+
+	@Setup(Level.Trial)
+	public void populate() {
+		storage = createStorage();
+		transferComponent = storage instanceof FastPathStorageImpl
+				? new FastPathTransferComponentImpl((FastPathStorageImpl) storage)
+				: new TransferComponentImpl(storage);
+
+		accountIds = new Long[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accountIds[i] = storage.createAccount(INITIAL_BALANCE).getId();
+		}
+
+		AccountPicker picker = new AccountPicker();
+		picker.seed();
+
+		for (int i = 0; i < historySize; i++) {
+			storage.createTransaction(picker.next(this), picker.next(this), AMOUNT);
+		}
+	}
+
+	private Storage createStorage() {
+		switch (storageType) {
+			case "simple":
+				return new SimpleInMemoryStorageImpl();
+			case "offheap":
+				return new OffHeapStorageImpl(accountCount);
+			case "fastpath":
+				return new FastPathStorageImpl();
+			case "cached":
+				return new CachingStorage(new SimpleInMemoryStorageImpl(), HOT_ACCOUNTS * 64);
+			default:
+				return new StripedLockStorageImpl();
+		}
+	}
+
+	@Benchmark
+	public Transaction transfer(AccountPicker picker) throws NotSufficientBalance, AccountIsNotAvailable {
+		return transferComponent.transferMoney(picker.next(this), picker.next(this), AMOUNT);
+	}
+
+	@Benchmark
+	public Option<Account> getAccount(AccountPicker picker) {
+		return storage.getAccount(picker.next(this));
+	}
+
+	@Benchmark
+	public TransactionPage getTransactions(AccountPicker picker) {
+		return storage.getTransactionsForAccount(picker.next(this), FIRST_PAGE);
+	}
+
+	@State(Scope.Thread)
+	public static class AccountPicker {
+		private SplittableRandom random;
+
+		@Setup(Level.Trial)
+		public void seed() {
+			random = new SplittableRandom();
+		}
+
+		private Long next(StorageBenchmark benchmark) {
+			int bound = benchmark.accountIds.length;
+
+			if (benchmark.access.equals("hot") && random.nextInt(100) < HOT_PERCENT) {
+				bound = Math.min(HOT_ACCOUNTS, bound);
+			}
+
+			return benchmark.accountIds[random.nextInt(bound)];
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.mobilebanking.transferservice.components;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+// Runs StorageBenchmark once per thread count with the GC profiler, JMH cannot take the thread count as a @Param.
+// Usage: StorageBenchmarkRunner [--threads 1,8,32] [any JMH options]
+public class StorageBenchmarkRunner {
+	private static final String THREADS_OPTION = "--threads";
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		String threadCounts = "1,8,32";
+
+		if (args.length >= 2 && args[0].equals(THREADS_OPTION)) {
+			threadCounts = args[1];
+			args = Arrays.copyOfRange(args, 2, args.length);
+		}
+
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+
+		for (String threads : threadCounts.split(",")) {
+			new Runner(new OptionsBuilder()
+					.parent(commandLine)
+					.include(StorageBenchmark.class.getName())
+					.threads(Integer.parseInt(threads.trim()))
+					.addProfiler(GCProfiler.class)
+					.build()
+			).run();
+		}
+	}
+}
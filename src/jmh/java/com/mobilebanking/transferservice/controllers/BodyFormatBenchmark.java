@@ -0,0 +1,84 @@
+package com.mobilebanking.transferservice.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionBody;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import io.vavr.collection.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// Decoding a transfer request and encoding its response, the two mappings every transfer pays, plus a page of
+// history. Payload sizes are printed once per format at setup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BodyFormatBenchmark {
+	private static final int PAGE_SIZE = 100;
+
+	@Param({"JSON", "SMILE", "CBOR"})
+	private BodyFormat format;
+
+	private ObjectMapper mapper;
+	private Transaction transaction;
+	private List<Transaction> page;
+	private byte[] encodedBody;
+
+	@Setup(Level.Trial)
+	public void encode() throws IOException {
+		mapper = format.getObjectMapper();
+
+		TransactionBody body = ImmutableTransactionBody.builder()
+				.fromAccountId(1_048_576L)
+				.toAccountId(2_097_152L)
+				.amount(Money.valueOf(1_234_567, 2))
+				.build();
+
+		transaction = ImmutableTransaction.builder()
+				.timeStamp(Instant.now())
+				.fromAccountId(body.getFromAccountId())
+				.toAccountId(body.getToAccountId())
+				.amount(body.getAmount())
+				.build();
+
+		page = List.fill(PAGE_SIZE, () -> transaction);
+		encodedBody = mapper.writeValueAsBytes(body);
+
+		System.out.printf("%n%s bytes: request body %d, transaction %d, page of %d %d%n", format, encodedBody.length,
+				mapper.writeValueAsBytes(transaction).length, PAGE_SIZE, mapper.writeValueAsBytes(page).length);
+	}
+
+	@Benchmark
+	public TransactionBody decodeTransferRequest() throws IOException {
+		return mapper.readValue(encodedBody, TransactionBody.class);
+	}
+
+	@Benchmark
+	public byte[] encodeTransaction() throws IOException {
+		return mapper.writeValueAsBytes(transaction);
+	}
+
+	@Benchmark
+	public byte[] encodePage() throws IOException {
+		return mapper.writeValueAsBytes(page);
+	}
+}
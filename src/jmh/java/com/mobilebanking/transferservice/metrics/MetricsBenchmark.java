@@ -0,0 +1,35 @@
+package com.mobilebanking.transferservice.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost the metrics add to every instrumented call, a timed call pays for two nanoTime reads and one record.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MetricsBenchmark {
+	private final LatencyHistogram histogram = Metrics.histogram("benchmark_duration_seconds", "Benchmark");
+	private final Counter counter = Metrics.counter("benchmark_total", "Benchmark");
+
+	@Benchmark
+	public void timedCall() {
+		histogram.recordSince(System.nanoTime());
+	}
+
+	@Benchmark
+	public void counterIncrement() {
+		counter.increment();
+	}
+}
@@ -0,0 +1,99 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.ImmutableAccount;
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.services.wal.WriteAheadLog;
+import io.vavr.collection.Iterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// Startup time of the durable storage: loading a snapshot versus replaying the same state from the log.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class RecoveryBenchmark {
+	@Param({"10000000"})
+	private int accountCount;
+
+	@Param({"true", "false"})
+	private boolean fromSnapshot;
+
+	private Path directory;
+
+	@Setup(Level.Trial)
+	public void populate() throws IOException {
+		directory = Files.createTempDirectory("recovery");
+
+		if (fromSnapshot) {
+			SnapshotFile.write(SnapshotFile.of(directory, 0), accounts(), transactions());
+			return;
+		}
+
+		try (WriteAheadLog log = new WriteAheadLog(directory, Duration.ZERO, 4096)) {
+			for (Account account : accounts()) {
+				RedoLog redoLog = new RedoLog();
+				redoLog.account(account);
+				log.append(redoLog.toByteArray());
+			}
+
+			for (Transaction transaction : transactions()) {
+				RedoLog redoLog = new RedoLog();
+				redoLog.transaction(transaction);
+				log.append(redoLog.toByteArray());
+			}
+		}
+	}
+
+	@Benchmark
+	public SimpleInMemoryStorageImpl startup() throws IOException {
+		SimpleInMemoryStorageImpl storage = new SimpleInMemoryStorageImpl(
+				new WriteAheadLog(directory, Duration.ZERO, 1024));
+		storage.close();
+
+		return storage;
+	}
+
+	private Iterable<Account> accounts() {
+		return Iterator.range(0, accountCount).map(id -> ImmutableAccount
+				.builder()
+				.id((long) id)
+				.balance(Money.valueOf(id, 2))
+				.status(Account.AccountStatus.ACTIVE)
+				.build());
+	}
+
+	private Iterable<Transaction> transactions() {
+		Instant now = Instant.now();
+
+		return Iterator.range(1, accountCount).map(id -> ImmutableTransaction
+				.builder()
+				.fromAccountId((long) id - 1)
+				.toAccountId((long) id)
+				.amount(Money.valueOf(1))
+				.timeStamp(now)
+				.build());
+	}
+}
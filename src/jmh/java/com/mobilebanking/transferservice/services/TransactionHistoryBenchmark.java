@@ -0,0 +1,79 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import io.vavr.collection.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Compares the per-account index against the full scan that getTransactionsForAccount used to do.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransactionHistoryBenchmark {
+	@Param({"10000000"})
+	private int transactionCount;
+
+	@Param({"100000"})
+	private int accountCount;
+
+	private Storage storage;
+	private List<Transaction> allTransactions;
+	private Long[] accountIds;
+	private SplittableRandom random;
+
+	@Setup(Level.Trial)
+	public void populate() {
+		storage = new SimpleInMemoryStorageImpl();
+		allTransactions = List.empty();
+		random = new SplittableRandom(42);
+
+		accountIds = new Long[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accountIds[i] = (long) i;
+		}
+
+		Money amount = Money.valueOf(1);
+
+		for (int i = 0; i < transactionCount; i++) {
+			Long from = accountIds[random.nextInt(accountCount)];
+			Long to = accountIds[random.nextInt(accountCount)];
+
+			allTransactions = allTransactions.prepend(storage.createTransaction(from, to, amount));
+		}
+	}
+
+	@Benchmark
+	public List<Transaction> indexedLookup() {
+		return storage.getTransactionsForAccount(nextAccountId());
+	}
+
+	@Benchmark
+	public List<Transaction> fullScan() {
+		Long accountId = nextAccountId();
+
+		return allTransactions.filter(transaction ->
+				transaction.getFromAccountId().equals(accountId) || transaction.getToAccountId().equals(accountId)
+		);
+	}
+
+	private Long nextAccountId() {
+		return accountIds[random.nextInt(accountCount)];
+	}
+}
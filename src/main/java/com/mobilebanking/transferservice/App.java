@@ -1,43 +1,78 @@
 package com.mobilebanking.transferservice;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BatchSpansNodes;
 import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.IdempotencyKeyIsReused;
+import com.mobilebanking.transferservice.components.exceptions.NodeIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NodeIsReadOnly;
 import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.controllers.AsyncHandler;
+import com.mobilebanking.transferservice.controllers.BodyFormat;
 import com.mobilebanking.transferservice.controllers.Controller;
+import com.mobilebanking.transferservice.controllers.FollowerHandler;
+import com.mobilebanking.transferservice.controllers.MeteredHandler;
+import com.mobilebanking.transferservice.metrics.LatencyHistogram;
+import com.mobilebanking.transferservice.metrics.Metrics;
+import com.mobilebanking.transferservice.replication.ReplicationFollower;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.plugin.json.FromJsonMapper;
 import io.javalin.plugin.json.JavalinJackson;
-import io.vavr.jackson.datatype.VavrModule;
+import io.javalin.plugin.json.JavalinJson;
+import io.vavr.control.Option;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
 
 public class App {
 	public static void main(String[] args) {
-		initApp().start(7000);
+		initApp().start(TransferServiceModule.provideConfig().getServerPort());
 	}
 
 	protected static Javalin initApp() {
 		TransferServiceComponent transferServiceComponent = DaggerTransferServiceComponent.create();
 
 		Controller<Context> controller = transferServiceComponent.controller();
+		TransferServiceConfig config = transferServiceComponent.config();
+		Option<Executor> handlerExecutor = transferServiceComponent.handlerExecutor();
+		Option<ReplicationFollower> follower = transferServiceComponent.replicationFollower();
+
+		JavalinJackson.configure(BodyFormat.JSON.getObjectMapper());
+		meterJson();
+
+		Javalin app = Javalin.create(javalinConfig -> javalinConfig.server(() ->
+				new Server(new QueuedThreadPool(config.getServerMaxThreads(), 8, 60_000))
+		));
 
-		ObjectMapper objectMapper = new ObjectMapper()
-				.findAndRegisterModules()
-				.registerModule(new VavrModule())
-				.registerModule(new JavaTimeModule());
+		BiFunction<String, Handler, Handler> handlers = (route, handler) -> new MeteredHandler(route, handlerExecutor
+				.<Handler>map(executor -> new AsyncHandler(handler, executor))
+				.getOrElse(handler));
 
-		JavalinJackson.configure(objectMapper);
+		// A follower serves reads from its replica and sends writes to the leader.
+		BiFunction<String, Handler, Handler> reads = (route, handler) -> handlers.apply(route, follower
+				.map(replica -> FollowerHandler.reads(handler, config.getReplicationLeaderUrl(),
+						replica::getStalenessNanos))
+				.getOrElse(handler));
+		BiFunction<String, Handler, Handler> writes = (route, handler) -> handlers.apply(route, follower
+				.map(replica -> FollowerHandler.writes(config.getReplicationLeaderUrl()))
+				.getOrElse(handler));
 
-		Javalin app = Javalin.create();
-		app.post("/v1/account", controller::createAccount);
-		app.delete("/v1/account/:id", controller::closeAccount);
-		app.get("/v1/account/:id", controller::getAccount);
-		app.post("/v1/transaction/", controller::transfer);
-		app.get("/v1/account/:id/transactions", controller::getTransactions);
+		app.post("/v1/account", writes.apply("POST /v1/account", controller::createAccount));
+		app.delete("/v1/account/:id", writes.apply("DELETE /v1/account/:id", controller::closeAccount));
+		app.get("/v1/account/:id", reads.apply("GET /v1/account/:id", controller::getAccount));
+		app.post("/v1/transaction/", writes.apply("POST /v1/transaction/", controller::transferAsync));
+		app.post("/v1/transactions/batch", writes.apply("POST /v1/transactions/batch", controller::transferBatch));
+		app.get("/v1/account/:id/transactions", reads.apply("GET /v1/account/:id/transactions",
+				config.isStreamingHistory() ? controller::streamTransactions : controller::getTransactions));
+		app.get("/metrics", ctx -> ctx.contentType("text/plain; version=0.0.4").result(Metrics.scrape()));
 
 		app.exception(AccountIsNotAvailable.class, (e, ctx) -> {
 			ctx.status(404);
-			ctx.result("Account is not available");
+			ctx.result(e.getMessage());
 		});
 
 		app.exception(BalanceIsNotZero.class, (e, ctx) -> {
@@ -47,9 +82,66 @@ public class App {
 
 		app.exception(NotSufficientBalance.class, (e, ctx) -> {
 			ctx.status(400);
-			ctx.result("Not sufficient balance");
+			ctx.result(e.getMessage());
+		});
+
+		app.exception(ArithmeticException.class, (e, ctx) -> {
+			ctx.status(400);
+			ctx.result("Amount is out of range");
+		});
+
+		app.exception(BatchSpansNodes.class, (e, ctx) -> {
+			ctx.status(400);
+			ctx.result(e.getMessage());
+		});
+
+		app.exception(IdempotencyKeyIsReused.class, (e, ctx) -> {
+			ctx.status(422);
+			ctx.result(e.getMessage());
+		});
+
+		// Writes are routed to the leader before they get here, one still reaching the replica goes there as well.
+		app.exception(NodeIsReadOnly.class, (e, ctx) -> {
+			FollowerHandler.redirectToLeader(ctx, config.getReplicationLeaderUrl());
+			ctx.result(e.getMessage());
+		});
+
+		app.exception(NodeIsNotAvailable.class, (e, ctx) -> {
+			ctx.status(503);
+			ctx.result(e.getMessage());
 		});
 
 		return app;
 	}
+
+	// Times the JSON mapping of request and response bodies, Jackson still does the mapping.
+	private static void meterJson() {
+		LatencyHistogram serialization = Metrics.histogram("json_duration_seconds",
+				"Time spent mapping bodies to and from JSON", "direction", "serialize");
+		LatencyHistogram deserialization = Metrics.histogram("json_duration_seconds",
+				"Time spent mapping bodies to and from JSON", "direction", "deserialize");
+
+		JavalinJson.setToJsonMapper(object -> {
+			long start = System.nanoTime();
+
+			try {
+				return JavalinJackson.INSTANCE.toJson(object);
+			} finally {
+				serialization.recordSince(start);
+			}
+		});
+
+		JavalinJson.setFromJsonMapper(new FromJsonMapper() {
+			@Override
+			public <T> T map(String json, Class<T> targetClass) {
+				long start = System.nanoTime();
+
+				try {
+					return JavalinJackson.INSTANCE.fromJson(json, targetClass);
+				} finally {
+					deserialization.recordSince(start);
+				}
+			}
+		});
+	}
 }
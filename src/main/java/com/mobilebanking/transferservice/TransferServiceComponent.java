@@ -1,11 +1,25 @@
 package com.mobilebanking.transferservice;
 
 import com.mobilebanking.transferservice.controllers.Controller;
+import com.mobilebanking.transferservice.replication.ReplicationFollower;
 import dagger.Component;
 import io.javalin.http.Context;
+import io.vavr.control.Option;
 
+import javax.inject.Singleton;
+import java.util.concurrent.Executor;
 
+
+@Singleton
 @Component(modules = TransferServiceModule.class)
 public interface TransferServiceComponent {
 	Controller<Context> controller();
+
+	TransferServiceConfig config();
+
+	// Empty when handlers run on the server threads.
+	Option<Executor> handlerExecutor();
+
+	// Only on a follower, whose reads depend on how stale its replica is.
+	Option<ReplicationFollower> replicationFollower();
 }
@@ -0,0 +1,171 @@
+package com.mobilebanking.transferservice;
+
+import org.immutables.value.Value;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+@Value.Style(jdkOnly = true)
+@Value.Immutable
+public interface TransferServiceConfig {
+	enum StorageMode {
+		STRIPED,
+		SIMPLE,
+		DURABLE,
+		OFFHEAP,
+		FASTPATH,
+		PARTITIONED
+	}
+
+	enum Pipeline {
+		LOCKING,
+		SEQUENCED
+	}
+
+	enum ReplicationRole {
+		NONE,
+		LEADER,
+		FOLLOWER
+	}
+
+	enum HandlerMode {
+		BLOCKING,
+		EXECUTOR,
+		VIRTUAL
+	}
+
+	@Value.Default
+	default StorageMode getStorageMode() {
+		return StorageMode.STRIPED;
+	}
+
+	@Value.Default
+	default Pipeline getPipeline() {
+		return Pipeline.LOCKING;
+	}
+
+	@Value.Default
+	default int getSequencerRingSize() {
+		return 1 << 14;
+	}
+
+	@Value.Default
+	default HandlerMode getHandlerMode() {
+		return HandlerMode.BLOCKING;
+	}
+
+	@Value.Default
+	default int getHandlerThreads() {
+		return 64;
+	}
+
+	// Same as Javalin's own server.
+	@Value.Default
+	default int getServerMaxThreads() {
+		return 250;
+	}
+
+	// Writes transaction histories to the response as they are serialized instead of building them in memory first.
+	@Value.Default
+	default boolean isStreamingHistory() {
+		return true;
+	}
+
+	@Value.Default
+	default int getPartitions() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	// Transport addresses of every node of the cluster as host:port, in the same order on every node.
+	// Empty outside of a cluster.
+	List<String> getClusterNodes();
+
+	@Value.Default
+	default int getClusterNodeId() {
+		return 0;
+	}
+
+	@Value.Default
+	default int getServerPort() {
+		return 7000;
+	}
+
+	@Value.Default
+	default ReplicationRole getReplicationRole() {
+		return ReplicationRole.NONE;
+	}
+
+	// Where a leader listens for followers, and where a follower finds the leader as host:port.
+	@Value.Default
+	default String getReplicationAddress() {
+		return "localhost:7100";
+	}
+
+	// Base URL writes to a follower are redirected to.
+	@Value.Default
+	default String getReplicationLeaderUrl() {
+		return "http://localhost:7000";
+	}
+
+	// Commits a leader keeps for followers that reconnect, one that fell further behind gets a copy of the state.
+	@Value.Default
+	default int getReplicationBacklog() {
+		return 100_000;
+	}
+
+	@Value.Default
+	default Duration getReplicationHeartbeatInterval() {
+		return Duration.ofMillis(100);
+	}
+
+	@Value.Default
+	default long getExpectedAccounts() {
+		return 1 << 20;
+	}
+
+	// Accounts kept in the cache in front of the storage, 0 for no cache.
+	@Value.Default
+	default long getCachedAccounts() {
+		return 0;
+	}
+
+	// Accounts whose credits are spread over sub-balances, only the striped and off-heap storages support them.
+	List<Long> getHotAccounts();
+
+	@Value.Default
+	default int getHotAccountShards() {
+		return 16;
+	}
+
+	@Value.Default
+	default Path getDataDirectory() {
+		return Paths.get("data");
+	}
+
+	@Value.Default
+	default Duration getLogFlushInterval() {
+		return Duration.ZERO;
+	}
+
+	@Value.Default
+	default int getLogBatchSize() {
+		return 512;
+	}
+
+	@Value.Default
+	default Duration getSnapshotInterval() {
+		return Duration.ofMinutes(5);
+	}
+
+	@Value.Default
+	default Duration getIdempotencyTtl() {
+		return Duration.ofHours(24);
+	}
+
+	@Value.Default
+	default long getIdempotencyMaxKeys() {
+		return 100_000;
+	}
+}
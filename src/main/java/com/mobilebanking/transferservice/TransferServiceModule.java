@@ -1,30 +1,302 @@
 package com.mobilebanking.transferservice;
 
+import com.mobilebanking.transferservice.cluster.ClusterNode;
+import com.mobilebanking.transferservice.cluster.ClusterTopology;
+import com.mobilebanking.transferservice.components.FastPathTransferComponentImpl;
+import com.mobilebanking.transferservice.components.MeteredTransferComponent;
+import com.mobilebanking.transferservice.components.PartitionedTransferComponentImpl;
+import com.mobilebanking.transferservice.components.SequencedTransferComponentImpl;
 import com.mobilebanking.transferservice.components.TransferComponent;
 import com.mobilebanking.transferservice.components.TransferComponentImpl;
 import com.mobilebanking.transferservice.controllers.Controller;
 import com.mobilebanking.transferservice.controllers.JavalinControllerImpl;
+import com.mobilebanking.transferservice.replication.ReplicationFollower;
+import com.mobilebanking.transferservice.replication.ReplicationLeader;
+import com.mobilebanking.transferservice.services.CachingStorage;
+import com.mobilebanking.transferservice.services.CaffeineIdempotencyCache;
+import com.mobilebanking.transferservice.services.FastPathStorageImpl;
+import com.mobilebanking.transferservice.services.IdempotencyCache;
+import com.mobilebanking.transferservice.services.OffHeapStorageImpl;
+import com.mobilebanking.transferservice.services.PartitionedStorage;
 import com.mobilebanking.transferservice.services.SimpleInMemoryStorageImpl;
 import com.mobilebanking.transferservice.services.Storage;
+import com.mobilebanking.transferservice.services.StripedLockStorageImpl;
+import com.mobilebanking.transferservice.services.wal.WriteAheadLog;
 import dagger.Module;
 import dagger.Provides;
 import io.javalin.http.Context;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Module
 public class TransferServiceModule {
+	private static final Logger log = LoggerFactory.getLogger(TransferServiceModule.class);
+	private static final String PROPERTY_PREFIX = "transferservice.";
+
 	@Provides
-	static Controller<Context> provideController(TransferComponent transferComponent) {
-		return new JavalinControllerImpl(transferComponent);
+	static Controller<Context> provideController(TransferComponent transferComponent,
+												  IdempotencyCache idempotencyCache) {
+		return new JavalinControllerImpl(transferComponent, idempotencyCache);
 	}
 
 	@Provides
-	static TransferComponent provideTransferComponent(Storage storage) {
+	static IdempotencyCache provideIdempotencyCache(TransferServiceConfig config) {
+		return new CaffeineIdempotencyCache(config.getIdempotencyTtl(), config.getIdempotencyMaxKeys());
+	}
+
+	@Provides
+	static TransferComponent provideTransferComponent(Storage storage, TransferServiceConfig config) {
+		if (!config.getClusterNodes().isEmpty()) {
+			return new MeteredTransferComponent(startClusterNode((PartitionedStorage) storage, config)
+					.getTransferComponent());
+		}
+
+		switch (config.getPipeline()) {
+			case SEQUENCED:
+				return new MeteredTransferComponent(
+						new SequencedTransferComponentImpl(storage, config.getSequencerRingSize()));
+			default:
+				return new MeteredTransferComponent(lockingTransferComponent(storage));
+		}
+	}
+
+	// Transfers of the fast-path storage skip the generic DB transactions, those of the partitioned storage
+	// only lock more than one partition when they cross partitions. Behind the account cache both use the
+	// generic transfers.
+	private static TransferComponent lockingTransferComponent(Storage storage) {
+		if (storage instanceof FastPathStorageImpl) {
+			return new FastPathTransferComponentImpl((FastPathStorageImpl) storage);
+		}
+
+		if (storage instanceof PartitionedStorage) {
+			return new PartitionedTransferComponentImpl((PartitionedStorage) storage);
+		}
+
 		return new TransferComponentImpl(storage);
 	}
 
 	@Provides
-	static Storage provideStorage() {
-		return new SimpleInMemoryStorageImpl();
+	static Option<Executor> provideHandlerExecutor(TransferServiceConfig config) {
+		switch (config.getHandlerMode()) {
+			case EXECUTOR:
+				return Option.of(handlerPool(config.getHandlerThreads()));
+			case VIRTUAL:
+				return Option.of(virtualThreads().getOrElse(() -> {
+					log.warn("Virtual threads need JDK 21 or newer, handlers run on a pool of {} threads",
+							config.getHandlerThreads());
+					return handlerPool(config.getHandlerThreads());
+				}));
+			default:
+				return Option.none();
+		}
+	}
+
+	private static Executor handlerPool(int threads) {
+		AtomicInteger created = new AtomicInteger();
+
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "handler-" + created.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// Looked up reflectively, the code is still compiled for Java 8.
+	private static Option<Executor> virtualThreads() {
+		return Try.of(() -> (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null))
+				.toOption();
+	}
+
+	private static ClusterNode startClusterNode(PartitionedStorage storage, TransferServiceConfig config) {
+		try {
+			return new ClusterNode(clusterTopology(config), storage, config.getDataDirectory());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static ClusterTopology clusterTopology(TransferServiceConfig config) {
+		return ClusterTopology.parse(config.getClusterNodes(), config.getClusterNodeId(),
+				config.getPartitions());
+	}
+
+	@Provides
+	@Singleton
+	static Option<ReplicationFollower> provideReplicationFollower(TransferServiceConfig config) {
+		if (config.getReplicationRole() != TransferServiceConfig.ReplicationRole.FOLLOWER) {
+			return Option.none();
+		}
+
+		return Option.of(new ReplicationFollower(replicationAddress(config)));
+	}
+
+	@Provides
+	@Singleton
+	static Storage provideStorage(TransferServiceConfig config, Option<ReplicationFollower> follower) {
+		if (follower.isDefined()) {
+			return follower.get().getStorage();
+		}
+
+		// A cluster node only keeps the partitions it owns, each with a log of its own next to the commit logs.
+		if (!config.getClusterNodes().isEmpty()) {
+			ClusterTopology topology = clusterTopology(config);
+
+			try {
+				return new PartitionedStorage(topology.getPartitions(), topology::ownsPartition,
+						(partition, partitions) -> new SimpleInMemoryStorageImpl(partition, partitions,
+								new WriteAheadLog(
+										Files.createDirectories(config.getDataDirectory().resolve("partition-" + partition)),
+										config.getLogFlushInterval(),
+										config.getLogBatchSize()),
+								config.getSnapshotInterval()));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		Storage storage = singleNodeStorage(config);
+
+		return config.getCachedAccounts() > 0 ? new CachingStorage(storage, config.getCachedAccounts()) : storage;
+	}
+
+	private static Storage singleNodeStorage(TransferServiceConfig config) {
+		// A leader replicates the simple storage, durable or not.
+		if (config.getReplicationRole() == TransferServiceConfig.ReplicationRole.LEADER) {
+			return startReplicationLeader(config.getStorageMode() == TransferServiceConfig.StorageMode.DURABLE
+					? (SimpleInMemoryStorageImpl) provideDurableStorage(config)
+					: new SimpleInMemoryStorageImpl(), config);
+		}
+
+		switch (config.getStorageMode()) {
+			case SIMPLE:
+				return new SimpleInMemoryStorageImpl();
+			case DURABLE:
+				return provideDurableStorage(config);
+			case FASTPATH:
+				return new FastPathStorageImpl();
+			case PARTITIONED:
+				return new PartitionedStorage(config.getPartitions());
+			case OFFHEAP:
+				return withHotAccounts(new OffHeapStorageImpl(config.getExpectedAccounts()), config);
+			default:
+				return withHotAccounts(new StripedLockStorageImpl(), config);
+		}
+	}
+
+	private static Storage withHotAccounts(StripedLockStorageImpl storage, TransferServiceConfig config) {
+		config.getHotAccounts().forEach(accountId -> storage.enableHotAccount(accountId, config.getHotAccountShards()));
+
+		return storage;
+	}
+
+	private static Storage startReplicationLeader(SimpleInMemoryStorageImpl storage, TransferServiceConfig config) {
+		try {
+			new ReplicationLeader(storage, replicationAddress(config), config.getReplicationBacklog(),
+					config.getReplicationHeartbeatInterval());
+
+			return storage;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static InetSocketAddress replicationAddress(TransferServiceConfig config) {
+		String address = config.getReplicationAddress();
+		int colon = address.lastIndexOf(':');
+
+		if (colon < 0) {
+			throw new IllegalArgumentException("Replication address must be host:port, got " + address);
+		}
+
+		return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+	}
+
+	private static Storage provideDurableStorage(TransferServiceConfig config) {
+		try {
+			Files.createDirectories(config.getDataDirectory());
+
+			WriteAheadLog writeAheadLog = new WriteAheadLog(
+					config.getDataDirectory(),
+					config.getLogFlushInterval(),
+					config.getLogBatchSize());
+
+			return new SimpleInMemoryStorageImpl(writeAheadLog, config.getSnapshotInterval());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Provides
+	static TransferServiceConfig provideConfig() {
+		ImmutableTransferServiceConfig.Builder config = ImmutableTransferServiceConfig.builder();
+
+		property("storage")
+				.map(mode -> TransferServiceConfig.StorageMode.valueOf(mode.toUpperCase()))
+				.forEach(config::storageMode);
+		property("pipeline")
+				.map(pipeline -> TransferServiceConfig.Pipeline.valueOf(pipeline.toUpperCase()))
+				.forEach(config::pipeline);
+		property("sequencer.ringSize").map(Integer::valueOf).forEach(config::sequencerRingSize);
+		property("handlers")
+				.map(mode -> TransferServiceConfig.HandlerMode.valueOf(mode.toUpperCase()))
+				.forEach(config::handlerMode);
+		property("handlers.threads").map(Integer::valueOf).forEach(config::handlerThreads);
+		property("server.maxThreads").map(Integer::valueOf).forEach(config::serverMaxThreads);
+		property("server.port").map(Integer::valueOf).forEach(config::serverPort);
+		property("replication.role")
+				.map(role -> TransferServiceConfig.ReplicationRole.valueOf(role.toUpperCase()))
+				.forEach(config::replicationRole);
+		property("replication.address").forEach(config::replicationAddress);
+		property("replication.leaderUrl").forEach(config::replicationLeaderUrl);
+		property("replication.backlog").map(Integer::valueOf).forEach(config::replicationBacklog);
+		property("replication.heartbeatMillis")
+				.map(millis -> Duration.ofMillis(Long.parseLong(millis)))
+				.forEach(config::replicationHeartbeatInterval);
+		property("history.streaming").map(Boolean::valueOf).forEach(config::isStreamingHistory);
+		property("hotAccounts")
+				.map(ids -> Stream.of(ids.split(",")).map(id -> Long.valueOf(id.trim())).collect(Collectors.toList()))
+				.forEach(config::addAllHotAccounts);
+		property("hotAccounts.shards").map(Integer::valueOf).forEach(config::hotAccountShards);
+		property("partitions").map(Integer::valueOf).forEach(config::partitions);
+		property("cluster.nodes")
+				.map(nodes -> Stream.of(nodes.split(",")).map(String::trim).collect(Collectors.toList()))
+				.forEach(config::addAllClusterNodes);
+		property("cluster.nodeId").map(Integer::valueOf).forEach(config::clusterNodeId);
+		property("accounts.expected").map(Long::valueOf).forEach(config::expectedAccounts);
+		property("cache.accounts").map(Long::valueOf).forEach(config::cachedAccounts);
+		property("data.dir").map(Paths::get).forEach(config::dataDirectory);
+		property("wal.flushIntervalMicros")
+				.map(micros -> Duration.ofNanos(Long.parseLong(micros) * 1000))
+				.forEach(config::logFlushInterval);
+		property("wal.batchSize").map(Integer::valueOf).forEach(config::logBatchSize);
+		property("idempotency.ttlSeconds")
+				.map(seconds -> Duration.ofSeconds(Long.parseLong(seconds)))
+				.forEach(config::idempotencyTtl);
+		property("idempotency.maxKeys").map(Long::valueOf).forEach(config::idempotencyMaxKeys);
+		property("snapshot.intervalSeconds")
+				.map(seconds -> Duration.ofSeconds(Long.parseLong(seconds)))
+				.forEach(config::snapshotInterval);
+
+		return config.build();
+	}
+
+	private static Option<String> property(String name) {
+		return Option.of(System.getProperty(PROPERTY_PREFIX + name));
 	}
 }
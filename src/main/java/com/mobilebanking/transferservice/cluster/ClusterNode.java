@@ -0,0 +1,192 @@
+package com.mobilebanking.transferservice.cluster;
+
+import com.mobilebanking.transferservice.components.PartitionedTransferComponentImpl;
+import com.mobilebanking.transferservice.components.TransferComponent;
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionBody;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.dtos.TransferResult;
+import com.mobilebanking.transferservice.services.PartitionedStorage;
+import io.vavr.collection.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// One node of a cluster: the partitions it owns, the transport answering the other nodes, and clients to them.
+// In the background it repeats unacknowledged commits it coordinated and asks about credits left in doubt.
+// The two-phase commit logs are kept under the data directory, the partitions need to be durable as well for a
+// node to recover from a crash. Closing the node closes its partitions.
+public class ClusterNode implements Closeable {
+	private static final Logger log = LoggerFactory.getLogger(ClusterNode.class);
+
+	private final ClusterTopology topology;
+	private final PartitionedStorage storage;
+	private final TransferComponent local;
+	private final TransportClient[] clients;
+	private final Participant participant;
+	private final Coordinator coordinator;
+	private final ClusterTransferComponentImpl transferComponent;
+	private final TransportServer server;
+	private final ScheduledExecutorService recovery;
+
+	public ClusterNode(ClusterTopology topology, PartitionedStorage storage, Path dataDirectory) throws IOException {
+		this(topology, storage, dataDirectory, Duration.ofSeconds(5), Duration.ofSeconds(1), Duration.ofSeconds(10));
+	}
+
+	ClusterNode(ClusterTopology topology, PartitionedStorage storage, Path dataDirectory, Duration timeout,
+				Duration retryInterval, Duration inDoubtTimeout) throws IOException {
+		this.topology = topology;
+		this.storage = storage;
+		this.local = new PartitionedTransferComponentImpl(storage);
+
+		clients = new TransportClient[topology.getNodes().size()];
+		for (int i = 0; i < clients.length; i++) {
+			clients[i] = new TransportClient(topology.getNodes().get(i), timeout);
+		}
+
+		participant = new Participant(storage, dataDirectory.resolve("participant-" + topology.getNodeId()));
+		coordinator = new Coordinator(storage, topology, this::client,
+				dataDirectory.resolve("coordinator-" + topology.getNodeId()));
+		transferComponent = new ClusterTransferComponentImpl(topology, local, coordinator, this::client);
+		server = new TransportServer(topology.getAddress(), this::handle);
+
+		recovery = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "cluster-recovery-" + topology.getNodeId());
+			thread.setDaemon(true);
+			return thread;
+		});
+		recovery.scheduleWithFixedDelay(() -> recover(inDoubtTimeout),
+				retryInterval.toMillis(), retryInterval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	public TransferComponent getTransferComponent() {
+		return transferComponent;
+	}
+
+	Participant getParticipant() {
+		return participant;
+	}
+
+	Coordinator getCoordinator() {
+		return coordinator;
+	}
+
+	private TransportClient client(int node) {
+		return clients[node];
+	}
+
+	private void recover(Duration inDoubtTimeout) {
+		try {
+			coordinator.retryCommits();
+			participant.resolveInDoubt(this::client, inDoubtTimeout.toNanos());
+		} catch (RuntimeException e) {
+			log.error("Cluster recovery failed", e);
+		}
+	}
+
+	private void handle(byte type, DataInputStream in, DataOutputStream out) throws Exception {
+		switch (type) {
+			case Messages.GET_ACCOUNT:
+				Messages.writeAccount(out, local.getAccount(owned(in.readLong())));
+				break;
+			case Messages.GET_TRANSACTIONS:
+				Messages.writePage(out, local.getTransactionsForAccount(owned(in.readLong()), Messages.readQuery(in)));
+				break;
+			case Messages.CLOSE_ACCOUNT:
+				Messages.writeAccount(out, local.closeAccount(owned(in.readLong())));
+				break;
+			case Messages.TRANSFER:
+				Messages.writeTransaction(out, transferComponent.transferMoney(owned(in.readLong()), in.readLong(),
+						Messages.readMoney(in)));
+				break;
+			case Messages.TRANSFER_BATCH:
+				handleBatch(in, out);
+				break;
+			case Messages.PREPARE_CREDIT:
+				prepareCredit(in);
+				break;
+			case Messages.COMMIT:
+				participant.commit(Messages.readUuid(in));
+				break;
+			case Messages.ABORT:
+				participant.abort(Messages.readUuid(in));
+				break;
+			case Messages.STATUS:
+				out.writeByte(coordinator.status(Messages.readUuid(in)));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown message type " + type);
+		}
+	}
+
+	private void prepareCredit(DataInputStream in) throws IOException, AccountIsNotAvailable {
+		UUID transfer = Messages.readUuid(in);
+		int coordinatorId = in.readInt();
+		Transaction transaction = Messages.readTransaction(in);
+
+		owned(transaction.getToAccountId());
+		participant.prepareCredit(transfer, coordinatorId, transaction);
+	}
+
+	private void handleBatch(DataInputStream in, DataOutputStream out) throws Exception {
+		BatchTransferBody.BatchMode mode = BatchTransferBody.BatchMode.values()[in.readByte()];
+		List<TransactionBody> transfers = List.empty();
+
+		for (int i = in.readInt(); i > 0; i--) {
+			transfers = transfers.prepend(ImmutableTransactionBody
+					.builder()
+					.fromAccountId(owned(in.readLong()))
+					.toAccountId(owned(in.readLong()))
+					.amount(Messages.readMoney(in))
+					.build());
+		}
+
+		List<TransferResult> results = local.transferMoney(transfers.reverse(), mode);
+
+		out.writeInt(results.size());
+		for (TransferResult result : results) {
+			out.writeBoolean(result.getTransaction().isDefined());
+
+			if (result.getTransaction().isDefined()) {
+				Messages.writeTransaction(out, result.getTransaction().get());
+			} else {
+				out.writeUTF(result.getError().getOrElse(""));
+			}
+		}
+	}
+
+	// Forwarded requests only name accounts of this node, unless the nodes disagree about the topology.
+	private Long owned(Long accountId) throws AccountIsNotAvailable {
+		if (!topology.isLocal(accountId)) {
+			throw new AccountIsNotAvailable();
+		}
+
+		return accountId;
+	}
+
+	@Override
+	public void close() throws IOException {
+		recovery.shutdownNow();
+		server.close();
+
+		for (TransportClient client : clients) {
+			client.close();
+		}
+
+		coordinator.close();
+		participant.close();
+		storage.close();
+	}
+}
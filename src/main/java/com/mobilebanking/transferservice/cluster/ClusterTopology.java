@@ -0,0 +1,66 @@
+package com.mobilebanking.transferservice.cluster;
+
+import com.mobilebanking.transferservice.services.PartitionedStorage;
+import io.vavr.collection.List;
+
+import java.net.InetSocketAddress;
+
+// Which node owns which account. Accounts are split over the partitions by id and the partitions over the nodes
+// in turn, every node must be started with the same nodes in the same order and the same number of partitions.
+public class ClusterTopology {
+	private final List<InetSocketAddress> nodes;
+	private final int nodeId;
+	private final int partitions;
+
+	public ClusterTopology(List<InetSocketAddress> nodes, int nodeId, int partitions) {
+		if (nodeId < 0 || nodeId >= nodes.size()) {
+			throw new IllegalArgumentException("Node id " + nodeId + " is not one of the " + nodes.size() + " nodes");
+		}
+
+		if (partitions < nodes.size()) {
+			throw new IllegalArgumentException("Every node needs a partition, " + nodes.size() + " nodes share "
+					+ partitions + " partitions");
+		}
+
+		this.nodes = nodes;
+		this.nodeId = nodeId;
+		this.partitions = partitions;
+	}
+
+	// Nodes as host:port of their transport.
+	public static ClusterTopology parse(Iterable<String> nodes, int nodeId, int partitions) {
+		return new ClusterTopology(List.ofAll(nodes).map(node -> {
+			int separator = node.lastIndexOf(':');
+
+			return new InetSocketAddress(node.substring(0, separator), Integer.parseInt(node.substring(separator + 1)));
+		}), nodeId, partitions);
+	}
+
+	public List<InetSocketAddress> getNodes() {
+		return nodes;
+	}
+
+	public int getNodeId() {
+		return nodeId;
+	}
+
+	public int getPartitions() {
+		return partitions;
+	}
+
+	public InetSocketAddress getAddress() {
+		return nodes.get(nodeId);
+	}
+
+	public boolean ownsPartition(int partition) {
+		return partition % nodes.size() == nodeId;
+	}
+
+	public int ownerOf(Long accountId) {
+		return PartitionedStorage.partitionOf(accountId, partitions) % nodes.size();
+	}
+
+	public boolean isLocal(Long accountId) {
+		return ownerOf(accountId) == nodeId;
+	}
+}
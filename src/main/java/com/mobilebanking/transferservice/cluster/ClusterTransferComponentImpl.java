@@ -0,0 +1,157 @@
+package com.mobilebanking.transferservice.cluster;
+
+import com.mobilebanking.transferservice.components.TransferComponent;
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BatchSpansNodes;
+import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import com.mobilebanking.transferservice.dtos.TransferResult;
+import io.vavr.collection.List;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.function.IntFunction;
+
+// Serves the accounts of the whole cluster from any node. Accounts of this node are served by its own partitions,
+// requests for the others are forwarded to the node owning them. A transfer runs on the node owning the debited
+// account, which coordinates it with the node of the credited one when that is another node.
+class ClusterTransferComponentImpl implements TransferComponent {
+	private final ClusterTopology topology;
+	private final TransferComponent local;
+	private final Coordinator coordinator;
+	private final IntFunction<TransportClient> nodes;
+
+	ClusterTransferComponentImpl(ClusterTopology topology, TransferComponent local, Coordinator coordinator,
+								 IntFunction<TransportClient> nodes) {
+		this.topology = topology;
+		this.local = local;
+		this.coordinator = coordinator;
+		this.nodes = nodes;
+	}
+
+	@Override
+	public Transaction transferMoney(Long fromAccountId, Long toAccountId, Money amount)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		if (!topology.isLocal(fromAccountId)) {
+			try {
+				return nodes.apply(topology.ownerOf(fromAccountId)).call(Messages.TRANSFER, out -> {
+					out.writeLong(fromAccountId);
+					out.writeLong(toAccountId);
+					Messages.writeMoney(out, amount);
+				}, Messages::readTransaction);
+			} catch (BalanceIsNotZero e) {
+				throw unexpected(e);
+			}
+		}
+
+		return topology.isLocal(toAccountId)
+				? local.transferMoney(fromAccountId, toAccountId, amount)
+				: coordinator.transfer(fromAccountId, toAccountId, amount);
+	}
+
+	@Override
+	public List<TransferResult> transferMoney(List<TransactionBody> transfers, BatchTransferBody.BatchMode mode)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		List<Integer> owners = transfers
+				.flatMap(transfer -> List.of(transfer.getFromAccountId(), transfer.getToAccountId()))
+				.map(topology::ownerOf)
+				.distinct();
+
+		if (owners.isEmpty() || owners.head() == topology.getNodeId() && owners.size() == 1) {
+			return local.transferMoney(transfers, mode);
+		}
+
+		if (owners.size() > 1) {
+			throw new BatchSpansNodes();
+		}
+
+		try {
+			return nodes.apply(owners.head()).call(Messages.TRANSFER_BATCH, out -> {
+				out.writeByte(mode.ordinal());
+				out.writeInt(transfers.size());
+
+				for (TransactionBody transfer : transfers) {
+					out.writeLong(transfer.getFromAccountId());
+					out.writeLong(transfer.getToAccountId());
+					Messages.writeMoney(out, transfer.getAmount());
+				}
+			}, ClusterTransferComponentImpl::readResults);
+		} catch (BalanceIsNotZero e) {
+			throw unexpected(e);
+		}
+	}
+
+	private static List<TransferResult> readResults(DataInputStream in) throws IOException {
+		List<TransferResult> results = List.empty();
+
+		for (int i = in.readInt(); i > 0; i--) {
+			results = results.prepend(in.readBoolean()
+					? TransferResult.success(Messages.readTransaction(in))
+					: TransferResult.failure(in.readUTF()));
+		}
+
+		return results.reverse();
+	}
+
+	@Override
+	public Account getAccount(Long accountId) throws AccountIsNotAvailable {
+		if (topology.isLocal(accountId)) {
+			return local.getAccount(accountId);
+		}
+
+		try {
+			return nodes.apply(topology.ownerOf(accountId))
+					.call(Messages.GET_ACCOUNT, out -> out.writeLong(accountId), Messages::readAccount);
+		} catch (NotSufficientBalance | BalanceIsNotZero e) {
+			throw unexpected(e);
+		}
+	}
+
+	@Override
+	public List<Transaction> getTransactionsForAccount(Long accountId) {
+		return getTransactionsForAccount(accountId, TransactionQuery.all()).getTransactions().toList();
+	}
+
+	@Override
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		if (topology.isLocal(accountId)) {
+			return local.getTransactionsForAccount(accountId, query);
+		}
+
+		return nodes.apply(topology.ownerOf(accountId)).request(Messages.GET_TRANSACTIONS, out -> {
+			out.writeLong(accountId);
+			Messages.writeQuery(out, query);
+		}, Messages::readPage);
+	}
+
+	// New accounts are always opened in the partitions of the node that was asked.
+	@Override
+	public Account createAccount(Money initialBalance) {
+		return local.createAccount(initialBalance);
+	}
+
+	@Override
+	public Account closeAccount(Long accountId) throws AccountIsNotAvailable, BalanceIsNotZero {
+		if (topology.isLocal(accountId)) {
+			return local.closeAccount(accountId);
+		}
+
+		try {
+			return nodes.apply(topology.ownerOf(accountId))
+					.call(Messages.CLOSE_ACCOUNT, out -> out.writeLong(accountId), Messages::readAccount);
+		} catch (NotSufficientBalance e) {
+			throw unexpected(e);
+		}
+	}
+
+	private static IllegalStateException unexpected(Exception e) {
+		return new IllegalStateException("Unexpected answer of the node owning the account", e);
+	}
+}
@@ -0,0 +1,259 @@
+package com.mobilebanking.transferservice.cluster;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.NodeIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.services.PartitionedStorage;
+import com.mobilebanking.transferservice.services.Storage;
+import com.mobilebanking.transferservice.services.wal.WriteAheadLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+// Two-phase commit of transfers from an account of this node to an account of another one. The debit is prepared
+// in a local DB transaction, which holds the account's partition until the decision, the credit by the node owning
+// the target. Only the decision to commit is forced to the log, a transfer without one is presumed aborted.
+// The decision carries the transaction, so a debit that didn't reach the log of its partition before a crash is
+// applied again on restart. Commits the participant didn't acknowledge are repeated until it does, after a restart
+// from the log.
+class Coordinator implements Closeable {
+	private static final Logger log = LoggerFactory.getLogger(Coordinator.class);
+
+	private static final byte COMMIT_RECORD = 1;
+	private static final byte END_RECORD = 2;
+
+	private final PartitionedStorage storage;
+	private final ClusterTopology topology;
+	private final IntFunction<TransportClient> nodes;
+	private final WriteAheadLog decisions;
+
+	// Transfers between their prepare and their decision.
+	private final Set<UUID> undecided = ConcurrentHashMap.newKeySet();
+	// Committed transfers by the node whose acknowledgement is still missing.
+	private final Map<UUID, Integer> unacknowledged = new ConcurrentHashMap<>();
+
+	Coordinator(PartitionedStorage storage, ClusterTopology topology, IntFunction<TransportClient> nodes,
+				Path logDirectory) throws IOException {
+		this.storage = storage;
+		this.topology = topology;
+		this.nodes = nodes;
+
+		Files.createDirectories(logDirectory);
+		decisions = new WriteAheadLog(logDirectory, Duration.ZERO, 512);
+
+		// In the order they were decided, which is the order their debits were committed in within a partition.
+		Map<UUID, Decision> logged = new LinkedHashMap<>();
+		decisions.replay(0, record -> replay(record, logged));
+		logged.values().forEach(decision -> redoDebit(decision.transaction));
+
+		// Only the decisions still waiting for an acknowledgement are carried over, the older segments go.
+		long segment = decisions.rotate();
+		logged.forEach((transfer, decision) -> {
+			decisions.append(commitRecord(transfer, decision.participant, decision.transaction)).join();
+			unacknowledged.put(transfer, decision.participant);
+		});
+		decisions.deleteSegmentsBefore(segment);
+	}
+
+	private static void replay(ByteBuffer record, Map<UUID, Decision> logged) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array()));
+			byte type = in.readByte();
+			UUID transfer = Messages.readUuid(in);
+
+			if (type == COMMIT_RECORD) {
+				logged.put(transfer, new Decision(in.readInt(), Messages.readTransaction(in)));
+			} else {
+				logged.remove(transfer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// A debit is in the history of its account once its DB transaction is, otherwise the crash came in between.
+	private void redoDebit(Transaction transaction) {
+		Long fromAccountId = transaction.getFromAccountId();
+		Storage partition = storage.getPartition(storage.partitionOf(fromAccountId));
+		partition.startDbTransaction(fromAccountId);
+
+		try {
+			if (!partition.getTransactionsForAccount(fromAccountId).contains(transaction)) {
+				Money balance = partition.getAccount(fromAccountId).get().getBalance();
+
+				partition.recordTransaction(transaction);
+				partition.setAccount(fromAccountId, balance.subtract(transaction.getAmount()));
+			}
+		} catch (RuntimeException e) {
+			partition.rollbackDbTransaction();
+			throw e;
+		}
+
+		partition.commitDbTransaction();
+	}
+
+	Transaction transfer(Long fromAccountId, Long toAccountId, Money amount)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		UUID transfer = UUID.randomUUID();
+		int participant = topology.ownerOf(toAccountId);
+		Storage partition = storage.getPartition(storage.partitionOf(fromAccountId));
+		Transaction transaction = ImmutableTransaction
+				.builder()
+				.fromAccountId(fromAccountId)
+				.toAccountId(toAccountId)
+				.amount(amount)
+				.timeStamp(Instant.now())
+				.build();
+		boolean preparing = false;
+
+		// The partition stays locked over the round trip to the participant and the fsync of the decision, so
+		// transfers out of one partition to other nodes take at least that long each, one after the other.
+		// Transfers within the node queue up behind them on the same lock.
+		undecided.add(transfer);
+		partition.startDbTransaction(fromAccountId);
+
+		try {
+			Money newBalance = partition
+					.getAccount(fromAccountId)
+					.filter(account -> account.getStatus().equals(Account.AccountStatus.ACTIVE))
+					.map(Account::getBalance)
+					.filter(balance -> balance.compareTo(amount) >= 0)
+					.map(balance -> balance.subtract(amount))
+					.getOrElseThrow(NotSufficientBalance::new);
+
+			partition.recordTransaction(transaction);
+			partition.setAccount(fromAccountId, newBalance);
+
+			preparing = true;
+			nodes.apply(participant).call(Messages.PREPARE_CREDIT, out -> {
+				Messages.writeUuid(out, transfer);
+				out.writeInt(topology.getNodeId());
+				Messages.writeTransaction(out, transaction);
+			}, in -> null);
+
+			// Once the decision is on disk the transfer commits, whatever crashes after.
+			decisions.append(commitRecord(transfer, participant, transaction)).join();
+			unacknowledged.put(transfer, participant);
+		} catch (NotSufficientBalance | AccountIsNotAvailable | RuntimeException e) {
+			partition.rollbackDbTransaction();
+
+			// The participant may have prepared without its answer getting here.
+			if (preparing) {
+				abortQuietly(transfer, participant);
+			}
+
+			throw e;
+		} catch (BalanceIsNotZero e) {
+			partition.rollbackDbTransaction();
+			throw new IllegalStateException("Unexpected answer to a prepare", e);
+		} finally {
+			undecided.remove(transfer);
+		}
+
+		partition.commitDbTransaction();
+		acknowledge(transfer, participant);
+
+		return transaction;
+	}
+
+	// How a transfer this node coordinated ended, for participants in doubt.
+	byte status(UUID transfer) {
+		if (unacknowledged.containsKey(transfer)) {
+			return Messages.COMMITTED;
+		}
+
+		return undecided.contains(transfer) ? Messages.IN_PROGRESS : Messages.ABORTED;
+	}
+
+	// Repeats the commits that weren't acknowledged, a node that is still away is tried again next time.
+	void retryCommits() {
+		unacknowledged.forEach(this::acknowledge);
+	}
+
+	int getUnacknowledgedCount() {
+		return unacknowledged.size();
+	}
+
+	private void acknowledge(UUID transfer, int participant) {
+		try {
+			nodes.apply(participant).request(Messages.COMMIT, out -> Messages.writeUuid(out, transfer), in -> null);
+		} catch (NodeIsNotAvailable e) {
+			log.warn("Commit of transfer {} is not acknowledged yet, node {} is not available", transfer, participant);
+			return;
+		}
+
+		if (unacknowledged.remove(transfer) != null) {
+			decisions.append(endRecord(transfer));
+		}
+	}
+
+	private void abortQuietly(UUID transfer, int participant) {
+		try {
+			nodes.apply(participant).request(Messages.ABORT, out -> Messages.writeUuid(out, transfer), in -> null);
+		} catch (NodeIsNotAvailable e) {
+			// It learns about the abort when it asks.
+		}
+	}
+
+	static byte[] commitRecord(UUID transfer, int participant, Transaction transaction) {
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(record);
+
+		try {
+			out.writeByte(COMMIT_RECORD);
+			Messages.writeUuid(out, transfer);
+			out.writeInt(participant);
+			Messages.writeTransaction(out, transaction);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return record.toByteArray();
+	}
+
+	private static byte[] endRecord(UUID transfer) {
+		return ByteBuffer.allocate(1 + 16)
+				.put(END_RECORD)
+				.putLong(transfer.getMostSignificantBits())
+				.putLong(transfer.getLeastSignificantBits())
+				.array();
+	}
+
+	@Override
+	public void close() throws IOException {
+		decisions.close();
+	}
+
+	private static class Decision {
+		private final int participant;
+		private final Transaction transaction;
+
+		private Decision(int participant, Transaction transaction) {
+			this.participant = participant;
+			this.transaction = transaction;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package com.mobilebanking.transferservice.cluster;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BatchSpansNodes;
+import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.ImmutableAccount;
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionPage;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionQuery;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import io.vavr.collection.Vector;
+import io.vavr.control.Option;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.UUID;
+
+// Message types of the transport and the binary encoding of their fields, shared by both ends.
+final class Messages {
+	// Forwarded to the node owning the account.
+	static final byte GET_ACCOUNT = 1;
+	static final byte GET_TRANSACTIONS = 2;
+	static final byte CLOSE_ACCOUNT = 3;
+	static final byte TRANSFER = 4;
+	static final byte TRANSFER_BATCH = 5;
+
+	// Two-phase commit between the coordinator and the participant of a transfer across nodes.
+	static final byte PREPARE_CREDIT = 10;
+	static final byte COMMIT = 11;
+	static final byte ABORT = 12;
+	static final byte STATUS = 13;
+
+	// Response statuses, every one but OK is followed by the failure's message.
+	static final byte OK = 0;
+	static final byte ACCOUNT_IS_NOT_AVAILABLE = 1;
+	static final byte NOT_SUFFICIENT_BALANCE = 2;
+	static final byte BALANCE_IS_NOT_ZERO = 3;
+	static final byte OUT_OF_RANGE = 4;
+	static final byte BATCH_SPANS_NODES = 5;
+	static final byte FAILED = 6;
+
+	// Outcomes of a transfer as its coordinator knows them.
+	static final byte COMMITTED = 0;
+	static final byte ABORTED = 1;
+	static final byte IN_PROGRESS = 2;
+
+	private Messages() {
+	}
+
+	// Requests a node can get twice without a different outcome, the others change state on every delivery.
+	static boolean isIdempotent(byte type) {
+		switch (type) {
+			case GET_ACCOUNT:
+			case GET_TRANSACTIONS:
+			case PREPARE_CREDIT:
+			case COMMIT:
+			case ABORT:
+			case STATUS:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	static byte statusOf(Exception failure) {
+		if (failure instanceof AccountIsNotAvailable) {
+			return ACCOUNT_IS_NOT_AVAILABLE;
+		} else if (failure instanceof NotSufficientBalance) {
+			return NOT_SUFFICIENT_BALANCE;
+		} else if (failure instanceof BalanceIsNotZero) {
+			return BALANCE_IS_NOT_ZERO;
+		} else if (failure instanceof ArithmeticException) {
+			return OUT_OF_RANGE;
+		} else if (failure instanceof BatchSpansNodes) {
+			return BATCH_SPANS_NODES;
+		}
+
+		return FAILED;
+	}
+
+	static void writeMoney(DataOutput out, Money value) throws IOException {
+		out.writeByte(value.getScale());
+		out.writeLong(value.getUnscaled());
+	}
+
+	static Money readMoney(DataInput in) throws IOException {
+		int scale = in.readByte();
+
+		return Money.valueOf(in.readLong(), scale);
+	}
+
+	static void writeInstant(DataOutput out, Instant value) throws IOException {
+		out.writeLong(value.getEpochSecond());
+		out.writeInt(value.getNano());
+	}
+
+	static Instant readInstant(DataInput in) throws IOException {
+		return Instant.ofEpochSecond(in.readLong(), in.readInt());
+	}
+
+	static void writeUuid(DataOutput out, UUID value) throws IOException {
+		out.writeLong(value.getMostSignificantBits());
+		out.writeLong(value.getLeastSignificantBits());
+	}
+
+	static UUID readUuid(DataInput in) throws IOException {
+		return new UUID(in.readLong(), in.readLong());
+	}
+
+	static void writeAccount(DataOutput out, Account account) throws IOException {
+		out.writeLong(account.getId());
+		writeMoney(out, account.getBalance());
+		out.writeByte(account.getStatus().ordinal());
+	}
+
+	static Account readAccount(DataInput in) throws IOException {
+		return ImmutableAccount
+				.builder()
+				.id(in.readLong())
+				.balance(readMoney(in))
+				.status(Account.AccountStatus.values()[in.readByte()])
+				.build();
+	}
+
+	static void writeTransaction(DataOutput out, Transaction transaction) throws IOException {
+		out.writeLong(transaction.getFromAccountId());
+		out.writeLong(transaction.getToAccountId());
+		writeMoney(out, transaction.getAmount());
+		writeInstant(out, transaction.getTimeStamp());
+	}
+
+	static Transaction readTransaction(DataInput in) throws IOException {
+		return ImmutableTransaction
+				.builder()
+				.fromAccountId(in.readLong())
+				.toAccountId(in.readLong())
+				.amount(readMoney(in))
+				.timeStamp(readInstant(in))
+				.build();
+	}
+
+	static void writeQuery(DataOutput out, TransactionQuery query) throws IOException {
+		out.writeLong(query.getCursor());
+		out.writeInt(query.getLimit());
+		writeInstant(out, query.getFromTime());
+		writeInstant(out, query.getToTime());
+	}
+
+	static TransactionQuery readQuery(DataInput in) throws IOException {
+		return ImmutableTransactionQuery
+				.builder()
+				.cursor(in.readLong())
+				.limit(in.readInt())
+				.fromTime(readInstant(in))
+				.toTime(readInstant(in))
+				.build();
+	}
+
+	static void writePage(DataOutput out, TransactionPage page) throws IOException {
+		out.writeInt(page.getTransactions().size());
+
+		for (Transaction transaction : page.getTransactions()) {
+			writeTransaction(out, transaction);
+		}
+
+		out.writeBoolean(page.getNextCursor().isDefined());
+		out.writeLong(page.getNextCursor().getOrElse(0L));
+	}
+
+	static TransactionPage readPage(DataInput in) throws IOException {
+		int size = in.readInt();
+		Vector<Transaction> transactions = Vector.empty();
+
+		for (int i = 0; i < size; i++) {
+			transactions = transactions.append(readTransaction(in));
+		}
+
+		boolean hasNext = in.readBoolean();
+		long nextCursor = in.readLong();
+
+		return ImmutableTransactionPage
+				.builder()
+				.transactions(transactions)
+				.nextCursor(hasNext ? Option.some(nextCursor) : Option.none())
+				.build();
+	}
+}
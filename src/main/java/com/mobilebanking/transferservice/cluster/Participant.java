@@ -0,0 +1,199 @@
+package com.mobilebanking.transferservice.cluster;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NodeIsNotAvailable;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.services.PartitionedStorage;
+import com.mobilebanking.transferservice.services.Storage;
+import com.mobilebanking.transferservice.services.wal.WriteAheadLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+// The credit side of transfers coordinated by other nodes. Preparing checks the account and forces the credit to
+// the log before voting yes, so a prepared credit survives a crash. The commit applies it and then logs it as
+// resolved. A commit or abort of a transfer that isn't prepared here was resolved before and is only acknowledged,
+// so the coordinator can repeat them. A credit whose decision doesn't come in time is asked about at its
+// coordinator, which gets participants out of doubt after the coordinator crashed.
+class Participant implements Closeable {
+	private static final Logger log = LoggerFactory.getLogger(Participant.class);
+
+	private static final byte PREPARED_RECORD = 1;
+	private static final byte RESOLVED_RECORD = 2;
+
+	private final PartitionedStorage storage;
+	private final WriteAheadLog credits;
+	private final ConcurrentHashMap<UUID, PreparedCredit> prepared = new ConcurrentHashMap<>();
+
+	Participant(PartitionedStorage storage, Path logDirectory) throws IOException {
+		this.storage = storage;
+
+		Files.createDirectories(logDirectory);
+		credits = new WriteAheadLog(logDirectory, Duration.ZERO, 512);
+		credits.replay(0, this::replay);
+
+		// Only the credits still prepared are carried over, the older segments go.
+		long segment = credits.rotate();
+		prepared.forEach((transfer, credit) -> credits.append(preparedRecord(transfer, credit)).join());
+		credits.deleteSegmentsBefore(segment);
+	}
+
+	// A credit found in the log may have been applied right before the crash that lost its resolved record.
+	private void replay(ByteBuffer record) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array()));
+			byte type = in.readByte();
+			UUID transfer = Messages.readUuid(in);
+
+			if (type == PREPARED_RECORD) {
+				prepared.put(transfer, new PreparedCredit(in.readInt(), Messages.readTransaction(in), true));
+			} else {
+				prepared.remove(transfer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	void prepareCredit(UUID transfer, int coordinator, Transaction transaction) throws AccountIsNotAvailable {
+		storage.getAccount(transaction.getToAccountId())
+				.filter(account -> account.getStatus().equals(Account.AccountStatus.ACTIVE))
+				.getOrElseThrow(AccountIsNotAvailable::new);
+
+		PreparedCredit credit = new PreparedCredit(coordinator, transaction, false);
+
+		credits.append(preparedRecord(transfer, credit)).join();
+		prepared.put(transfer, credit);
+	}
+
+	// The debit is committed by now and can't be undone, so the credit is applied even to an account closed since.
+	void commit(UUID transfer) {
+		PreparedCredit credit = prepared.remove(transfer);
+
+		if (credit == null) {
+			return;
+		}
+
+		Transaction transaction = credit.transaction;
+		Long toAccountId = transaction.getToAccountId();
+		Storage partition = storage.getPartition(storage.partitionOf(toAccountId));
+		partition.startDbTransaction(toAccountId);
+
+		try {
+			if (!credit.maybeApplied || !partition.getTransactionsForAccount(toAccountId).contains(transaction)) {
+				Money balance = partition.getAccount(toAccountId).get().getBalance();
+
+				partition.recordTransaction(transaction);
+				partition.setAccount(toAccountId, balance.add(transaction.getAmount()));
+			}
+		} catch (RuntimeException e) {
+			partition.rollbackDbTransaction();
+			prepared.put(transfer, credit);
+			throw e;
+		}
+
+		try {
+			partition.commitDbTransaction();
+		} catch (RuntimeException e) {
+			// Whether the credit reached the partition's log is unknown, the next attempt looks for it.
+			prepared.put(transfer, new PreparedCredit(credit.coordinator, transaction, true));
+			throw e;
+		}
+
+		// Without this record the credit is found in the account's history on recovery.
+		credits.append(resolvedRecord(transfer));
+	}
+
+	void abort(UUID transfer) {
+		if (prepared.remove(transfer) != null) {
+			credits.append(resolvedRecord(transfer));
+		}
+	}
+
+	int getPreparedCount() {
+		return prepared.size();
+	}
+
+	// Asks the coordinators of credits prepared longer than the timeout how their transfers ended.
+	void resolveInDoubt(IntFunction<TransportClient> nodes, long timeoutNanos) {
+		long now = System.nanoTime();
+
+		prepared.forEach((transfer, credit) -> {
+			if (now - credit.preparedAt < timeoutNanos) {
+				return;
+			}
+
+			try {
+				byte outcome = nodes.apply(credit.coordinator).request(Messages.STATUS,
+						out -> Messages.writeUuid(out, transfer), in -> in.readByte());
+
+				if (outcome == Messages.COMMITTED) {
+					commit(transfer);
+				} else if (outcome == Messages.ABORTED) {
+					abort(transfer);
+				}
+			} catch (NodeIsNotAvailable e) {
+				log.warn("Transfer {} stays in doubt, its coordinator is not available", transfer);
+			}
+		});
+	}
+
+	private static byte[] preparedRecord(UUID transfer, PreparedCredit credit) {
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(record);
+
+		try {
+			out.writeByte(PREPARED_RECORD);
+			Messages.writeUuid(out, transfer);
+			out.writeInt(credit.coordinator);
+			Messages.writeTransaction(out, credit.transaction);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return record.toByteArray();
+	}
+
+	private static byte[] resolvedRecord(UUID transfer) {
+		return ByteBuffer.allocate(1 + 16)
+				.put(RESOLVED_RECORD)
+				.putLong(transfer.getMostSignificantBits())
+				.putLong(transfer.getLeastSignificantBits())
+				.array();
+	}
+
+	@Override
+	public void close() throws IOException {
+		credits.close();
+	}
+
+	private static class PreparedCredit {
+		private final int coordinator;
+		private final Transaction transaction;
+		// Set when an earlier attempt may have applied it, the account's history tells.
+		private final boolean maybeApplied;
+		private final long preparedAt = System.nanoTime();
+
+		private PreparedCredit(int coordinator, Transaction transaction, boolean maybeApplied) {
+			this.coordinator = coordinator;
+			this.transaction = transaction;
+			this.maybeApplied = maybeApplied;
+		}
+	}
+}
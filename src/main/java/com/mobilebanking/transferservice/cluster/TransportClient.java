@@ -0,0 +1,170 @@
+package com.mobilebanking.transferservice.cluster;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BatchSpansNodes;
+import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.NodeIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Requests to one node over a pool of connections, each one carrying a single request at a time. A node that can't
+// be reached or doesn't answer within the timeout is a NodeIsNotAvailable, its connection is dropped.
+// A request failing on a pooled connection may have been handled before the connection broke, so it is only sent
+// again on a new one when it is idempotent. Otherwise the caller gets a NodeIsNotAvailable.
+class TransportClient implements Closeable {
+	interface Request {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	interface Response<T> {
+		T read(DataInputStream in) throws IOException;
+	}
+
+	private final InetSocketAddress address;
+	private final int timeoutMillis;
+	private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<>();
+
+	TransportClient(InetSocketAddress address, Duration timeout) {
+		this.address = address;
+		this.timeoutMillis = (int) timeout.toMillis();
+	}
+
+	<T> T call(byte type, Request request, Response<T> response)
+			throws AccountIsNotAvailable, NotSufficientBalance, BalanceIsNotZero {
+		ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		Connection connection = idle.poll();
+		DataInputStream answer;
+
+		try {
+			request.write(new DataOutputStream(payload));
+
+			if (connection == null) {
+				connection = new Connection();
+				answer = connection.exchange(type, payload);
+			} else {
+				try {
+					answer = connection.exchange(type, payload);
+				} catch (SocketTimeoutException e) {
+					throw e;
+				} catch (IOException e) {
+					// A pooled connection the node has closed since, e.g. by restarting, fails without an answer.
+					// The other pooled ones most likely went with it.
+					close();
+
+					if (!Messages.isIdempotent(type)) {
+						throw e;
+					}
+
+					connection.close();
+					connection = new Connection();
+					answer = connection.exchange(type, payload);
+				}
+			}
+
+			idle.offer(connection);
+			connection = null;
+
+			byte status = answer.readByte();
+
+			if (status == Messages.OK) {
+				return response.read(answer);
+			}
+
+			String message = answer.readUTF();
+
+			switch (status) {
+				case Messages.ACCOUNT_IS_NOT_AVAILABLE:
+					throw new AccountIsNotAvailable();
+				case Messages.NOT_SUFFICIENT_BALANCE:
+					throw new NotSufficientBalance();
+				case Messages.BALANCE_IS_NOT_ZERO:
+					throw new BalanceIsNotZero();
+				case Messages.OUT_OF_RANGE:
+					throw new ArithmeticException(message);
+				case Messages.BATCH_SPANS_NODES:
+					throw new BatchSpansNodes();
+				default:
+					throw new IllegalStateException("Node " + address + " failed: " + message);
+			}
+		} catch (IOException e) {
+			if (connection != null) {
+				connection.close();
+			}
+
+			throw new NodeIsNotAvailable(address.toString(), e);
+		}
+	}
+
+	// For messages of the protocol itself, which never fail with the exceptions of a transfer.
+	<T> T request(byte type, Request request, Response<T> response) {
+		try {
+			return call(type, request, response);
+		} catch (AccountIsNotAvailable | NotSufficientBalance | BalanceIsNotZero e) {
+			throw new IllegalStateException("Unexpected answer of " + address, e);
+		}
+	}
+
+	@Override
+	public void close() {
+		for (Connection connection = idle.poll(); connection != null; connection = idle.poll()) {
+			connection.close();
+		}
+	}
+
+	private class Connection {
+		private final Socket socket;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+
+		private Connection() throws IOException {
+			socket = new Socket();
+
+			try {
+				socket.connect(address, timeoutMillis);
+				socket.setSoTimeout(timeoutMillis);
+				socket.setTcpNoDelay(true);
+
+				in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			} catch (IOException e) {
+				socket.close();
+				throw e;
+			}
+		}
+
+		// Sends a request and returns its status followed by the response payload.
+		private DataInputStream exchange(byte type, ByteArrayOutputStream payload) throws IOException {
+			out.writeByte(type);
+			out.writeInt(payload.size());
+			payload.writeTo(out);
+			out.flush();
+
+			byte status = in.readByte();
+			byte[] answer = new byte[1 + in.readInt()];
+			answer[0] = status;
+			in.readFully(answer, 1, answer.length - 1);
+
+			return new DataInputStream(new ByteArrayInputStream(answer));
+		}
+
+		private void close() {
+			try {
+				socket.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.mobilebanking.transferservice.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Answers the requests of other nodes, every connection on its own thread and one request at a time.
+// A request is framed as [type][length][payload], its response as [status][length][payload].
+class TransportServer implements Closeable {
+	private static final Logger log = LoggerFactory.getLogger(TransportServer.class);
+
+	interface Handler {
+		void handle(byte type, DataInputStream request, DataOutputStream response) throws Exception;
+	}
+
+	private final ServerSocket serverSocket;
+	private final Handler handler;
+	private final ExecutorService threads;
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+	private volatile boolean closed;
+
+	TransportServer(InetSocketAddress address, Handler handler) throws IOException {
+		this.handler = handler;
+
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(address);
+
+		threads = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "transport-" + address.getPort());
+			thread.setDaemon(true);
+			return thread;
+		});
+		threads.execute(this::accept);
+	}
+
+	private void accept() {
+		while (!closed) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				connections.add(socket);
+				threads.execute(() -> serve(socket));
+			} catch (IOException e) {
+				if (!closed) {
+					log.warn("Accepting a transport connection failed", e);
+				}
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+			while (true) {
+				byte type = in.readByte();
+				byte[] payload = new byte[in.readInt()];
+				in.readFully(payload);
+
+				ByteArrayOutputStream response = new ByteArrayOutputStream();
+				byte status = Messages.OK;
+
+				try {
+					handler.handle(type, new DataInputStream(new ByteArrayInputStream(payload)),
+							new DataOutputStream(response));
+				} catch (Exception e) {
+					status = Messages.statusOf(e);
+					response.reset();
+					new DataOutputStream(response).writeUTF(String.valueOf(e.getMessage()));
+
+					if (status == Messages.FAILED) {
+						log.error("Transport request of type {} failed", type, e);
+					}
+				}
+
+				out.writeByte(status);
+				out.writeInt(response.size());
+				response.writeTo(out);
+				out.flush();
+			}
+		} catch (EOFException e) {
+			// The other node closed the connection.
+		} catch (IOException e) {
+			if (!closed) {
+				log.debug("Transport connection dropped", e);
+			}
+		} finally {
+			connections.remove(socket);
+		}
+	}
+
+	int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+
+		for (Socket connection : connections) {
+			connection.close();
+		}
+
+		threads.shutdownNow();
+	}
+}
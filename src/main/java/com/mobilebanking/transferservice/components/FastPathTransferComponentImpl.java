@@ -0,0 +1,135 @@
+package com.mobilebanking.transferservice.components;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import com.mobilebanking.transferservice.dtos.TransferResult;
+import com.mobilebanking.transferservice.services.FastPathStorageImpl;
+import io.vavr.collection.List;
+
+import java.time.Instant;
+
+// Single transfers work on raw balances under the two account locks, with no Option, lambda, Money or account
+// copy in between, and are refused with shared stackless exceptions. Nothing is written before both accounts
+// are checked, so there is nothing to roll back. The returned Transaction is the only allocation, everything
+// else goes through TransferComponentImpl.
+public class FastPathTransferComponentImpl implements TransferComponent {
+	private final FastPathStorageImpl storage;
+	private final TransferComponentImpl transfers;
+
+	public FastPathTransferComponentImpl(FastPathStorageImpl storage) {
+		this.storage = storage;
+		this.transfers = new TransferComponentImpl(storage);
+	}
+
+	@Override
+	public Transaction transferMoney(Long fromAccountId, Long toAccountId, Money amount)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		long fromId = fromAccountId;
+		long toId = toAccountId;
+		long epochNanos;
+
+		long lockedAt = storage.lockAccounts(fromId, toId);
+
+		try {
+			if (!storage.isActive(fromId)) {
+				throw NotSufficientBalance.STACKLESS;
+			}
+
+			long fromUnscaled = storage.getUnscaledBalance(fromId);
+			int fromScale = storage.getBalanceScale(fromId);
+			int newFromScale = Math.max(fromScale, amount.getScale());
+			long newFromUnscaled = subtract(fromUnscaled, fromScale, amount, newFromScale);
+
+			if (!storage.isActive(toId)) {
+				throw AccountIsNotAvailable.STACKLESS;
+			}
+
+			// Read after the debit is known, so a transfer to the same account leaves its balance as it was.
+			long toUnscaled = fromId == toId ? newFromUnscaled : storage.getUnscaledBalance(toId);
+			int toScale = fromId == toId ? newFromScale : storage.getBalanceScale(toId);
+			int newToScale = Math.max(toScale, amount.getScale());
+			long newToUnscaled = Math.addExact(Money.rescale(toUnscaled, toScale, newToScale),
+					Money.rescale(amount.getUnscaled(), amount.getScale(), newToScale));
+
+			epochNanos = System.currentTimeMillis() * 1_000_000;
+
+			storage.setBalance(fromId, newFromUnscaled, newFromScale);
+			storage.setBalance(toId, newToUnscaled, newToScale);
+			storage.appendTransaction(fromId, toId, amount.getUnscaled(), amount.getScale(), epochNanos);
+		} finally {
+			storage.unlockAccounts(fromId, toId, lockedAt);
+		}
+
+		return ImmutableTransaction
+				.builder()
+				.fromAccountId(fromAccountId)
+				.toAccountId(toAccountId)
+				.amount(amount)
+				.timeStamp(Instant.ofEpochSecond(0, epochNanos))
+				.build();
+	}
+
+	// The new balance at the larger of both scales, throws if it would be negative.
+	private static long subtract(long unscaled, int scale, Money amount, int newScale) throws NotSufficientBalance {
+		long balance;
+		long debit;
+
+		try {
+			balance = Money.rescale(unscaled, scale, newScale);
+			debit = Money.rescale(amount.getUnscaled(), amount.getScale(), newScale);
+		} catch (ArithmeticException e) {
+			// Too large to compare as longs, Money compares them exactly.
+			if (Money.valueOf(unscaled, scale).compareTo(amount) < 0) {
+				throw NotSufficientBalance.STACKLESS;
+			}
+
+			throw e;
+		}
+
+		if (balance < debit) {
+			throw NotSufficientBalance.STACKLESS;
+		}
+
+		return Math.subtractExact(balance, debit);
+	}
+
+	@Override
+	public List<TransferResult> transferMoney(List<TransactionBody> transfers, BatchTransferBody.BatchMode mode)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		return this.transfers.transferMoney(transfers, mode);
+	}
+
+	@Override
+	public Account getAccount(Long accountId) throws AccountIsNotAvailable {
+		return transfers.getAccount(accountId);
+	}
+
+	@Override
+	public List<Transaction> getTransactionsForAccount(Long accountId) {
+		return transfers.getTransactionsForAccount(accountId);
+	}
+
+	@Override
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		return transfers.getTransactionsForAccount(accountId, query);
+	}
+
+	@Override
+	public Account createAccount(Money initialBalance) {
+		return transfers.createAccount(initialBalance);
+	}
+
+	@Override
+	public Account closeAccount(Long accountId) throws AccountIsNotAvailable, BalanceIsNotZero {
+		return transfers.closeAccount(accountId);
+	}
+}
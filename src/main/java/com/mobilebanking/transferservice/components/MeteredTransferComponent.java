@@ -0,0 +1,154 @@
+package com.mobilebanking.transferservice.components;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import com.mobilebanking.transferservice.dtos.TransferResult;
+import com.mobilebanking.transferservice.metrics.LatencyHistogram;
+import com.mobilebanking.transferservice.metrics.Metrics;
+import io.vavr.collection.List;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Times every call of the wrapped component and counts the failed ones by exception,
+// a failed transfer, batch or close is a rolled back DB transaction.
+public class MeteredTransferComponent implements TransferComponent {
+	private static final String DURATION = "transfer_component_duration_seconds";
+	private static final String DURATION_HELP = "Duration of TransferComponent calls";
+	private static final String FAILURES = "transfer_component_failures_total";
+	private static final String FAILURES_HELP = "TransferComponent calls that threw, by exception";
+
+	private final TransferComponent transferComponent;
+
+	private final LatencyHistogram transferMoney = duration("transferMoney");
+	private final LatencyHistogram transferMoneyAsync = duration("transferMoneyAsync");
+	private final LatencyHistogram transferBatch = duration("transferBatch");
+	private final LatencyHistogram getAccount = duration("getAccount");
+	private final LatencyHistogram getTransactionsForAccount = duration("getTransactionsForAccount");
+	private final LatencyHistogram createAccount = duration("createAccount");
+	private final LatencyHistogram closeAccount = duration("closeAccount");
+
+	public MeteredTransferComponent(TransferComponent transferComponent) {
+		this.transferComponent = transferComponent;
+	}
+
+	@Override
+	public Transaction transferMoney(Long fromAccountId, Long toAccountId, Money amount)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		long start = System.nanoTime();
+
+		try {
+			return transferComponent.transferMoney(fromAccountId, toAccountId, amount);
+		} catch (NotSufficientBalance | AccountIsNotAvailable | RuntimeException e) {
+			failed("transferMoney", e);
+			throw e;
+		} finally {
+			transferMoney.recordSince(start);
+		}
+	}
+
+	@Override
+	public CompletableFuture<Transaction> transferMoneyAsync(Long fromAccountId, Long toAccountId, Money amount) {
+		long start = System.nanoTime();
+
+		return transferComponent.transferMoneyAsync(fromAccountId, toAccountId, amount)
+				.whenComplete((transaction, failure) -> {
+					transferMoneyAsync.recordSince(start);
+
+					if (failure != null) {
+						failed("transferMoneyAsync", failure instanceof CompletionException ? failure.getCause() : failure);
+					}
+				});
+	}
+
+	@Override
+	public List<TransferResult> transferMoney(List<TransactionBody> transfers, BatchTransferBody.BatchMode mode)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		long start = System.nanoTime();
+
+		try {
+			return transferComponent.transferMoney(transfers, mode);
+		} catch (NotSufficientBalance | AccountIsNotAvailable | RuntimeException e) {
+			failed("transferBatch", e);
+			throw e;
+		} finally {
+			transferBatch.recordSince(start);
+		}
+	}
+
+	@Override
+	public Account getAccount(Long accountId) throws AccountIsNotAvailable {
+		long start = System.nanoTime();
+
+		try {
+			return transferComponent.getAccount(accountId);
+		} finally {
+			getAccount.recordSince(start);
+		}
+	}
+
+	@Override
+	public List<Transaction> getTransactionsForAccount(Long accountId) {
+		long start = System.nanoTime();
+
+		try {
+			return transferComponent.getTransactionsForAccount(accountId);
+		} finally {
+			getTransactionsForAccount.recordSince(start);
+		}
+	}
+
+	@Override
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		long start = System.nanoTime();
+
+		try {
+			return transferComponent.getTransactionsForAccount(accountId, query);
+		} finally {
+			getTransactionsForAccount.recordSince(start);
+		}
+	}
+
+	@Override
+	public Account createAccount(Money initialBalance) {
+		long start = System.nanoTime();
+
+		try {
+			return transferComponent.createAccount(initialBalance);
+		} finally {
+			createAccount.recordSince(start);
+		}
+	}
+
+	@Override
+	public Account closeAccount(Long accountId) throws AccountIsNotAvailable, BalanceIsNotZero {
+		long start = System.nanoTime();
+
+		try {
+			return transferComponent.closeAccount(accountId);
+		} catch (AccountIsNotAvailable | BalanceIsNotZero | RuntimeException e) {
+			failed("closeAccount", e);
+			throw e;
+		} finally {
+			closeAccount.recordSince(start);
+		}
+	}
+
+	private static LatencyHistogram duration(String method) {
+		return Metrics.histogram(DURATION, DURATION_HELP, "method", method);
+	}
+
+	// Failures are rare, looking the counter up each time keeps the exception types open.
+	private static void failed(String method, Throwable failure) {
+		Metrics.counter(FAILURES, FAILURES_HELP, "method", method, "exception", failure.getClass().getSimpleName())
+				.increment();
+	}
+}
@@ -0,0 +1,165 @@
+package com.mobilebanking.transferservice.components;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import com.mobilebanking.transferservice.dtos.TransferResult;
+import com.mobilebanking.transferservice.services.PartitionedStorage;
+import com.mobilebanking.transferservice.services.Storage;
+import io.vavr.collection.List;
+
+import java.time.Instant;
+
+// A transfer within one partition is a local DB transaction of that partition alone. Across partitions this is the
+// coordinator of a two-phase commit: each side is prepared in its own partition, which locks it, checks it and
+// writes it, and votes no by failing. Both are committed only once both are prepared, otherwise every prepared one
+// is rolled back. Both partitions record the same transaction. Everything else goes through TransferComponentImpl.
+// The two partitions commit one after the other, in between a reader of both can see the debit without the credit,
+// and a sum over all accounts is short by the amount. A reader that needs both sides at once starts a DB
+// transaction on both accounts, which waits until the transfer is done.
+public class PartitionedTransferComponentImpl implements TransferComponent {
+	private final PartitionedStorage storage;
+	private final TransferComponentImpl transfers;
+	private final TransferComponentImpl[] localTransfers;
+
+	public PartitionedTransferComponentImpl(PartitionedStorage storage) {
+		this.storage = storage;
+		this.transfers = new TransferComponentImpl(storage);
+		this.localTransfers = new TransferComponentImpl[storage.getPartitionCount()];
+
+		for (int i = 0; i < localTransfers.length; i++) {
+			if (storage.getPartition(i) != null) {
+				localTransfers[i] = new TransferComponentImpl(storage.getPartition(i));
+			}
+		}
+	}
+
+	@Override
+	public Transaction transferMoney(Long fromAccountId, Long toAccountId, Money amount)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		int source = storage.partitionOf(fromAccountId);
+		int target = storage.partitionOf(toAccountId);
+
+		if (source == target) {
+			return localTransfers[source].transferMoney(fromAccountId, toAccountId, amount);
+		}
+
+		Storage debited = storage.getPartition(source);
+		Storage credited = storage.getPartition(target);
+		Transaction transaction = ImmutableTransaction
+				.builder()
+				.fromAccountId(fromAccountId)
+				.toAccountId(toAccountId)
+				.amount(amount)
+				.timeStamp(Instant.now())
+				.build();
+
+		// Preparing in partition order keeps two opposite transfers from waiting on each other.
+		if (source < target) {
+			prepareDebit(debited, transaction);
+
+			try {
+				prepareCredit(credited, transaction);
+			} catch (AccountIsNotAvailable | RuntimeException e) {
+				debited.rollbackDbTransaction();
+				throw e;
+			}
+		} else {
+			prepareCredit(credited, transaction);
+
+			try {
+				prepareDebit(debited, transaction);
+			} catch (NotSufficientBalance | RuntimeException e) {
+				credited.rollbackDbTransaction();
+				throw e;
+			}
+		}
+
+		debited.commitDbTransaction();
+		credited.commitDbTransaction();
+
+		return transaction;
+	}
+
+	// A failed prepare rolls back its own DB transaction, a successful one leaves it open for the coordinator.
+	private void prepareDebit(Storage partition, Transaction transaction) throws NotSufficientBalance {
+		Long fromAccountId = transaction.getFromAccountId();
+		Money amount = transaction.getAmount();
+		partition.startDbTransaction(fromAccountId);
+
+		try {
+			Money newBalance = partition
+					.getAccount(fromAccountId)
+					.filter(account -> account.getStatus().equals(Account.AccountStatus.ACTIVE))
+					.map(Account::getBalance)
+					.filter(balance -> balance.compareTo(amount) >= 0)
+					.map(balance -> balance.subtract(amount))
+					.getOrElseThrow(NotSufficientBalance::new);
+
+			partition.recordTransaction(transaction);
+			partition.setAccount(fromAccountId, newBalance);
+		} catch (NotSufficientBalance | RuntimeException e) {
+			partition.rollbackDbTransaction();
+			throw e;
+		}
+	}
+
+	private void prepareCredit(Storage partition, Transaction transaction) throws AccountIsNotAvailable {
+		Long toAccountId = transaction.getToAccountId();
+		partition.startDbTransaction(toAccountId);
+
+		try {
+			Money newBalance = partition
+					.getAccount(toAccountId)
+					.filter(account -> account.getStatus().equals(Account.AccountStatus.ACTIVE))
+					.map(Account::getBalance)
+					.map(balance -> balance.add(transaction.getAmount()))
+					.getOrElseThrow(AccountIsNotAvailable::new);
+
+			partition.recordTransaction(transaction);
+			partition.setAccount(toAccountId, newBalance);
+		} catch (AccountIsNotAvailable | RuntimeException e) {
+			partition.rollbackDbTransaction();
+			throw e;
+		}
+	}
+
+	@Override
+	public List<TransferResult> transferMoney(List<TransactionBody> transfers, BatchTransferBody.BatchMode mode)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		return this.transfers.transferMoney(transfers, mode);
+	}
+
+	@Override
+	public Account getAccount(Long accountId) throws AccountIsNotAvailable {
+		return transfers.getAccount(accountId);
+	}
+
+	@Override
+	public List<Transaction> getTransactionsForAccount(Long accountId) {
+		return transfers.getTransactionsForAccount(accountId);
+	}
+
+	@Override
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		return transfers.getTransactionsForAccount(accountId, query);
+	}
+
+	@Override
+	public Account createAccount(Money initialBalance) {
+		return transfers.createAccount(initialBalance);
+	}
+
+	@Override
+	public Account closeAccount(Long accountId) throws AccountIsNotAvailable, BalanceIsNotZero {
+		return transfers.closeAccount(accountId);
+	}
+}
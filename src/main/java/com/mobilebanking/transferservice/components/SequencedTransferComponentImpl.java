@@ -0,0 +1,302 @@
+package com.mobilebanking.transferservice.components;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import com.mobilebanking.transferservice.dtos.TransferResult;
+import com.mobilebanking.transferservice.services.Storage;
+import io.vavr.collection.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+// Callers publish every write into a ring buffer and a single thread applies them, so the storage lock
+// is never contended. Transfers that arrive together share one DB transaction, which lets a durable storage
+// write them with a single fsync, and their futures complete once it is committed. Reads skip the ring.
+public class SequencedTransferComponentImpl implements TransferComponent, Closeable {
+	private static final Logger log = LoggerFactory.getLogger(SequencedTransferComponentImpl.class);
+
+	private static final EventTranslatorOneArg<CommandEvent, Object> PUBLISH =
+			(event, sequence, command) -> event.command = command;
+
+	private final Storage storage;
+	private final TransferComponentImpl transfers;
+	private final Disruptor<CommandEvent> disruptor;
+	private final RingBuffer<CommandEvent> ringBuffer;
+
+	// The ring size must be a power of two.
+	public SequencedTransferComponentImpl(Storage storage, int ringSize) {
+		this.storage = storage;
+		this.transfers = new TransferComponentImpl(storage);
+
+		disruptor = new Disruptor<>(CommandEvent::new, ringSize, runnable -> {
+			Thread thread = new Thread(runnable, "transfer-sequencer");
+			thread.setDaemon(true);
+			return thread;
+		}, ProducerType.MULTI, new BlockingWaitStrategy());
+		Sequencer sequencer = new Sequencer();
+		disruptor.handleEventsWith(sequencer);
+		disruptor.setDefaultExceptionHandler(sequencer);
+		ringBuffer = disruptor.start();
+	}
+
+	@Override
+	public Transaction transferMoney(Long fromAccountId, Long toAccountId, Money amount)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		return await(transferMoneyAsync(fromAccountId, toAccountId, amount),
+				NotSufficientBalance.class, AccountIsNotAvailable.class);
+	}
+
+	@Override
+	public CompletableFuture<Transaction> transferMoneyAsync(Long fromAccountId, Long toAccountId, Money amount) {
+		Transfer transfer = new Transfer(fromAccountId, toAccountId, amount);
+		ringBuffer.publishEvent(PUBLISH, transfer);
+
+		return transfer.result;
+	}
+
+	@Override
+	public List<TransferResult> transferMoney(List<TransactionBody> transfers, BatchTransferBody.BatchMode mode)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		return await(submit(() -> this.transfers.transferMoney(transfers, mode)),
+				NotSufficientBalance.class, AccountIsNotAvailable.class);
+	}
+
+	@Override
+	public Account getAccount(Long accountId) throws AccountIsNotAvailable {
+		return transfers.getAccount(accountId);
+	}
+
+	@Override
+	public List<Transaction> getTransactionsForAccount(Long accountId) {
+		return transfers.getTransactionsForAccount(accountId);
+	}
+
+	@Override
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		return transfers.getTransactionsForAccount(accountId, query);
+	}
+
+	@Override
+	public Account createAccount(Money initialBalance) {
+		return await(submit(() -> transfers.createAccount(initialBalance)),
+				RuntimeException.class, RuntimeException.class);
+	}
+
+	@Override
+	public Account closeAccount(Long accountId) throws AccountIsNotAvailable, BalanceIsNotZero {
+		return await(submit(() -> transfers.closeAccount(accountId)),
+				AccountIsNotAvailable.class, BalanceIsNotZero.class);
+	}
+
+	// Applies everything already published, then stops the sequencer thread.
+	@Override
+	public void close() {
+		disruptor.shutdown();
+	}
+
+	private <T> CompletableFuture<T> submit(Callable<T> action) {
+		Task<T> task = new Task<>(action);
+		ringBuffer.publishEvent(PUBLISH, task);
+
+		return task.result;
+	}
+
+	// Rethrows what the sequencer thread threw, including the checked exceptions the caller declares.
+	private static <T, A extends Exception, B extends Exception> T await(CompletableFuture<T> result,
+			Class<A> first, Class<B> second) throws A, B {
+		try {
+			return result.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+
+			if (first.isInstance(cause)) {
+				throw first.cast(cause);
+			}
+
+			if (second.isInstance(cause)) {
+				throw second.cast(cause);
+			}
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			throw e;
+		}
+	}
+
+	// Transfers are held until the end of the ring's batch, so the shared DB transaction can lock just their
+	// accounts. An exception escaping a handler fails the commands it left behind instead of stopping the thread.
+	private class Sequencer implements EventHandler<CommandEvent>, ExceptionHandler<CommandEvent> {
+		// Transfers published since the last shared DB transaction.
+		private final ArrayList<Transfer> pending = new ArrayList<>();
+		private Object current;
+
+		@Override
+		public void onEvent(CommandEvent event, long sequence, boolean endOfBatch) {
+			current = event.command;
+			event.command = null;
+
+			if (current instanceof Transfer) {
+				pending.add((Transfer) current);
+			} else {
+				// Anything else starts DB transactions of its own.
+				applyPending();
+				((Task<?>) current).run();
+			}
+
+			if (endOfBatch) {
+				applyPending();
+			}
+
+			current = null;
+		}
+
+		private void applyPending() {
+			for (int from = 0; from < pending.size(); ) {
+				from = apply(from);
+			}
+
+			pending.clear();
+		}
+
+		// Applies the pending transfers from the given one on in a shared DB transaction, returns where it stopped.
+		private int apply(int from) {
+			try {
+				storage.startDbTransaction(pending
+						.subList(from, pending.size())
+						.stream()
+						.flatMap(transfer -> Stream.of(transfer.fromAccountId, transfer.toAccountId))
+						.distinct()
+						.toArray(Long[]::new));
+			} catch (RuntimeException e) {
+				fail(from, e);
+				return pending.size();
+			}
+
+			for (int i = from; i < pending.size(); i++) {
+				Transfer transfer = pending.get(i);
+
+				try {
+					transfer.transaction = transfers
+							.applyTransfer(transfer.fromAccountId, transfer.toAccountId, transfer.amount);
+				} catch (NotSufficientBalance | AccountIsNotAvailable | RuntimeException e) {
+					// A refused transfer may have written part of itself, so the shared DB transaction is dropped.
+					// The transfers up to it are applied one by one, the rest share a new one.
+					storage.rollbackDbTransaction();
+
+					for (int alone = from; alone <= i; alone++) {
+						applyAlone(pending.get(alone));
+					}
+
+					return i + 1;
+				}
+			}
+
+			try {
+				storage.commitDbTransaction();
+
+				for (int i = from; i < pending.size(); i++) {
+					pending.get(i).result.complete(pending.get(i).transaction);
+				}
+			} catch (RuntimeException e) {
+				fail(from, e);
+			}
+
+			return pending.size();
+		}
+
+		private void fail(int from, Throwable failure) {
+			for (int i = from; i < pending.size(); i++) {
+				pending.get(i).result.completeExceptionally(failure);
+			}
+		}
+
+		private void applyAlone(Transfer transfer) {
+			try {
+				transfer.result.complete(transfers
+						.transferMoney(transfer.fromAccountId, transfer.toAccountId, transfer.amount));
+			} catch (NotSufficientBalance | AccountIsNotAvailable | RuntimeException e) {
+				transfer.result.completeExceptionally(e);
+			}
+		}
+
+		@Override
+		public void handleEventException(Throwable failure, long sequence, CommandEvent event) {
+			if (current instanceof Task) {
+				((Task<?>) current).result.completeExceptionally(failure);
+			}
+
+			fail(0, failure);
+			pending.clear();
+			current = null;
+		}
+
+		@Override
+		public void handleOnStartException(Throwable failure) {
+			log.error("Transfer sequencer failed to start", failure);
+		}
+
+		@Override
+		public void handleOnShutdownException(Throwable failure) {
+			log.error("Transfer sequencer failed to stop", failure);
+		}
+	}
+
+	private static class CommandEvent {
+		private Object command;
+	}
+
+	private static class Transfer {
+		private final Long fromAccountId;
+		private final Long toAccountId;
+		private final Money amount;
+		private final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+		private Transaction transaction;
+
+		private Transfer(Long fromAccountId, Long toAccountId, Money amount) {
+			this.fromAccountId = fromAccountId;
+			this.toAccountId = toAccountId;
+			this.amount = amount;
+		}
+	}
+
+	private static class Task<T> {
+		private final Callable<T> action;
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+
+		private Task(Callable<T> action) {
+			this.action = action;
+		}
+
+		private void run() {
+			try {
+				result.complete(action.call());
+			} catch (Exception e) {
+				result.completeExceptionally(e);
+			}
+		}
+	}
+}
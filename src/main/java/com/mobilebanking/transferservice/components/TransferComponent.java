@@ -4,20 +4,47 @@ import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvail
 import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
 import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
 import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
+import com.mobilebanking.transferservice.dtos.Money;
 import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import com.mobilebanking.transferservice.dtos.TransferResult;
 import io.vavr.collection.List;
 
-import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
 
 public interface TransferComponent {
-	Transaction transferMoney(Long fromAccountId, Long toAccountId, BigDecimal amount)
+	Transaction transferMoney(Long fromAccountId, Long toAccountId, Money amount)
+			throws NotSufficientBalance, AccountIsNotAvailable;
+
+	// Completes once the transfer is committed, or exceptionally with the reason it was refused.
+	default CompletableFuture<Transaction> transferMoneyAsync(Long fromAccountId, Long toAccountId, Money amount) {
+		CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+		try {
+			result.complete(transferMoney(fromAccountId, toAccountId, amount));
+		} catch (NotSufficientBalance | AccountIsNotAvailable | RuntimeException e) {
+			result.completeExceptionally(e);
+		}
+
+		return result;
+	}
+
+	// All accounts of the batch are locked once. In ATOMIC mode the first failing transfer is thrown
+	// and nothing is applied, in BEST_EFFORT mode it is reported in its result.
+	List<TransferResult> transferMoney(List<TransactionBody> transfers, BatchTransferBody.BatchMode mode)
 			throws NotSufficientBalance, AccountIsNotAvailable;
 
 	Account getAccount(Long accountId) throws AccountIsNotAvailable;
 
 	List<Transaction> getTransactionsForAccount(Long accountId);
 
-	Account createAccount(BigDecimal initialBalance);
+	TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query);
+
+	Account createAccount(Money initialBalance);
 
 	Account closeAccount(Long accountToDelete) throws AccountIsNotAvailable, BalanceIsNotZero;
 }
@@ -4,13 +4,18 @@ import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
 import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
 import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
 import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
+import com.mobilebanking.transferservice.dtos.Money;
 import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import com.mobilebanking.transferservice.dtos.TransferResult;
 import com.mobilebanking.transferservice.services.Storage;
 import io.vavr.collection.List;
 import io.vavr.control.Option;
 
 import javax.inject.Inject;
-import java.math.BigDecimal;
 
 public class TransferComponentImpl implements TransferComponent {
 	private Storage storage;
@@ -21,38 +26,113 @@ public class TransferComponentImpl implements TransferComponent {
 	}
 
 	@Override
-	public Transaction transferMoney(Long fromAccountId, Long toAccountId, BigDecimal amount)
+	public Transaction transferMoney(Long fromAccountId, Long toAccountId, Money amount)
 			throws NotSufficientBalance, AccountIsNotAvailable {
-		storage.startDbTransaction();
+		if (storage.isHotAccount(toAccountId)) {
+			storage.startDbTransaction(fromAccountId);
+		} else {
+			storage.startDbTransaction(fromAccountId, toAccountId);
+		}
+
+		Transaction transaction;
+
+		try {
+			transaction = applyTransfer(fromAccountId, toAccountId, amount);
+		} catch (NotSufficientBalance | AccountIsNotAvailable | RuntimeException e) {
+			storage.rollbackDbTransaction();
+			throw e;
+		}
+
+		storage.commitDbTransaction();
+
+		return transaction;
+	}
+
+	@Override
+	public List<TransferResult> transferMoney(List<TransactionBody> transfers, BatchTransferBody.BatchMode mode)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		// Starting a DB transaction without accounts would lock the whole storage.
+		if (transfers.isEmpty()) {
+			return List.empty();
+		}
+
+		storage.startDbTransaction(transfers
+				.flatMap(transfer -> List.of(transfer.getFromAccountId(), transfer.getToAccountId())
+						.filter(accountId -> accountId.equals(transfer.getFromAccountId()) || !storage.isHotAccount(accountId)))
+				.distinct()
+				.toJavaArray(Long.class));
+
+		List<TransferResult> results = List.empty();
+
+		try {
+			for (TransactionBody transfer : transfers) {
+				results = results.prepend(applyBatchItem(transfer, mode));
+			}
+		} catch (NotSufficientBalance | AccountIsNotAvailable | RuntimeException e) {
+			storage.rollbackDbTransaction();
+			throw e;
+		}
+
+		storage.commitDbTransaction();
 
+		return results.reverse();
+	}
+
+	private TransferResult applyBatchItem(TransactionBody transfer, BatchTransferBody.BatchMode mode)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		try {
+			return TransferResult.success(
+					applyTransfer(transfer.getFromAccountId(), transfer.getToAccountId(), transfer.getAmount()));
+		} catch (NotSufficientBalance | AccountIsNotAvailable e) {
+			if (mode == BatchTransferBody.BatchMode.ATOMIC) {
+				throw e;
+			}
+
+			return TransferResult.failure(e.getMessage());
+		} catch (ArithmeticException e) {
+			if (mode == BatchTransferBody.BatchMode.ATOMIC) {
+				throw e;
+			}
+
+			return TransferResult.failure("Amount is out of range");
+		}
+	}
+
+	// Checks both accounts before writing anything, so a failed transfer leaves the DB transaction untouched.
+	// The caller holds a DB transaction covering both accounts, except a hot target. Its credit is reserved
+	// before the other writes, it is the only step that can still be refused.
+	Transaction applyTransfer(Long fromAccountId, Long toAccountId, Money amount)
+			throws NotSufficientBalance, AccountIsNotAvailable {
 		Option<Account> fromAccount = storage.getAccount(fromAccountId);
 		Option<Account> toAccount = storage.getAccount(toAccountId);
 
-		BigDecimal newBalanceOnSource = fromAccount
+		Money newBalanceOnSource = fromAccount
 				.filter(account -> account.getStatus().equals(Account.AccountStatus.ACTIVE))
 				.map(Account::getBalance)
 				.filter(balance -> hasEnoughBalance(balance, amount))
 				.map(balance -> balance.subtract(amount))
-				.onEmpty(storage::rollbackDbTransaction)
 				.getOrElseThrow(NotSufficientBalance::new);
 
-		BigDecimal newBalanceOnTarget = toAccount
+		Money newBalanceOnTarget = toAccount
 				.filter(account -> account.getStatus().equals(Account.AccountStatus.ACTIVE))
 				.map(Account::getBalance)
 				.map(balance -> balance.add(amount))
-				.onEmpty(storage::rollbackDbTransaction)
 				.getOrElseThrow(AccountIsNotAvailable::new);
 
+		// A hot target is not locked, its balance may have moved since it was read.
+		if (storage.isHotAccount(toAccountId)) {
+			storage.creditAccount(toAccountId, amount).getOrElseThrow(AccountIsNotAvailable::new);
+		} else {
+			storage.setAccount(toAccountId, newBalanceOnTarget);
+		}
+
 		Transaction transaction = storage.createTransaction(fromAccountId, toAccountId, amount);
 		storage.setAccount(fromAccountId, newBalanceOnSource);
-		storage.setAccount(toAccountId, newBalanceOnTarget);
-
-		storage.commitDbTransaction();
 
 		return transaction;
 	}
 
-	private boolean hasEnoughBalance(BigDecimal balance, BigDecimal transactionAmount) {
+	private boolean hasEnoughBalance(Money balance, Money transactionAmount) {
 		return balance.compareTo(transactionAmount) >= 0;
 	}
 
@@ -67,28 +147,36 @@ public class TransferComponentImpl implements TransferComponent {
 	}
 
 	@Override
-	public Account createAccount(BigDecimal initialBalance) {
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		return storage.getTransactionsForAccount(accountId, query);
+	}
+
+	@Override
+	public Account createAccount(Money initialBalance) {
 		return storage.createAccount(initialBalance);
 	}
 
 	@Override
 	public Account closeAccount(Long accountId) throws AccountIsNotAvailable, BalanceIsNotZero {
-		storage.startDbTransaction();
-
-		BigDecimal currentBalance = storage
-				.getAccount(accountId)
-				.filter(account -> account.getStatus().equals(Account.AccountStatus.ACTIVE))
-				.map(Account::getBalance)
-				.onEmpty(storage::rollbackDbTransaction)
-				.getOrElseThrow(AccountIsNotAvailable::new);
+		storage.startDbTransaction(accountId);
 
 		Account closedAccount;
 
-		if(currentBalance.equals(BigDecimal.ZERO)) {
+		try {
+			Money currentBalance = storage
+					.getAccount(accountId)
+					.filter(account -> account.getStatus().equals(Account.AccountStatus.ACTIVE))
+					.map(Account::getBalance)
+					.getOrElseThrow(AccountIsNotAvailable::new);
+
+			if (!currentBalance.isZero()) {
+				throw new BalanceIsNotZero();
+			}
+
 			closedAccount = storage.closeAccount(accountId).getOrElseThrow(AccountIsNotAvailable::new);
-		} else {
+		} catch (AccountIsNotAvailable | BalanceIsNotZero | RuntimeException e) {
 			storage.rollbackDbTransaction();
-			throw new BalanceIsNotZero();
+			throw e;
 		}
 
 		storage.commitDbTransaction();
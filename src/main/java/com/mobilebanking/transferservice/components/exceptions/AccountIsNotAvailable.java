@@ -1,4 +1,14 @@
 package com.mobilebanking.transferservice.components.exceptions;
 
 public class AccountIsNotAvailable extends Exception {
+	// Shared by paths that refuse too many transfers to fill in a stack trace for each one.
+	public static final AccountIsNotAvailable STACKLESS = new AccountIsNotAvailable(false);
+
+	public AccountIsNotAvailable() {
+		super("Account is not available");
+	}
+
+	private AccountIsNotAvailable(boolean writableStackTrace) {
+		super("Account is not available", null, false, writableStackTrace);
+	}
 }
@@ -0,0 +1,8 @@
+package com.mobilebanking.transferservice.components.exceptions;
+
+// A batch moving money between accounts of several cluster nodes, which can't commit it together.
+public class BatchSpansNodes extends RuntimeException {
+	public BatchSpansNodes() {
+		super("A batch can only move money between accounts of one node");
+	}
+}
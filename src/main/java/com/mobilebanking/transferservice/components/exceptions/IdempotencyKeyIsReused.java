@@ -0,0 +1,8 @@
+package com.mobilebanking.transferservice.components.exceptions;
+
+// An Idempotency-Key came again with a different transfer than the one it is remembered for.
+public class IdempotencyKeyIsReused extends RuntimeException {
+	public IdempotencyKeyIsReused(String key) {
+		super("Idempotency-Key " + key + " was already used for a different transfer");
+	}
+}
@@ -0,0 +1,8 @@
+package com.mobilebanking.transferservice.components.exceptions;
+
+// The cluster node owning an account didn't answer, whether the request reached it is unknown.
+public class NodeIsNotAvailable extends RuntimeException {
+	public NodeIsNotAvailable(String node, Throwable cause) {
+		super("Node " + node + " is not available", cause);
+	}
+}
@@ -0,0 +1,8 @@
+package com.mobilebanking.transferservice.components.exceptions;
+
+// A write reached a replication follower, only the leader takes writes.
+public class NodeIsReadOnly extends RuntimeException {
+	public NodeIsReadOnly() {
+		super("A follower only serves reads, writes go to the leader");
+	}
+}
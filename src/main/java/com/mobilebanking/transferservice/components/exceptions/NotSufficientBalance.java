@@ -1,4 +1,14 @@
 package com.mobilebanking.transferservice.components.exceptions;
 
 public class NotSufficientBalance extends Exception {
+	// Shared by paths that refuse too many transfers to fill in a stack trace for each one.
+	public static final NotSufficientBalance STACKLESS = new NotSufficientBalance(false);
+
+	public NotSufficientBalance() {
+		super("Not sufficient balance");
+	}
+
+	private NotSufficientBalance(boolean writableStackTrace) {
+		super("Not sufficient balance", null, false, writableStackTrace);
+	}
 }
@@ -0,0 +1,51 @@
+package com.mobilebanking.transferservice.controllers;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Runs a handler on the given executor and gives Javalin a future of the response, so a server thread
+// is not held while the handler waits for locks. A handler that answers with a future of its own is chained.
+public class AsyncHandler implements Handler {
+	private final Handler handler;
+	private final Executor executor;
+
+	public AsyncHandler(Handler handler, Executor executor) {
+		this.handler = handler;
+		this.executor = executor;
+	}
+
+	@Override
+	public void handle(Context context) {
+		// Read while the server thread still owns the request, the handler gets the cached copy.
+		context.bodyAsBytes();
+
+		CompletableFuture<Object> response = new CompletableFuture<>();
+		context.result(response);
+
+		executor.execute(() -> {
+			try {
+				handler.handle(context);
+			} catch (Exception e) {
+				response.completeExceptionally(e);
+				return;
+			}
+
+			CompletableFuture<?> result = context.resultFuture();
+
+			if (result == null || result == response) {
+				response.complete(null);
+			} else {
+				result.whenComplete((value, failure) -> {
+					if (failure != null) {
+						response.completeExceptionally(failure);
+					} else {
+						response.complete(value);
+					}
+				});
+			}
+		});
+	}
+}
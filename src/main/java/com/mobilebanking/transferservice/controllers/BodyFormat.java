@@ -0,0 +1,47 @@
+package com.mobilebanking.transferservice.controllers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.vavr.collection.List;
+import io.vavr.jackson.datatype.VavrModule;
+
+// Encodings of request and response bodies. The binary ones carry the same fields as JSON but skip
+// number and string escaping on the way in and out, internal callers opt in through Content-Type and Accept.
+public enum BodyFormat {
+	JSON("application/json", new JsonFactory()),
+	SMILE("application/x-jackson-smile", new SmileFactory()),
+	CBOR("application/cbor", new CBORFactory());
+
+	private final String mediaType;
+	private final ObjectMapper objectMapper;
+
+	BodyFormat(String mediaType, JsonFactory factory) {
+		this.mediaType = mediaType;
+		this.objectMapper = new ObjectMapper(factory)
+				.findAndRegisterModules()
+				.registerModule(new VavrModule())
+				.registerModule(new JavaTimeModule());
+	}
+
+	public String getMediaType() {
+		return mediaType;
+	}
+
+	public ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+	// JSON unless the header names one of the binary formats.
+	public static BodyFormat of(String header) {
+		if (header == null) {
+			return JSON;
+		}
+
+		return List.of(SMILE, CBOR)
+				.find(format -> header.contains(format.mediaType))
+				.getOrElse(JSON);
+	}
+}
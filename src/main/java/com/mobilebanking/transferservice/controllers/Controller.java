@@ -5,13 +5,20 @@ import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
 import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
 import com.mobilebanking.transferservice.dtos.Account;
 import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransferResult;
 import io.vavr.collection.List;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
 public interface Controller<T> {
 	Account createAccount(T context);
 	Account closeAccount(T context) throws BalanceIsNotZero, AccountIsNotAvailable;
 	Account getAccount(T context) throws AccountIsNotAvailable;
 
 	Transaction transfer(T context) throws NotSufficientBalance, AccountIsNotAvailable;
+	CompletableFuture<Transaction> transferAsync(T context) throws NotSufficientBalance, AccountIsNotAvailable;
+	List<TransferResult> transferBatch(T context) throws NotSufficientBalance, AccountIsNotAvailable;
 	List<Transaction> getTransactions(T context);
+	void streamTransactions(T context) throws IOException;
 }
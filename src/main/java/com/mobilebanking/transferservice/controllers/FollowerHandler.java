@@ -0,0 +1,64 @@
+package com.mobilebanking.transferservice.controllers;
+
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Routes the requests a follower gets. Writes are redirected to the leader with 307, so the client repeats them
+// there with the same method and body. Reads are served from the replica, unless it is staler than the client
+// allows in X-Max-Staleness-Millis, then they are redirected as well.
+public class FollowerHandler implements Handler {
+	static final String MAX_STALENESS_HEADER = "X-Max-Staleness-Millis";
+
+	private final Handler reads;
+	private final String leaderUrl;
+	private final LongSupplier stalenessNanos;
+
+	private FollowerHandler(Handler reads, String leaderUrl, LongSupplier stalenessNanos) {
+		this.reads = reads;
+		this.leaderUrl = leaderUrl;
+		this.stalenessNanos = stalenessNanos;
+	}
+
+	public static Handler reads(Handler handler, String leaderUrl, LongSupplier stalenessNanos) {
+		return new FollowerHandler(handler, leaderUrl, stalenessNanos);
+	}
+
+	public static Handler writes(String leaderUrl) {
+		return new FollowerHandler(null, leaderUrl, () -> Long.MAX_VALUE);
+	}
+
+	@Override
+	public void handle(Context context) throws Exception {
+		if (reads != null && stalenessNanos.getAsLong() <= maxStalenessNanos(context)) {
+			reads.handle(context);
+			return;
+		}
+
+		redirectToLeader(context, leaderUrl);
+	}
+
+	// The same method and body at the leader.
+	public static void redirectToLeader(Context context, String leaderUrl) {
+		String query = context.queryString();
+		context.redirect(leaderUrl + context.path() + (query == null ? "" : "?" + query), 307);
+	}
+
+	// Any staleness without the header.
+	private static long maxStalenessNanos(Context context) {
+		String header = context.header(MAX_STALENESS_HEADER);
+
+		if (header == null) {
+			return Long.MAX_VALUE;
+		}
+
+		try {
+			return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(header.trim()));
+		} catch (NumberFormatException e) {
+			throw new BadRequestResponse(MAX_STALENESS_HEADER + " must be a number of milliseconds");
+		}
+	}
+}
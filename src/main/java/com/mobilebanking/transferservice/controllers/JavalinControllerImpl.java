@@ -1,34 +1,69 @@
 package com.mobilebanking.transferservice.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.mobilebanking.transferservice.components.TransferComponent;
 import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
 import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
 import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
 import com.mobilebanking.transferservice.dtos.AccountBody;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionQuery;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
 import com.mobilebanking.transferservice.dtos.TransactionBody;
 import com.mobilebanking.transferservice.dtos.Account;
 import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransferResult;
+import com.mobilebanking.transferservice.services.CaffeineIdempotencyCache;
+import com.mobilebanking.transferservice.services.IdempotencyCache;
+import io.javalin.core.util.Header;
+import io.javalin.http.BadRequestResponse;
 import io.javalin.http.Context;
+import io.vavr.collection.Iterator;
 import io.vavr.collection.List;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
 
 import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class JavalinControllerImpl implements Controller<Context> {
+	static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+	static final String NDJSON = "application/x-ndjson";
+
 	private TransferComponent transferComponent;
+	private IdempotencyCache idempotencyCache;
 
-	@Inject
 	public JavalinControllerImpl(TransferComponent transferComponent) {
+		this(transferComponent, new CaffeineIdempotencyCache(Duration.ofHours(24), 100_000));
+	}
+
+	@Inject
+	public JavalinControllerImpl(TransferComponent transferComponent, IdempotencyCache idempotencyCache) {
 		this.transferComponent = transferComponent;
+		this.idempotencyCache = idempotencyCache;
 	}
 
 	@Override
 	public Account createAccount(Context context) {
-		AccountBody body = context.bodyAsClass(AccountBody.class);
+		AccountBody body = body(context, AccountBody.class);
 
 		Account account = transferComponent.createAccount(body.getBalance());
 
 		context.status(201);
-		context.json(account);
+		respond(context, account);
 
 		return account;
 	}
@@ -40,7 +75,7 @@ public class JavalinControllerImpl implements Controller<Context> {
 		Account account = transferComponent.closeAccount(id);
 
 		context.status(202);
-		context.json(account);
+		respond(context, account);
 
 		return account;
 	}
@@ -52,33 +87,174 @@ public class JavalinControllerImpl implements Controller<Context> {
 		Account account = transferComponent.getAccount(id);
 
 		context.status(200);
-		context.json(account);
+		respond(context, account);
 
 		return account;
 	}
 
 	@Override
 	public Transaction transfer(Context context) throws NotSufficientBalance, AccountIsNotAvailable {
-		TransactionBody body = context.bodyAsClass(TransactionBody.class);
+		TransactionBody body = body(context, TransactionBody.class);
+		String idempotencyKey = context.header(IDEMPOTENCY_KEY_HEADER);
 
-		Transaction transaction = transferComponent
+		IdempotencyCache.Transfer transfer = () -> transferComponent
 				.transferMoney(body.getFromAccountId(), body.getToAccountId(), body.getAmount());
 
+		// A retry with a known key is answered from the cache and never reaches the storage.
+		Transaction transaction = idempotencyKey == null
+				? transfer.apply()
+				: idempotencyCache.getOrTransfer(idempotencyKey, body, transfer);
+
 		context.status(201);
-		context.json(transaction);
+		respond(context, transaction);
 
 		return transaction;
 	}
 
+	// Frees the request thread while the transfer waits for its turn, Javalin writes the response on completion.
+	@Override
+	public CompletableFuture<Transaction> transferAsync(Context context)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		if (context.header(IDEMPOTENCY_KEY_HEADER) != null) {
+			return CompletableFuture.completedFuture(transfer(context));
+		}
+
+		TransactionBody body = body(context, TransactionBody.class);
+
+		CompletableFuture<Transaction> transaction = transferComponent
+				.transferMoneyAsync(body.getFromAccountId(), body.getToAccountId(), body.getAmount());
+
+		context.status(201);
+		respondLater(context, transaction);
+
+		return transaction;
+	}
+
+	@Override
+	public List<TransferResult> transferBatch(Context context) throws NotSufficientBalance, AccountIsNotAvailable {
+		BatchTransferBody body = body(context, BatchTransferBody.class);
+
+		List<TransferResult> results = transferComponent.transferMoney(body.getTransfers(), body.getMode());
+
+		context.status(201);
+		respond(context, results);
+
+		return results;
+	}
+
 	@Override
 	public List<Transaction> getTransactions(Context context) {
 		Long id = Long.valueOf(context.pathParam("id"));
 
-		List<Transaction> transactions = transferComponent.getTransactionsForAccount(id);
+		TransactionPage page = transferComponent.getTransactionsForAccount(id, transactionQuery(context));
+
+		page.getNextCursor().forEach(cursor -> context.header(NEXT_CURSOR_HEADER, cursor.toString()));
+		List<Transaction> transactions = page.getTransactions().toList();
 
 		context.status(200);
-		context.json(transactions);
+		respond(context, transactions);
 
 		return transactions;
 	}
+
+	// Writes the page one transaction at a time straight to the response, so neither a list nor the whole
+	// JSON string is built, and a history of any size needs the same memory. Asking for NDJSON gets one
+	// transaction per line instead of an array.
+	@Override
+	public void streamTransactions(Context context) throws IOException {
+		Long id = Long.valueOf(context.pathParam("id"));
+
+		TransactionPage page = transferComponent.getTransactionsForAccount(id, transactionQuery(context));
+		String accept = context.header(Header.ACCEPT);
+		BodyFormat format = BodyFormat.of(accept);
+		boolean ndjson = format == BodyFormat.JSON && accept != null && accept.contains(NDJSON);
+
+		page.getNextCursor().forEach(cursor -> context.header(NEXT_CURSOR_HEADER, cursor.toString()));
+		context.status(200);
+		context.contentType(ndjson ? NDJSON : format.getMediaType());
+
+		ObjectMapper mapper = format.getObjectMapper();
+		// Jackson and Jetty buffer the output, flushing after every transaction would send a chunk for each.
+		ObjectWriter writer = mapper.writerFor(Transaction.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+		try (JsonGenerator generator = mapper.getFactory().createGenerator(context.res.getOutputStream())) {
+			generator.setRootValueSeparator(null);
+
+			if (!ndjson) {
+				generator.writeStartArray();
+			}
+
+			// Only the iterator refers to the page's transactions, so those written can be collected.
+			for (Iterator<Transaction> transactions = page.getTransactions().iterator(); transactions.hasNext(); ) {
+				writer.writeValue(generator, transactions.next());
+
+				if (ndjson) {
+					generator.writeRaw('\n');
+				}
+			}
+
+			if (!ndjson) {
+				generator.writeEndArray();
+			}
+		}
+	}
+
+	private <B> B body(Context context, Class<B> type) {
+		BodyFormat format = BodyFormat.of(context.contentType());
+
+		if (format == BodyFormat.JSON) {
+			return context.bodyAsClass(type);
+		}
+
+		return Try.of(() -> format.getObjectMapper().readValue(context.bodyAsBytes(), type))
+				.getOrElseThrow(() -> new BadRequestResponse("Couldn't deserialize body to " + type.getSimpleName()));
+	}
+
+	private void respond(Context context, Object value) {
+		BodyFormat format = BodyFormat.of(context.header(Header.ACCEPT));
+
+		if (format == BodyFormat.JSON) {
+			context.json(value);
+		} else {
+			context.contentType(format.getMediaType());
+			context.result(new ByteArrayInputStream(encode(format, value)));
+		}
+	}
+
+	private void respondLater(Context context, CompletableFuture<?> value) {
+		BodyFormat format = BodyFormat.of(context.header(Header.ACCEPT));
+
+		if (format == BodyFormat.JSON) {
+			context.json(value);
+		} else {
+			context.contentType(format.getMediaType());
+			context.result(value.thenApply(result -> new ByteArrayInputStream(encode(format, result))));
+		}
+	}
+
+	private static byte[] encode(BodyFormat format, Object value) {
+		try {
+			return format.getObjectMapper().writeValueAsBytes(value);
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private TransactionQuery transactionQuery(Context context) {
+		ImmutableTransactionQuery.Builder query = ImmutableTransactionQuery.builder();
+
+		queryParam(context, "limit", Integer::valueOf, limit -> limit > 0).forEach(query::limit);
+		queryParam(context, "cursor", Long::valueOf, cursor -> cursor >= 0).forEach(query::cursor);
+		queryParam(context, "from", Instant::parse, from -> true).forEach(query::fromTime);
+		queryParam(context, "to", Instant::parse, to -> true).forEach(query::toTime);
+
+		return query.build();
+	}
+
+	private <V> Option<V> queryParam(Context context, String name, Function<String, V> parser, Predicate<V> isValid) {
+		return Option.of(context.queryParam(name))
+				.map(value -> Try.of(() -> parser.apply(value))
+						.filter(isValid)
+						.getOrElseThrow(() -> new BadRequestResponse("Invalid query parameter: " + name)));
+	}
 }
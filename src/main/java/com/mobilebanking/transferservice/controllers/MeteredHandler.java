@@ -0,0 +1,37 @@
+package com.mobilebanking.transferservice.controllers;
+
+import com.mobilebanking.transferservice.metrics.LatencyHistogram;
+import com.mobilebanking.transferservice.metrics.Metrics;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+import java.util.concurrent.CompletableFuture;
+
+// Times a route until its response is ready, including the wait for a future the handler answered with.
+public class MeteredHandler implements Handler {
+	private final Handler handler;
+	private final LatencyHistogram duration;
+
+	public MeteredHandler(String route, Handler handler) {
+		this.handler = handler;
+		this.duration = Metrics.histogram("http_request_duration_seconds",
+				"Time to produce a response, by route", "route", route);
+	}
+
+	@Override
+	public void handle(Context context) throws Exception {
+		long start = System.nanoTime();
+
+		try {
+			handler.handle(context);
+		} finally {
+			CompletableFuture<?> response = context.resultFuture();
+
+			if (response == null) {
+				duration.recordSince(start);
+			} else {
+				response.whenComplete((value, failure) -> duration.recordSince(start));
+			}
+		}
+	}
+}
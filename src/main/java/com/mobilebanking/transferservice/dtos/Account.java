@@ -1,12 +1,9 @@
 package com.mobilebanking.transferservice.dtos;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.immutables.value.Value;
 
-import java.math.BigDecimal;
-
 @Value.Style(jdkOnly = true)
 @Value.Immutable
 @JsonSerialize(as = ImmutableAccount.class)
@@ -20,8 +17,7 @@ public interface Account {
 
 	Long getId();
 
-	@JsonFormat(shape = JsonFormat.Shape.STRING)
-	BigDecimal getBalance();
+	Money getBalance();
 
 	AccountStatus getStatus();
 }
@@ -0,0 +1,27 @@
+package com.mobilebanking.transferservice.dtos;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.vavr.collection.List;
+import org.immutables.value.Value;
+
+@Value.Style(jdkOnly = true)
+@Value.Immutable
+@JsonSerialize(as = ImmutableBatchTransferBody.class)
+@JsonDeserialize(as = ImmutableBatchTransferBody.class)
+public interface BatchTransferBody {
+
+	enum BatchMode {
+		// Every transfer is applied or none is, the first failing one fails the whole batch.
+		ATOMIC,
+		// Failing transfers are skipped and reported, the others are applied.
+		BEST_EFFORT
+	}
+
+	List<TransactionBody> getTransfers();
+
+	@Value.Default
+	default BatchMode getMode() {
+		return BatchMode.ATOMIC;
+	}
+}
@@ -0,0 +1,140 @@
+package com.mobilebanking.transferservice.dtos;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+
+// An amount kept as a long number of minor units and the number of decimal places they have,
+// the same pair BigDecimal uses, so "10" and "100.50" are written back exactly as they came in.
+// Arithmetic throws ArithmeticException instead of silently overflowing.
+public final class Money implements Comparable<Money> {
+	public static final Money ZERO = new Money(0, 0);
+
+	private static final int MAX_SCALE = 18;
+	private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+
+		for (int i = 1; i <= MAX_SCALE; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final long unscaled;
+	private final int scale;
+
+	private Money(long unscaled, int scale) {
+		this.unscaled = unscaled;
+		this.scale = scale;
+	}
+
+	public static Money valueOf(long units) {
+		return valueOf(units, 0);
+	}
+
+	public static Money valueOf(long unscaled, int scale) {
+		if (scale < 0 || scale > MAX_SCALE) {
+			throw new ArithmeticException("Scale out of range: " + scale);
+		}
+
+		return new Money(unscaled, scale);
+	}
+
+	@JsonCreator
+	public static Money of(BigDecimal value) {
+		BigDecimal normalized = value.scale() < 0 ? value.setScale(0) : value;
+
+		if (normalized.scale() > MAX_SCALE) {
+			normalized = normalized.stripTrailingZeros();
+		}
+
+		return valueOf(normalized.unscaledValue().longValueExact(), normalized.scale());
+	}
+
+	public long getUnscaled() {
+		return unscaled;
+	}
+
+	public int getScale() {
+		return scale;
+	}
+
+	public boolean isZero() {
+		return unscaled == 0;
+	}
+
+	public Money add(Money other) {
+		if (scale == other.scale) {
+			return new Money(Math.addExact(unscaled, other.unscaled), scale);
+		}
+
+		int common = Math.max(scale, other.scale);
+
+		return new Money(Math.addExact(rescale(common), other.rescale(common)), common);
+	}
+
+	public Money subtract(Money other) {
+		if (scale == other.scale) {
+			return new Money(Math.subtractExact(unscaled, other.unscaled), scale);
+		}
+
+		int common = Math.max(scale, other.scale);
+
+		return new Money(Math.subtractExact(rescale(common), other.rescale(common)), common);
+	}
+
+	@Override
+	public int compareTo(Money other) {
+		if (scale == other.scale) {
+			return Long.compare(unscaled, other.unscaled);
+		}
+
+		int common = Math.max(scale, other.scale);
+
+		try {
+			return Long.compare(rescale(common), other.rescale(common));
+		} catch (ArithmeticException e) {
+			return toBigDecimal().compareTo(other.toBigDecimal());
+		}
+	}
+
+	public BigDecimal toBigDecimal() {
+		return BigDecimal.valueOf(unscaled, scale);
+	}
+
+	// Unlike BigDecimal, 100.0 and 100 are equal.
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Money && compareTo((Money) other) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		long stripped = unscaled;
+		int strippedScale = scale;
+
+		while (strippedScale > 0 && stripped % 10 == 0) {
+			stripped /= 10;
+			strippedScale--;
+		}
+
+		return 31 * Long.hashCode(stripped) + strippedScale;
+	}
+
+	@JsonValue
+	@Override
+	public String toString() {
+		return toBigDecimal().toString();
+	}
+
+	// The same amount as a number of minor units at a scale no lower than its own, for arithmetic on raw balances.
+	public static long rescale(long unscaled, int scale, int newScale) {
+		return Math.multiplyExact(unscaled, POWERS_OF_TEN[newScale - scale]);
+	}
+
+	private long rescale(int newScale) {
+		return rescale(unscaled, scale, newScale);
+	}
+}
@@ -5,7 +5,6 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.immutables.value.Value;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 
 @Value.Style(jdkOnly = true)
@@ -20,6 +19,5 @@ public interface Transaction {
 
 	Long getToAccountId();
 
-	@JsonFormat(shape = JsonFormat.Shape.STRING)
-	BigDecimal getAmount();
+	Money getAmount();
 }
@@ -1,12 +1,9 @@
 package com.mobilebanking.transferservice.dtos;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.immutables.value.Value;
 
-import java.math.BigDecimal;
-
 @Value.Style(jdkOnly = true)
 @Value.Immutable
 @JsonSerialize(as = ImmutableTransactionBody.class)
@@ -16,6 +13,5 @@ public interface TransactionBody {
 
 	Long getToAccountId();
 
-	@JsonFormat(shape = JsonFormat.Shape.STRING)
-	BigDecimal getAmount();
+	Money getAmount();
 }
@@ -0,0 +1,16 @@
+package com.mobilebanking.transferservice.dtos;
+
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
+import org.immutables.value.Value;
+
+@Value.Style(jdkOnly = true)
+@Value.Immutable
+public interface TransactionPage {
+	// A view of the storage index, not a copy, so a page costs the same whatever its size. Storages that build
+	// transactions from their index do it lazily, each one as it is reached, and one already passed can be
+	// collected unless the sequence is still referenced from before it.
+	Seq<Transaction> getTransactions();
+
+	Option<Long> getNextCursor();
+}
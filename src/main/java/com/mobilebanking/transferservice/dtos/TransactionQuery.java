@@ -0,0 +1,34 @@
+package com.mobilebanking.transferservice.dtos;
+
+import org.immutables.value.Value;
+
+import java.time.Instant;
+
+@Value.Style(jdkOnly = true)
+@Value.Immutable
+public interface TransactionQuery {
+	static TransactionQuery all() {
+		return ImmutableTransactionQuery.builder().build();
+	}
+
+	@Value.Default
+	default long getCursor() {
+		return 0L;
+	}
+
+	@Value.Default
+	default int getLimit() {
+		return Integer.MAX_VALUE;
+	}
+
+	// Not getFrom(), which would clash with the from() copy method of the generated builder.
+	@Value.Default
+	default Instant getFromTime() {
+		return Instant.MIN;
+	}
+
+	@Value.Default
+	default Instant getToTime() {
+		return Instant.MAX;
+	}
+}
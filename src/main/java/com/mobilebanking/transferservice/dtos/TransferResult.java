@@ -0,0 +1,24 @@
+package com.mobilebanking.transferservice.dtos;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.vavr.control.Option;
+import org.immutables.value.Value;
+
+@Value.Style(jdkOnly = true)
+@Value.Immutable
+@JsonSerialize(as = ImmutableTransferResult.class)
+@JsonDeserialize(as = ImmutableTransferResult.class)
+public interface TransferResult {
+	Option<Transaction> getTransaction();
+
+	Option<String> getError();
+
+	static TransferResult success(Transaction transaction) {
+		return ImmutableTransferResult.builder().transaction(Option.of(transaction)).error(Option.none()).build();
+	}
+
+	static TransferResult failure(String error) {
+		return ImmutableTransferResult.builder().transaction(Option.none()).error(Option.of(error)).build();
+	}
+}
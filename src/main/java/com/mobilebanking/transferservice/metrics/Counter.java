@@ -0,0 +1,16 @@
+package com.mobilebanking.transferservice.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Striped, so concurrent increments do not contend on one cache line.
+public class Counter {
+	private final LongAdder value = new LongAdder();
+
+	public void increment() {
+		value.increment();
+	}
+
+	public long value() {
+		return value.sum();
+	}
+}
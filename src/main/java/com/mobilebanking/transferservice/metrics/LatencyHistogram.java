@@ -0,0 +1,86 @@
+package com.mobilebanking.transferservice.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear buckets over nanoseconds in the HdrHistogram manner, every power of two is split into
+// SUB_BUCKETS linear buckets, so a quantile is off by at most 1 / SUB_BUCKETS of its value.
+// Recording is one CAS on the bucket and two striped adds, there are no locks.
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Anything longer than about 18 minutes lands in the last bucket.
+	private static final int MAX_EXPONENT = 40;
+	private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sumNanos = new LongAdder();
+
+	public void record(long nanos) {
+		long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+
+		counts.getAndIncrement(indexOf(value));
+		count.increment();
+		sumNanos.add(value);
+	}
+
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	public long count() {
+		return count.sum();
+	}
+
+	public double sum(TimeUnit unit) {
+		return (double) sumNanos.sum() / unit.toNanos(1);
+	}
+
+	// The highest value of the bucket holding the quantile, 0 when nothing was recorded.
+	public long quantileNanos(double quantile) {
+		long[] snapshot = new long[counts.length()];
+		long total = 0;
+
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+
+		for (int i = 0; i < snapshot.length; i++) {
+			seen += snapshot[i];
+
+			if (seen >= rank && snapshot[i] > 0) {
+				return highestValueOf(i);
+			}
+		}
+
+		return 0;
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int shift = index / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+
+		return lowest + (1L << shift) - 1;
+	}
+}
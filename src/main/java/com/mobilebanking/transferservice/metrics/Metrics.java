@@ -0,0 +1,120 @@
+package com.mobilebanking.transferservice.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+// Process-wide registry, rendered in the Prometheus text format at /metrics. Callers keep the returned
+// series in fields, so the hot path never touches the registry. Labels are given as name, value pairs.
+public final class Metrics {
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+	private static final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+	private Metrics() {
+	}
+
+	public static LatencyHistogram histogram(String name, String help, String... labels) {
+		return (LatencyHistogram) family(name, help, "summary").series
+				.computeIfAbsent(labelsOf(labels), key -> new LatencyHistogram());
+	}
+
+	public static Counter counter(String name, String help, String... labels) {
+		return (Counter) family(name, help, "counter").series
+				.computeIfAbsent(labelsOf(labels), key -> new Counter());
+	}
+
+	// Read at every scrape. Registering the same series again replaces its source, e.g. for a restarted component.
+	public static void gauge(String name, String help, DoubleSupplier value, String... labels) {
+		family(name, help, "gauge").series.put(labelsOf(labels), value);
+	}
+
+	public static String scrape() {
+		StringBuilder text = new StringBuilder();
+
+		families.forEach((name, family) -> {
+			text.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+			text.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+
+			family.series.forEach((labels, series) -> {
+				if (series instanceof Counter) {
+					sample(text, name, labels, ((Counter) series).value());
+				} else if (series instanceof DoubleSupplier) {
+					sample(text, name, labels, gaugeValue(((DoubleSupplier) series).getAsDouble()));
+				} else {
+					summary(text, name, labels, (LatencyHistogram) series);
+				}
+			});
+		});
+
+		return text.toString();
+	}
+
+	private static void summary(StringBuilder text, String name, String labels, LatencyHistogram histogram) {
+		for (double quantile : QUANTILES) {
+			String quantileLabel = "quantile=\"" + quantile + "\"";
+
+			sample(text, name, labels.isEmpty() ? quantileLabel : labels + "," + quantileLabel,
+					(double) histogram.quantileNanos(quantile) / TimeUnit.SECONDS.toNanos(1));
+		}
+
+		sample(text, name + "_sum", labels, histogram.sum(TimeUnit.SECONDS));
+		sample(text, name + "_count", labels, histogram.count());
+	}
+
+	private static Object gaugeValue(double value) {
+		if (Double.isInfinite(value)) {
+			return value > 0 ? "+Inf" : "-Inf";
+		}
+
+		return Double.isNaN(value) ? "NaN" : value;
+	}
+
+	private static void sample(StringBuilder text, String name, String labels, Object value) {
+		text.append(name);
+
+		if (!labels.isEmpty()) {
+			text.append('{').append(labels).append('}');
+		}
+
+		text.append(' ').append(value).append('\n');
+	}
+
+	private static Family family(String name, String help, String type) {
+		Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+
+		if (!family.type.equals(type)) {
+			throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+		}
+
+		return family;
+	}
+
+	private static String labelsOf(String[] labels) {
+		StringBuilder text = new StringBuilder();
+
+		for (int i = 0; i + 1 < labels.length; i += 2) {
+			if (text.length() > 0) {
+				text.append(',');
+			}
+
+			text.append(labels[i]).append("=\"")
+					.append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+					.append('"');
+		}
+
+		return text.toString();
+	}
+
+	private static class Family {
+		private final String help;
+		private final String type;
+		private final Map<String, Object> series = new ConcurrentSkipListMap<>();
+
+		private Family(String help, String type) {
+			this.help = help;
+			this.type = type;
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package com.mobilebanking.transferservice.replication;
+
+// The replication stream. A follower opens it with [epoch][last applied commit], -1 when it has no state yet.
+// The leader answers with frames of one of these types:
+// STATE [epoch][state as written by SimpleInMemoryStorageImpl.writeState()]
+// COMMIT [sequence][latest commit of the leader][length][redo entries]
+// HEARTBEAT [latest commit of the leader], sent when the follower has every commit so far.
+final class Frames {
+	static final byte STATE = 1;
+	static final byte COMMIT = 2;
+	static final byte HEARTBEAT = 3;
+
+	private Frames() {
+	}
+}
@@ -0,0 +1,75 @@
+package com.mobilebanking.transferservice.replication;
+
+import com.mobilebanking.transferservice.components.exceptions.NodeIsReadOnly;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import com.mobilebanking.transferservice.services.Storage;
+import io.vavr.control.Option;
+
+import java.util.function.Supplier;
+
+// Reads of whatever replica the follower has at the moment, writes only come from the leader.
+class ReplicaStorage implements Storage {
+	private final Supplier<? extends Storage> replica;
+
+	ReplicaStorage(Supplier<? extends Storage> replica) {
+		this.replica = replica;
+	}
+
+	@Override
+	public Option<Account> getAccount(Long accountId) {
+		return replica.get().getAccount(accountId);
+	}
+
+	@Override
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		return replica.get().getTransactionsForAccount(accountId, query);
+	}
+
+	@Override
+	public Option<Account> setAccount(Long accountId, Money newBalance) {
+		throw readOnly();
+	}
+
+	@Override
+	public Transaction createTransaction(Long fromId, Long toId, Money amount) {
+		throw readOnly();
+	}
+
+	@Override
+	public Transaction recordTransaction(Transaction transaction) {
+		throw readOnly();
+	}
+
+	@Override
+	public Account createAccount(Money initialBalance) {
+		throw readOnly();
+	}
+
+	@Override
+	public Option<Account> closeAccount(Long accountId) {
+		throw readOnly();
+	}
+
+	@Override
+	public void startDbTransaction(Long... accountIds) {
+		throw readOnly();
+	}
+
+	@Override
+	public void commitDbTransaction() {
+		throw readOnly();
+	}
+
+	@Override
+	public void rollbackDbTransaction() {
+		throw readOnly();
+	}
+
+	private static NodeIsReadOnly readOnly() {
+		return new NodeIsReadOnly();
+	}
+}
@@ -0,0 +1,166 @@
+package com.mobilebanking.transferservice.replication;
+
+import com.mobilebanking.transferservice.metrics.Metrics;
+import com.mobilebanking.transferservice.services.SimpleInMemoryStorageImpl;
+import com.mobilebanking.transferservice.services.Storage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Keeps an in-memory replica of a leader's storage. It applies the leader's commits in order, and when the
+// leader can't resume it from its last commit, it builds a new replica from a copy of the state and swaps it in.
+// The staleness of the replica is how long ago it last had every commit the leader had told it about. It
+// grows while commits queue up, and it keeps growing while the leader is unreachable.
+public class ReplicationFollower implements Closeable {
+	private static final Logger log = LoggerFactory.getLogger(ReplicationFollower.class);
+
+	private final InetSocketAddress leader;
+	private final Duration timeout;
+	private final Duration retryInterval;
+	private final Thread thread;
+
+	private volatile SimpleInMemoryStorageImpl replica = new SimpleInMemoryStorageImpl();
+	private volatile long epoch;
+	private volatile long latest;
+	// When the replica last had every commit, 0 until it got the first copy of the state.
+	private volatile long syncedAt;
+
+	private volatile Socket socket;
+	private volatile boolean closed;
+
+	public ReplicationFollower(InetSocketAddress leader) {
+		this(leader, Duration.ofSeconds(5), Duration.ofSeconds(1));
+	}
+
+	// The timeout bounds the wait for the next frame, a leader sends one at least every heartbeat interval.
+	ReplicationFollower(InetSocketAddress leader, Duration timeout, Duration retryInterval) {
+		this.leader = leader;
+		this.timeout = timeout;
+		this.retryInterval = retryInterval;
+
+		Metrics.gauge("replication_lag_seconds", "How long ago the replica last had every commit of the leader",
+				() -> syncedAt == 0
+						? Double.POSITIVE_INFINITY
+						: (double) getStalenessNanos() / TimeUnit.SECONDS.toNanos(1));
+		Metrics.gauge("replication_lag_commits", "Commits of the leader the replica has yet to apply",
+				() -> (double) getLagCommits());
+
+		thread = new Thread(this::follow, "replication-follower");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void follow() {
+		while (!closed) {
+			try (Socket connection = new Socket()) {
+				socket = connection;
+				connection.connect(leader, (int) timeout.toMillis());
+				connection.setTcpNoDelay(true);
+				connection.setSoTimeout((int) timeout.toMillis());
+
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+				out.writeLong(epoch);
+				out.writeLong(syncedAt == 0 ? -1 : replica.getCommitSequence());
+				out.flush();
+
+				receive(new DataInputStream(new BufferedInputStream(connection.getInputStream(), 1 << 16)));
+			} catch (IOException | RuntimeException e) {
+				if (!closed) {
+					log.warn("Replication from {} stopped, retrying in {}: {}", leader, retryInterval, e.toString());
+					sleep(retryInterval);
+				}
+			}
+		}
+	}
+
+	private void receive(DataInputStream in) throws IOException {
+		while (!closed) {
+			byte type = in.readByte();
+
+			switch (type) {
+				case Frames.STATE:
+					long stateEpoch = in.readLong();
+					SimpleInMemoryStorageImpl copy = SimpleInMemoryStorageImpl.readState(in);
+
+					replica = copy;
+					epoch = stateEpoch;
+					latest = copy.getCommitSequence();
+					caughtUpTo(latest);
+					break;
+				case Frames.COMMIT:
+					long sequence = in.readLong();
+					latest = in.readLong();
+					byte[] redo = new byte[in.readInt()];
+					in.readFully(redo);
+
+					if (sequence != replica.getCommitSequence() + 1) {
+						// Starts over with a new copy of the state.
+						epoch = 0;
+						throw new IOException("Expected commit " + (replica.getCommitSequence() + 1)
+								+ ", got " + sequence);
+					}
+
+					replica.apply(sequence, redo);
+					caughtUpTo(latest);
+					break;
+				case Frames.HEARTBEAT:
+					latest = in.readLong();
+					caughtUpTo(latest);
+					break;
+				default:
+					throw new IOException("Unknown replication frame " + type);
+			}
+		}
+	}
+
+	private void caughtUpTo(long leaderLatest) {
+		if (replica.getCommitSequence() >= leaderLatest) {
+			syncedAt = System.nanoTime();
+		}
+	}
+
+	private static void sleep(Duration interval) {
+		try {
+			Thread.sleep(interval.toMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// A storage that always reads the current replica and refuses writes.
+	public Storage getStorage() {
+		return new ReplicaStorage(() -> replica);
+	}
+
+	// Long.MAX_VALUE until the first copy of the state arrived.
+	public long getStalenessNanos() {
+		long synced = syncedAt;
+
+		return synced == 0 ? Long.MAX_VALUE : System.nanoTime() - synced;
+	}
+
+	public long getLagCommits() {
+		return Math.max(0, latest - replica.getCommitSequence());
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		thread.interrupt();
+
+		Socket connection = socket;
+		if (connection != null) {
+			connection.close();
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package com.mobilebanking.transferservice.replication;
+
+import com.mobilebanking.transferservice.services.CommitListener;
+import com.mobilebanking.transferservice.services.SimpleInMemoryStorageImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Streams the commits of a storage to its followers. The last commits are kept in a ring, a follower that
+// reconnects within them resumes where it stopped, any other one gets a copy of the whole state first.
+// Every follower has its own thread, a slow one only falls behind itself and is cut off once the ring has
+// moved past it.
+public class ReplicationLeader implements CommitListener, Closeable {
+	private static final Logger log = LoggerFactory.getLogger(ReplicationLeader.class);
+	private static final int MAX_BATCH = 256;
+
+	private final SimpleInMemoryStorageImpl storage;
+	private final Duration heartbeatInterval;
+	// Tells the commits of this leader from those of an earlier one that used the same sequence numbers.
+	private final long epoch = UUID.randomUUID().getMostSignificantBits();
+
+	// Commit n is at n % length, guarded by this.
+	private final byte[][] backlog;
+	private long latest;
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService threads;
+	private final Set<Socket> followers = ConcurrentHashMap.newKeySet();
+	private volatile boolean closed;
+
+	public ReplicationLeader(SimpleInMemoryStorageImpl storage, InetSocketAddress address, int backlog,
+							 Duration heartbeatInterval) throws IOException {
+		this.storage = storage;
+		this.heartbeatInterval = heartbeatInterval;
+		this.backlog = new byte[backlog][];
+
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(address);
+
+		AtomicInteger created = new AtomicInteger();
+		threads = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "replication-leader-" + created.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		synchronized (this) {
+			latest = storage.getCommitSequence();
+		}
+
+		storage.setCommitListener(this);
+		threads.execute(this::accept);
+	}
+
+	@Override
+	public synchronized void committed(long sequence, byte[] redo) {
+		backlog[(int) (sequence % backlog.length)] = redo;
+		latest = sequence;
+
+		notifyAll();
+	}
+
+	private void accept() {
+		while (!closed) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				followers.add(socket);
+				threads.execute(() -> serve(socket));
+			} catch (IOException e) {
+				if (!closed) {
+					log.warn("Accepting a follower failed", e);
+				}
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+			long followerEpoch = in.readLong();
+			long next = in.readLong() + 1;
+
+			if (followerEpoch != epoch || !isRetained(next)) {
+				out.writeByte(Frames.STATE);
+				out.writeLong(epoch);
+				// Commits after the cut are in the ring, unless it moved past them while the state was written.
+				next = storage.writeState(out) + 1;
+				out.flush();
+			}
+
+			stream(out, next);
+		} catch (IOException e) {
+			if (!closed) {
+				log.info("Follower {} disconnected: {}", socket.getRemoteSocketAddress(), e.getMessage());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			followers.remove(socket);
+		}
+	}
+
+	private void stream(DataOutputStream out, long next) throws IOException, InterruptedException {
+		List<byte[]> batch = new ArrayList<>(MAX_BATCH);
+
+		while (!closed) {
+			long latestSent;
+
+			synchronized (this) {
+				if (next > latest) {
+					wait(heartbeatInterval.toMillis());
+				}
+
+				if (!isRetained(next)) {
+					throw new IOException("The follower fell behind the last " + backlog.length + " commits");
+				}
+
+				for (long sequence = next; sequence <= latest && batch.size() < MAX_BATCH; sequence++) {
+					batch.add(backlog[(int) (sequence % backlog.length)]);
+				}
+
+				latestSent = latest;
+			}
+
+			if (batch.isEmpty()) {
+				out.writeByte(Frames.HEARTBEAT);
+				out.writeLong(latestSent);
+			}
+
+			for (byte[] redo : batch) {
+				out.writeByte(Frames.COMMIT);
+				out.writeLong(next++);
+				out.writeLong(latestSent);
+				out.writeInt(redo.length);
+				out.write(redo);
+			}
+
+			out.flush();
+			batch.clear();
+		}
+	}
+
+	// The next commit is retained when it is yet to come or still in the ring.
+	private synchronized boolean isRetained(long next) {
+		return next > 0 && next <= latest + 1 && next > latest - backlog.length;
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		storage.setCommitListener(null);
+		serverSocket.close();
+
+		for (Socket follower : followers) {
+			follower.close();
+		}
+
+		threads.shutdownNow();
+	}
+}
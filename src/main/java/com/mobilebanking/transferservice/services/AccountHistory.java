@@ -0,0 +1,55 @@
+package com.mobilebanking.transferservice.services;
+
+import java.util.Arrays;
+
+// An account's transactions as positions in a TransactionStore, oldest first. Immutable to readers: appending
+// writes past the end of the shared array and hands out a longer view, older views keep their size. Only a
+// view that is no longer the newest, like the one restored by a rollback, copies the array to append.
+// Appends must be serialized by the caller.
+final class AccountHistory {
+	static final AccountHistory EMPTY = new AccountHistory(new Positions(new long[0]), 0);
+
+	private final Positions positions;
+	private final int size;
+
+	private AccountHistory(Positions positions, int size) {
+		this.positions = positions;
+		this.size = size;
+	}
+
+	AccountHistory append(long position) {
+		Positions target = positions;
+
+		if (target.filled != size || size == target.values.length) {
+			target = new Positions(Arrays.copyOf(target.values, Math.max(4, size * 2)));
+			target.filled = size;
+		}
+
+		target.values[size] = position;
+		target.filled = size + 1;
+
+		return new AccountHistory(target, size + 1);
+	}
+
+	int size() {
+		return size;
+	}
+
+	long position(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+
+		return positions.values[index];
+	}
+
+	private static class Positions {
+		private final long[] values;
+		// How far any view has written, a view ending before it was branched from.
+		private int filled;
+
+		private Positions(long[] values) {
+			this.values = values;
+		}
+	}
+}
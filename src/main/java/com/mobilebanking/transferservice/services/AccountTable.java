@@ -0,0 +1,15 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import io.vavr.control.Option;
+
+import java.util.function.UnaryOperator;
+
+interface AccountTable {
+	Option<Account> get(long accountId);
+
+	void put(Account account);
+
+	// Applies the change atomically if the account exists.
+	Option<Account> update(long accountId, UnaryOperator<Account> change);
+}
@@ -0,0 +1,210 @@
+package com.mobilebanking.transferservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import com.mobilebanking.transferservice.metrics.Counter;
+import com.mobilebanking.transferservice.metrics.Metrics;
+import io.vavr.control.Option;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Keeps the accounts read most often in a size-bounded Caffeine cache in front of another storage. Caffeine
+// evicts by W-TinyLFU, so a scan over cold accounts doesn't push out the hot ones.
+// A write puts its account in the cache at once, marked pending. While it is pending, other threads read the
+// storage, which only shows committed state. The commit marks it committed and the rollback removes it.
+// A pending entry weighs nothing, so it is never evicted before its DB transaction ends. Writes to one account
+// are serialized by the storage's locks, so a later pending entry can only replace one whose DB transaction
+// is over. The commit and the rollback only touch their own entry.
+// Hot accounts are credited without a lock and are never cached.
+public class CachingStorage implements Storage {
+	private final Storage storage;
+	private final Cache<Long, Entry> accounts;
+
+	// Entries the DB transaction of the current thread wrote, null outside of one.
+	private final ThreadLocal<Map<Long, Entry>> pending = new ThreadLocal<>();
+
+	private final Counter hits = Metrics.counter("storage_cache_requests_total",
+			"Account lookups of the caching storage, by result", "result", "hit");
+	private final Counter misses = Metrics.counter("storage_cache_requests_total",
+			"Account lookups of the caching storage, by result", "result", "miss");
+	private final Counter evictions = Metrics.counter("storage_cache_evictions_total",
+			"Accounts evicted from the caching storage to stay within its size");
+
+	public CachingStorage(Storage storage, long maxAccounts) {
+		this.storage = storage;
+		this.accounts = Caffeine
+				.newBuilder()
+				.maximumWeight(maxAccounts)
+				.<Long, Entry>weigher((id, entry) -> entry.committed ? 1 : 0)
+				.removalListener((id, entry, cause) -> {
+					if (cause.wasEvicted()) {
+						evictions.increment();
+					}
+				})
+				.executor(Runnable::run)
+				.build();
+	}
+
+	@Override
+	public Option<Account> getAccount(Long accountId) {
+		Map<Long, Entry> written = pending.get();
+
+		if (written != null && written.containsKey(accountId)) {
+			return Option.of(written.get(accountId).account);
+		}
+
+		if (storage.isHotAccount(accountId)) {
+			return storage.getAccount(accountId);
+		}
+
+		Entry entry = accounts.getIfPresent(accountId);
+
+		if (entry == null) {
+			misses.increment();
+			entry = accounts.get(accountId, id -> storage
+					.getAccount(id)
+					.map(account -> new Entry(account, true))
+					.getOrNull());
+		} else if (entry.committed) {
+			hits.increment();
+		} else {
+			misses.increment();
+			return storage.getAccount(accountId);
+		}
+
+		return entry == null ? Option.none() : Option.of(entry.account);
+	}
+
+	@Override
+	public Option<Account> setAccount(Long accountId, Money newBalance) {
+		return write(accountId, () -> storage.setAccount(accountId, newBalance));
+	}
+
+	@Override
+	public Option<Account> closeAccount(Long accountId) {
+		return write(accountId, () -> storage.closeAccount(accountId));
+	}
+
+	// Without a DB transaction the write gets one of its own, so its entry is handled the same way.
+	private Option<Account> write(Long accountId, Supplier<Option<Account>> write) {
+		if (pending.get() == null) {
+			startDbTransaction(accountId);
+
+			Option<Account> written;
+
+			try {
+				written = write(accountId, write);
+			} catch (RuntimeException e) {
+				rollbackDbTransaction();
+				throw e;
+			}
+
+			commitDbTransaction();
+
+			return written;
+		}
+
+		Option<Account> written = write.get();
+
+		if (written.isDefined() && !storage.isHotAccount(accountId)) {
+			Entry entry = new Entry(written.get(), false);
+
+			pending.get().put(accountId, entry);
+			accounts.put(accountId, entry);
+		}
+
+		return written;
+	}
+
+	@Override
+	public boolean isHotAccount(Long accountId) {
+		return storage.isHotAccount(accountId);
+	}
+
+	@Override
+	public Option<Account> creditAccount(Long accountId, Money amount) {
+		if (storage.isHotAccount(accountId)) {
+			return storage.creditAccount(accountId, amount);
+		}
+
+		return getAccount(accountId).flatMap(account -> setAccount(accountId, account.getBalance().add(amount)));
+	}
+
+	@Override
+	public Transaction createTransaction(Long fromId, Long toId, Money amount) {
+		return storage.createTransaction(fromId, toId, amount);
+	}
+
+	@Override
+	public Transaction recordTransaction(Transaction transaction) {
+		return storage.recordTransaction(transaction);
+	}
+
+	@Override
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		return storage.getTransactionsForAccount(accountId, query);
+	}
+
+	// Read into the cache on first use like any other account.
+	@Override
+	public Account createAccount(Money initialBalance) {
+		return storage.createAccount(initialBalance);
+	}
+
+	@Override
+	public void startDbTransaction(Long... accountIds) {
+		storage.startDbTransaction(accountIds);
+		pending.set(new HashMap<>());
+	}
+
+	@Override
+	public void commitDbTransaction() {
+		Map<Long, Entry> written = pending.get();
+		pending.remove();
+
+		try {
+			storage.commitDbTransaction();
+		} catch (RuntimeException e) {
+			written.forEach((id, entry) -> accounts.asMap().remove(id, entry));
+			throw e;
+		}
+
+		// A later DB transaction may have replaced an entry already, its own commit or rollback takes care of it.
+		written.forEach((id, entry) -> accounts.asMap().replace(id, entry, new Entry(entry.account, true)));
+	}
+
+	@Override
+	public void rollbackDbTransaction() {
+		Map<Long, Entry> written = pending.get();
+		pending.remove();
+
+		storage.rollbackDbTransaction();
+
+		written.forEach((id, entry) -> accounts.asMap().remove(id, entry));
+	}
+
+	long getCachedCount() {
+		return accounts.estimatedSize();
+	}
+
+	void cleanUp() {
+		accounts.cleanUp();
+	}
+
+	private static class Entry {
+		private final Account account;
+		private final boolean committed;
+
+		private Entry(Account account, boolean committed) {
+			this.account = account;
+			this.committed = committed;
+		}
+	}
+}
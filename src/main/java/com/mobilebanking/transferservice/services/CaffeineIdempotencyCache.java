@@ -0,0 +1,114 @@
+package com.mobilebanking.transferservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.IdempotencyKeyIsReused;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.metrics.Counter;
+import com.mobilebanking.transferservice.metrics.Metrics;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// The first caller of a key puts the future of its transfer in the cache and runs the transfer outside of it,
+// concurrent callers of the key wait for that future. A slow transfer never holds a lock of the cache.
+// A transfer in flight weighs nothing, so it is never evicted to make room and run a second time by a retry.
+public class CaffeineIdempotencyCache implements IdempotencyCache {
+	private final Cache<String, Attempt> attempts;
+
+	private final Counter hits = Metrics.counter("idempotency_cache_requests_total",
+			"Transfers with an Idempotency-Key, by whether the key was known", "result", "hit");
+	private final Counter misses = Metrics.counter("idempotency_cache_requests_total",
+			"Transfers with an Idempotency-Key, by whether the key was known", "result", "miss");
+	private final Counter evictions = Metrics.counter("idempotency_cache_evictions_total",
+			"Idempotency keys forgotten before their time to live to stay within the maximum");
+
+	public CaffeineIdempotencyCache(Duration ttl, long maxKeys) {
+		attempts = Caffeine
+				.newBuilder()
+				.expireAfterWrite(ttl)
+				.maximumWeight(maxKeys)
+				.<String, Attempt>weigher((key, attempt) -> attempt.result.isDone() ? 1 : 0)
+				.removalListener((key, attempt, cause) -> {
+					if (cause == RemovalCause.SIZE) {
+						evictions.increment();
+					}
+				})
+				.executor(Runnable::run)
+				.build();
+	}
+
+	@Override
+	public Transaction getOrTransfer(String key, TransactionBody request, Transfer transfer)
+			throws NotSufficientBalance, AccountIsNotAvailable {
+		Attempt started = new Attempt(request);
+		Attempt attempt = attempts.get(key, ignored -> started);
+
+		if (attempt != started) {
+			hits.increment();
+
+			if (!attempt.request.equals(request)) {
+				throw new IdempotencyKeyIsReused(key);
+			}
+
+			return attempt.await();
+		}
+
+		misses.increment();
+
+		try {
+			Transaction transaction = transfer.apply();
+			started.result.complete(transaction);
+			// Weighed again now that it is done, its time to live starts over.
+			attempts.asMap().replace(key, started, started);
+
+			return transaction;
+		} catch (Throwable e) {
+			attempts.asMap().remove(key, started);
+			started.result.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private static class Attempt {
+		private final TransactionBody request;
+		private final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+		private Attempt(TransactionBody request) {
+			this.request = request;
+		}
+
+		// Concurrent callers share the outcome of the first one, a failure included.
+		private Transaction await() throws NotSufficientBalance, AccountIsNotAvailable {
+			try {
+				return result.join();
+			} catch (CompletionException e) {
+				Throwable cause = e.getCause();
+
+				if (cause instanceof NotSufficientBalance) {
+					throw (NotSufficientBalance) cause;
+				}
+
+				if (cause instanceof AccountIsNotAvailable) {
+					throw (AccountIsNotAvailable) cause;
+				}
+
+				// The same exception as the first caller got, so both get the same response.
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+
+				throw e;
+			}
+		}
+	}
+}
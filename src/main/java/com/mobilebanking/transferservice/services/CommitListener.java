@@ -0,0 +1,7 @@
+package com.mobilebanking.transferservice.services;
+
+// Receives the redo entries of every DB transaction that wrote something, numbered from 1 in commit order.
+// Called while the storage is still locked, so it must hand the entries off and return without blocking.
+public interface CommitListener {
+	void committed(long sequence, byte[] redo);
+}
@@ -0,0 +1,427 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.ImmutableAccount;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import io.vavr.collection.Stream;
+import io.vavr.control.Option;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Accounts in primitive columns indexed by their id and transactions in an append-only primitive log, behind the
+// same striped locks as StripedLockStorageImpl. The Storage methods build DTOs as every storage does, the raw
+// balance methods are the fast path of FastPathTransferComponentImpl and allocate nothing once warmed up.
+public class FastPathStorageImpl implements Storage {
+	private static final int CHUNK_SHIFT = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final byte NO_ACCOUNT = 0;
+	private static final byte ACTIVE = (byte) (Account.AccountStatus.ACTIVE.ordinal() + 1);
+	private static final byte CLOSED = (byte) (Account.AccountStatus.CLOSED.ordinal() + 1);
+	private static final Account.AccountStatus[] STATUSES = Account.AccountStatus.values();
+
+	private final ReentrantLock[] locks;
+	private final AtomicLong lastAccountId = new AtomicLong();
+	// Replaced by a longer copy when ids outgrow it, the chunks themselves are never moved.
+	private volatile AccountChunk[] accountChunks = new AccountChunk[0];
+	// Readers find positions under an account's lock, which makes the columns written before it visible.
+	private final TransactionStore log = new TransactionStore();
+
+	private final ThreadLocal<DbTransaction> currentDbTransaction = new ThreadLocal<>();
+	private final StorageMetrics metrics = new StorageMetrics("fastpath");
+
+	public FastPathStorageImpl() {
+		this(StripedLockStorageImpl.DEFAULT_STRIPES);
+	}
+
+	public FastPathStorageImpl(int stripes) {
+		locks = new ReentrantLock[stripes];
+
+		for (int i = 0; i < stripes; i++) {
+			locks[i] = new ReentrantLock();
+		}
+
+		createAccount(Money.valueOf(100012, 2));
+		createAccount(Money.ZERO);
+	}
+
+	// Locks the stripes of both accounts in ascending order and returns when, for unlockAccounts.
+	public long lockAccounts(long firstId, long secondId) {
+		int first = stripeOf(firstId);
+		int second = stripeOf(secondId);
+
+		long start = System.nanoTime();
+
+		locks[Math.min(first, second)].lock();
+
+		if (first != second) {
+			locks[Math.max(first, second)].lock();
+		}
+
+		long lockedAt = System.nanoTime();
+		metrics.lockWait.record(lockedAt - start);
+
+		return lockedAt;
+	}
+
+	public void unlockAccounts(long firstId, long secondId, long lockedAt) {
+		int first = stripeOf(firstId);
+		int second = stripeOf(secondId);
+
+		metrics.lockHold.recordSince(lockedAt);
+
+		if (first != second) {
+			locks[Math.max(first, second)].unlock();
+		}
+
+		locks[Math.min(first, second)].unlock();
+	}
+
+	// The raw balance methods expect the caller to hold the account's lock.
+	public boolean isActive(long accountId) {
+		AccountChunk chunk = chunkOf(accountId);
+
+		return chunk != null && chunk.statuses[slotOf(accountId)] == ACTIVE;
+	}
+
+	public long getUnscaledBalance(long accountId) {
+		return chunkOf(accountId).unscaled[slotOf(accountId)];
+	}
+
+	public int getBalanceScale(long accountId) {
+		return chunkOf(accountId).scales[slotOf(accountId)];
+	}
+
+	public void setBalance(long accountId, long unscaled, int scale) {
+		AccountChunk chunk = chunkOf(accountId);
+		int slot = slotOf(accountId);
+
+		chunk.unscaled[slot] = unscaled;
+		chunk.scales[slot] = (byte) scale;
+	}
+
+	// The caller holds the locks of both accounts, returns the position of the transaction in the log.
+	public long appendTransaction(long fromId, long toId, long unscaled, int scale, long epochNanos) {
+		long position = log.append(fromId, toId, unscaled, scale, epochNanos);
+
+		addToHistory(fromId, position);
+
+		if (fromId != toId) {
+			addToHistory(toId, position);
+		}
+
+		return position;
+	}
+
+	@Override
+	public Option<Account> getAccount(Long accountId) {
+		ReentrantLock lock = locks[stripeOf(accountId)];
+		lock.lock();
+
+		try {
+			return read(accountId);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Option<Account> setAccount(Long accountId, Money newBalance) {
+		ReentrantLock lock = locks[stripeOf(accountId)];
+		lock.lock();
+
+		try {
+			if (!exists(accountId)) {
+				return Option.none();
+			}
+
+			long previousUnscaled = getUnscaledBalance(accountId);
+			int previousScale = getBalanceScale(accountId);
+			recordUndo(() -> setBalance(accountId, previousUnscaled, previousScale));
+
+			setBalance(accountId, newBalance.getUnscaled(), newBalance.getScale());
+
+			return read(accountId);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Transaction createTransaction(Long fromId, Long toId, Money amount) {
+		return insertTransaction(fromId, toId, amount, System.currentTimeMillis() * 1_000_000);
+	}
+
+	@Override
+	public Transaction recordTransaction(Transaction transaction) {
+		Instant timeStamp = transaction.getTimeStamp();
+
+		return insertTransaction(transaction.getFromAccountId(), transaction.getToAccountId(), transaction.getAmount(),
+				Math.addExact(Math.multiplyExact(timeStamp.getEpochSecond(), 1_000_000_000L), timeStamp.getNano()));
+	}
+
+	private Transaction insertTransaction(Long fromId, Long toId, Money amount, long epochNanos) {
+		long lockedAt = lockAccounts(fromId, toId);
+
+		try {
+			long position = appendTransaction(fromId, toId, amount.getUnscaled(), amount.getScale(), epochNanos);
+
+			recordUndo(() -> {
+				removeLastFromHistory(fromId);
+
+				if (!fromId.equals(toId)) {
+					removeLastFromHistory(toId);
+				}
+			});
+
+			return log.get(position);
+		} finally {
+			unlockAccounts(fromId, toId, lockedAt);
+		}
+	}
+
+	// Positions below the size of a history are only ever appended after, so the page is read outside the lock.
+	// A rolled back transaction may still show up in a page read while it was being rolled back.
+	@Override
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		long[] positions;
+		int size;
+
+		ReentrantLock lock = locks[stripeOf(accountId)];
+		lock.lock();
+
+		try {
+			AccountChunk chunk = chunkOf(accountId);
+			int slot = slotOf(accountId);
+
+			positions = chunk == null || chunk.history[slot] == null ? new long[0] : chunk.history[slot];
+			size = chunk == null ? 0 : chunk.historySizes[slot];
+		} finally {
+			lock.unlock();
+		}
+
+		return TransactionPages.page(size, index -> log.timeStamp(positions[index]),
+				(start, end) -> Stream.range(start, end).map(index -> log.get(positions[index])), query);
+	}
+
+	@Override
+	public Account createAccount(Money initialBalance) {
+		long accountId = lastAccountId.incrementAndGet();
+		AccountChunk chunk = chunkOf(accountId);
+
+		if (chunk == null) {
+			chunk = addChunk(accountId);
+		}
+
+		ReentrantLock lock = locks[stripeOf(accountId)];
+		lock.lock();
+
+		try {
+			int slot = slotOf(accountId);
+
+			chunk.unscaled[slot] = initialBalance.getUnscaled();
+			chunk.scales[slot] = (byte) initialBalance.getScale();
+			chunk.statuses[slot] = ACTIVE;
+
+			return read(accountId).get();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Option<Account> closeAccount(Long accountId) {
+		ReentrantLock lock = locks[stripeOf(accountId)];
+		lock.lock();
+
+		try {
+			if (!exists(accountId)) {
+				return Option.none();
+			}
+
+			AccountChunk chunk = chunkOf(accountId);
+			int slot = slotOf(accountId);
+			byte previousStatus = chunk.statuses[slot];
+
+			recordUndo(() -> chunk.statuses[slot] = previousStatus);
+			chunk.statuses[slot] = CLOSED;
+
+			return read(accountId);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void startDbTransaction(Long... accountIds) {
+		int[] stripes = accountIds.length == 0
+				? allStripes()
+				: Arrays.stream(accountIds).mapToInt(this::stripeOf).sorted().distinct().toArray();
+
+		long start = System.nanoTime();
+
+		for (int stripe : stripes) {
+			locks[stripe].lock();
+		}
+
+		long lockedAt = System.nanoTime();
+		metrics.lockWait.record(lockedAt - start);
+
+		currentDbTransaction.set(new DbTransaction(stripes, lockedAt));
+	}
+
+	@Override
+	public void commitDbTransaction() {
+		DbTransaction dbTransaction = currentDbTransaction.get();
+		currentDbTransaction.remove();
+
+		unlock(dbTransaction);
+	}
+
+	@Override
+	public void rollbackDbTransaction() {
+		DbTransaction dbTransaction = currentDbTransaction.get();
+		currentDbTransaction.remove();
+
+		dbTransaction.undoLog.rollback();
+		metrics.rollbacks.increment();
+
+		unlock(dbTransaction);
+	}
+
+	private void unlock(DbTransaction dbTransaction) {
+		metrics.lockHold.recordSince(dbTransaction.lockedAt);
+
+		for (int i = dbTransaction.stripes.length - 1; i >= 0; i--) {
+			locks[dbTransaction.stripes[i]].unlock();
+		}
+	}
+
+	private void recordUndo(Runnable undo) {
+		DbTransaction dbTransaction = currentDbTransaction.get();
+
+		if (dbTransaction != null) {
+			dbTransaction.undoLog.record(undo);
+		}
+	}
+
+	private Option<Account> read(long accountId) {
+		if (!exists(accountId)) {
+			return Option.none();
+		}
+
+		AccountChunk chunk = chunkOf(accountId);
+		int slot = slotOf(accountId);
+
+		return Option.some(ImmutableAccount
+				.builder()
+				.id(accountId)
+				.balance(Money.valueOf(chunk.unscaled[slot], chunk.scales[slot]))
+				.status(STATUSES[chunk.statuses[slot] - 1])
+				.build());
+	}
+
+	private boolean exists(long accountId) {
+		AccountChunk chunk = chunkOf(accountId);
+
+		return chunk != null && chunk.statuses[slotOf(accountId)] != NO_ACCOUNT;
+	}
+
+	// Histories grow by doubling, so appending to one allocates only now and then.
+	private void addToHistory(long accountId, long position) {
+		AccountChunk chunk = chunkOf(accountId);
+
+		if (chunk == null) {
+			return;
+		}
+
+		int slot = slotOf(accountId);
+		long[] history = chunk.history[slot];
+		int size = chunk.historySizes[slot];
+
+		if (history == null) {
+			history = chunk.history[slot] = new long[4];
+		} else if (size == history.length) {
+			history = chunk.history[slot] = Arrays.copyOf(history, size * 2);
+		}
+
+		history[size] = position;
+		chunk.historySizes[slot] = size + 1;
+	}
+
+	private void removeLastFromHistory(long accountId) {
+		AccountChunk chunk = chunkOf(accountId);
+
+		if (chunk != null) {
+			chunk.historySizes[slotOf(accountId)]--;
+		}
+	}
+
+	private AccountChunk chunkOf(long accountId) {
+		AccountChunk[] chunks = accountChunks;
+		long chunk = accountId >>> CHUNK_SHIFT;
+
+		return accountId < 0 || chunk >= chunks.length ? null : chunks[(int) chunk];
+	}
+
+	private synchronized AccountChunk addChunk(long accountId) {
+		int chunk = (int) (accountId >>> CHUNK_SHIFT);
+		AccountChunk[] chunks = accountChunks;
+
+		if (chunk < chunks.length && chunks[chunk] != null) {
+			return chunks[chunk];
+		}
+
+		AccountChunk[] grown = Arrays.copyOf(chunks, Math.max(chunks.length, chunk + 1));
+		grown[chunk] = new AccountChunk();
+		accountChunks = grown;
+
+		return grown[chunk];
+	}
+
+	private static int slotOf(long accountId) {
+		return (int) (accountId & (CHUNK_SIZE - 1));
+	}
+
+	private int stripeOf(long accountId) {
+		long hash = accountId * 0x9E3779B97F4A7C15L;
+
+		return (int) ((hash >>> 32) % locks.length);
+	}
+
+	private int[] allStripes() {
+		int[] stripes = new int[locks.length];
+
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = i;
+		}
+
+		return stripes;
+	}
+
+	private static class AccountChunk {
+		private final long[] unscaled = new long[CHUNK_SIZE];
+		private final byte[] scales = new byte[CHUNK_SIZE];
+		// Status + 1, 0 means there is no such account.
+		private final byte[] statuses = new byte[CHUNK_SIZE];
+		// Positions in the log of every account's transactions, oldest first.
+		private final long[][] history = new long[CHUNK_SIZE][];
+		private final int[] historySizes = new int[CHUNK_SIZE];
+	}
+
+	private static class DbTransaction {
+		private final int[] stripes;
+		private final long lockedAt;
+		private final UndoLog undoLog = new UndoLog();
+
+		private DbTransaction(int[] stripes, long lockedAt) {
+			this.stripes = stripes;
+			this.lockedAt = lockedAt;
+		}
+	}
+}
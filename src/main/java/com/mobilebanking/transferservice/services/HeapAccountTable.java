@@ -0,0 +1,26 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import io.vavr.control.Option;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+class HeapAccountTable implements AccountTable {
+	private final ConcurrentHashMap<Long, Account> accounts = new ConcurrentHashMap<>();
+
+	@Override
+	public Option<Account> get(long accountId) {
+		return Option.of(accounts.get(accountId));
+	}
+
+	@Override
+	public void put(Account account) {
+		accounts.put(account.getId(), account);
+	}
+
+	@Override
+	public Option<Account> update(long accountId, UnaryOperator<Account> change) {
+		return Option.of(accounts.computeIfPresent(accountId, (Long key, Account account) -> change.apply(account)));
+	}
+}
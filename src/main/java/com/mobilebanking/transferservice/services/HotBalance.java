@@ -0,0 +1,112 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Money;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Credits of a hot account spread over several sub-balances, each updated with a compare-and-set, so a credit
+// never waits for a lock. The balance of the account is its stored base plus all sub-balances.
+// A credit is reserved while its DB transaction runs and only added once it commits, so nobody can spend it
+// before. Closing the account is refused while any credit is reserved, and a closed account takes no new ones.
+class HotBalance {
+	private static final State OPEN = new State(0, Money.ZERO, false);
+	private static final State CLOSED = new State(0, Money.ZERO, true);
+
+	private final AtomicReferenceArray<Money> shards;
+	// The reserved credits and whether the account is closed, changed together with one compare-and-set.
+	private final AtomicReference<State> state = new AtomicReference<>(OPEN);
+
+	HotBalance(int shardCount) {
+		shards = new AtomicReferenceArray<>(shardCount);
+
+		for (int i = 0; i < shardCount; i++) {
+			shards.set(i, Money.ZERO);
+		}
+	}
+
+	Money sum() {
+		Money sum = Money.ZERO;
+
+		for (int i = 0; i < shards.length(); i++) {
+			sum = sum.add(shards.get(i));
+		}
+
+		return sum;
+	}
+
+	// Returns false if the account is closed. Throws ArithmeticException if the base, the sub-balances and every
+	// reserved credit together would be out of range, so adding the credit later can't overflow. The reservations
+	// are read before the sub-balances, a credit added in between is counted twice rather than not at all.
+	boolean reserve(Money base, Money amount) {
+		while (true) {
+			State current = state.get();
+
+			if (current.closed) {
+				return false;
+			}
+
+			State reserved = new State(current.credits + 1, current.amount.add(amount), false);
+			base.add(sum()).add(reserved.amount);
+
+			if (state.compareAndSet(current, reserved)) {
+				return true;
+			}
+		}
+	}
+
+	void release(Money amount) {
+		state.updateAndGet(current -> current.credits == 1
+				? OPEN
+				: new State(current.credits - 1, current.amount.subtract(amount), false));
+	}
+
+	// Adds a reserved credit.
+	void add(Money amount) {
+		shards.accumulateAndGet(ThreadLocalRandom.current().nextInt(shards.length()), amount, Money::add);
+		release(amount);
+	}
+
+	// Returns false while credits are reserved, they are part of the balance already.
+	boolean close() {
+		while (true) {
+			State current = state.get();
+
+			if (current.credits > 0) {
+				return false;
+			}
+
+			if (state.compareAndSet(current, CLOSED)) {
+				return true;
+			}
+		}
+	}
+
+	void reopen() {
+		state.compareAndSet(CLOSED, OPEN);
+	}
+
+	// Takes every sub-balance out, credits added meanwhile stay for the next call.
+	Money drain() {
+		Money drained = Money.ZERO;
+
+		for (int i = 0; i < shards.length(); i++) {
+			drained = drained.add(shards.getAndSet(i, Money.ZERO));
+		}
+
+		return drained;
+	}
+
+	private static class State {
+		private final int credits;
+		private final Money amount;
+		private final boolean closed;
+
+		private State(int credits, Money amount, boolean closed) {
+			this.credits = credits;
+			this.amount = amount;
+			this.closed = closed;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.IdempotencyKeyIsReused;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+
+public interface IdempotencyCache {
+	// Returns the transaction remembered for the key, or runs the transfer once for all concurrent callers
+	// of the same key. Failed transfers are not remembered, they changed nothing and may be retried.
+	// A key is bound to the request it first came with, reusing it for another request throws IdempotencyKeyIsReused.
+	Transaction getOrTransfer(String key, TransactionBody request, Transfer transfer)
+			throws NotSufficientBalance, AccountIsNotAvailable, IdempotencyKeyIsReused;
+
+	@FunctionalInterface
+	interface Transfer {
+		Transaction apply() throws NotSufficientBalance, AccountIsNotAvailable;
+	}
+}
@@ -0,0 +1,199 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.ImmutableAccount;
+import com.mobilebanking.transferservice.dtos.Money;
+import io.vavr.control.Option;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.UnaryOperator;
+
+// Open-addressing table in direct memory, every account takes one fixed-size slot
+// [id][unscaled balance][scale][status + 1] and a status of 0 marks a free slot.
+// Only the Account views handed out to callers are allocated on the heap.
+class OffHeapAccountTable implements AccountTable {
+	private static final int SLOT_SIZE = 8 + 8 + 1 + 1;
+	private static final int SEGMENT_SHIFT = 24;
+	private static final int SLOTS_PER_SEGMENT = 1 << SEGMENT_SHIFT;
+	private static final double LOAD_FACTOR = 0.75;
+	private static final byte FREE = 0;
+	private static final Account.AccountStatus[] STATUSES = Account.AccountStatus.values();
+
+	private final StampedLock lock = new StampedLock();
+	private volatile Slots slots;
+	private long size;
+
+	OffHeapAccountTable(long expectedAccounts) {
+		slots = new Slots(Math.max(16, (long) Math.ceil(expectedAccounts / LOAD_FACTOR)));
+	}
+
+	@Override
+	public Option<Account> get(long accountId) {
+		long stamp = lock.tryOptimisticRead();
+
+		Slots current = slots;
+		long slot = current.slotOf(accountId);
+		int status = current.status(slot);
+		long unscaled = current.unscaled(slot);
+		int scale = current.scale(slot);
+
+		if (lock.validate(stamp)) {
+			return status == FREE ? Option.none() : Option.some(view(accountId, unscaled, scale, status));
+		}
+
+		stamp = lock.readLock();
+
+		try {
+			return read(slots, accountId);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public void put(Account account) {
+		long stamp = lock.writeLock();
+
+		try {
+			long slot = slots.slotOf(account.getId());
+
+			if (slots.status(slot) == FREE) {
+				if (size + 1 > slots.capacity * LOAD_FACTOR) {
+					slots = slots.grow();
+					slot = slots.slotOf(account.getId());
+				}
+
+				size++;
+			}
+
+			slots.write(slot, account.getId(), account.getBalance(), account.getStatus());
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public Option<Account> update(long accountId, UnaryOperator<Account> change) {
+		long stamp = lock.writeLock();
+
+		try {
+			return read(slots, accountId).map(account -> {
+				Account changed = change.apply(account);
+				slots.write(slots.slotOf(accountId), accountId, changed.getBalance(), changed.getStatus());
+
+				return changed;
+			});
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	private static Option<Account> read(Slots current, long accountId) {
+		long slot = current.slotOf(accountId);
+		int status = current.status(slot);
+
+		return status == FREE
+				? Option.none()
+				: Option.some(view(accountId, current.unscaled(slot), current.scale(slot), status));
+	}
+
+	private static Account view(long accountId, long unscaled, int scale, int status) {
+		return ImmutableAccount
+				.builder()
+				.id(accountId)
+				.balance(Money.valueOf(unscaled, scale))
+				.status(STATUSES[status - 1])
+				.build();
+	}
+
+	// Slots never change once a grown copy replaces them, so an optimistic reader holding an old one
+	// reads stale but well-formed data and is sent back by the failed validation.
+	private static class Slots {
+		private final long capacity;
+		private final ByteBuffer[] segments;
+
+		private Slots(long capacity) {
+			if (capacity > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Too many accounts for one table: " + capacity);
+			}
+
+			this.capacity = capacity;
+			this.segments = new ByteBuffer[(int) ((capacity + SLOTS_PER_SEGMENT - 1) >>> SEGMENT_SHIFT)];
+
+			for (int i = 0; i < segments.length; i++) {
+				long slotsInSegment = Math.min(SLOTS_PER_SEGMENT, capacity - ((long) i << SEGMENT_SHIFT));
+				segments[i] = ByteBuffer.allocateDirect((int) slotsInSegment * SLOT_SIZE);
+			}
+		}
+
+		// The slot holding the account, or the free slot where it belongs. The load factor keeps a free slot around.
+		private long slotOf(long accountId) {
+			long hash = accountId * 0x9E3779B97F4A7C15L;
+			long slot = ((hash >>> 32) * capacity) >>> 32;
+
+			for (long probes = 0; probes < capacity; probes++) {
+				if (status(slot) == FREE || id(slot) == accountId) {
+					return slot;
+				}
+
+				slot = slot + 1 == capacity ? 0 : slot + 1;
+			}
+
+			throw new IllegalStateException("Account table is full");
+		}
+
+		private Slots grow() {
+			Slots grown = new Slots(capacity * 2);
+
+			for (long slot = 0; slot < capacity; slot++) {
+				int status = status(slot);
+
+				if (status != FREE) {
+					long accountId = id(slot);
+					grown.write(grown.slotOf(accountId), accountId, unscaled(slot), scale(slot), status);
+				}
+			}
+
+			return grown;
+		}
+
+		private void write(long slot, long accountId, Money balance, Account.AccountStatus status) {
+			write(slot, accountId, balance.getUnscaled(), balance.getScale(), status.ordinal() + 1);
+		}
+
+		private void write(long slot, long accountId, long unscaled, int scale, int status) {
+			ByteBuffer segment = segment(slot);
+			int offset = offset(slot);
+
+			segment.putLong(offset, accountId);
+			segment.putLong(offset + 8, unscaled);
+			segment.put(offset + 16, (byte) scale);
+			segment.put(offset + 17, (byte) status);
+		}
+
+		private long id(long slot) {
+			return segment(slot).getLong(offset(slot));
+		}
+
+		private long unscaled(long slot) {
+			return segment(slot).getLong(offset(slot) + 8);
+		}
+
+		private int scale(long slot) {
+			return segment(slot).get(offset(slot) + 16);
+		}
+
+		private int status(long slot) {
+			return segment(slot).get(offset(slot) + 17);
+		}
+
+		private ByteBuffer segment(long slot) {
+			return segments[(int) (slot >>> SEGMENT_SHIFT)];
+		}
+
+		private int offset(long slot) {
+			return (int) (slot & (SLOTS_PER_SEGMENT - 1)) * SLOT_SIZE;
+		}
+	}
+}
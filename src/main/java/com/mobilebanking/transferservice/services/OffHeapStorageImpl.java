@@ -0,0 +1,9 @@
+package com.mobilebanking.transferservice.services;
+
+// Striped-lock storage whose accounts live outside the heap, for deployments with tens of millions of them.
+// Sizing the table for the expected number of accounts up front avoids rehashing it while it is in use.
+public class OffHeapStorageImpl extends StripedLockStorageImpl {
+	public OffHeapStorageImpl(long expectedAccounts) {
+		super(DEFAULT_STRIPES, new OffHeapAccountTable(expectedAccounts));
+	}
+}
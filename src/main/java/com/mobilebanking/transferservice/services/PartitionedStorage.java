@@ -0,0 +1,181 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import io.vavr.collection.List;
+import io.vavr.collection.Stream;
+import io.vavr.control.Option;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+// Accounts split over independent partitions, each with its own lock and transaction store. An account's id names
+// its partition, so nothing has to be looked up to route to it, and new accounts go to the partitions in turn.
+// A DB transaction locks the partitions of its accounts in ascending order, transfers across partitions are
+// recorded in the histories of both. In a cluster a node only keeps the partitions it owns, the others are null.
+public class PartitionedStorage implements Storage, Closeable {
+	@FunctionalInterface
+	public interface PartitionFactory {
+		Storage create(int partition, int partitions) throws IOException;
+	}
+
+	private final Storage[] partitions;
+	private final int[] ownedPartitions;
+	private final AtomicLong nextPartition = new AtomicLong();
+
+	// Partitions locked by the DB transaction of the current thread.
+	private final ThreadLocal<List<Storage>> locked = new ThreadLocal<>();
+
+	public PartitionedStorage(int partitions) {
+		this(partitions, partition -> true);
+	}
+
+	public PartitionedStorage(int partitions, IntPredicate owned) {
+		this.partitions = new Storage[partitions];
+		this.ownedPartitions = IntStream.range(0, partitions).filter(owned).toArray();
+
+		for (int i : ownedPartitions) {
+			this.partitions[i] = new SimpleInMemoryStorageImpl(i, partitions);
+		}
+	}
+
+	// Partitions made by the factory, e.g. durable ones.
+	public PartitionedStorage(int partitions, IntPredicate owned, PartitionFactory factory) throws IOException {
+		this.partitions = new Storage[partitions];
+		this.ownedPartitions = IntStream.range(0, partitions).filter(owned).toArray();
+
+		for (int i : ownedPartitions) {
+			this.partitions[i] = factory.create(i, partitions);
+		}
+	}
+
+	// Sequential ids land in every partition in turn.
+	public static int partitionOf(Long accountId, int partitions) {
+		return (int) Math.floorMod(accountId - 1, (long) partitions);
+	}
+
+	public int partitionOf(Long accountId) {
+		return partitionOf(accountId, partitions.length);
+	}
+
+	public int getPartitionCount() {
+		return partitions.length;
+	}
+
+	public Storage getPartition(int partition) {
+		return partitions[partition];
+	}
+
+	private Storage partitionFor(Long accountId) {
+		return partitions[partitionOf(accountId)];
+	}
+
+	@Override
+	public Option<Account> getAccount(Long accountId) {
+		return partitionFor(accountId).getAccount(accountId);
+	}
+
+	@Override
+	public Option<Account> setAccount(Long accountId, Money newBalance) {
+		return partitionFor(accountId).setAccount(accountId, newBalance);
+	}
+
+	@Override
+	public Transaction createTransaction(Long fromId, Long toId, Money amount) {
+		Storage source = partitionFor(fromId);
+		Storage target = partitionFor(toId);
+
+		Transaction transaction = source.createTransaction(fromId, toId, amount);
+
+		if (source != target) {
+			target.recordTransaction(transaction);
+		}
+
+		return transaction;
+	}
+
+	@Override
+	public Transaction recordTransaction(Transaction transaction) {
+		Storage source = partitionFor(transaction.getFromAccountId());
+		Storage target = partitionFor(transaction.getToAccountId());
+
+		if (source != target) {
+			target.recordTransaction(transaction);
+		}
+
+		return source.recordTransaction(transaction);
+	}
+
+	@Override
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		return partitionFor(accountId).getTransactionsForAccount(accountId, query);
+	}
+
+	@Override
+	public Account createAccount(Money initialBalance) {
+		int partition = ownedPartitions[(int) Math.floorMod(nextPartition.getAndIncrement(), (long) ownedPartitions.length)];
+
+		return partitions[partition].createAccount(initialBalance);
+	}
+
+	@Override
+	public Option<Account> closeAccount(Long accountId) {
+		return partitionFor(accountId).closeAccount(accountId);
+	}
+
+	// Ascending order keeps two DB transactions over the same partitions from waiting on each other.
+	// A partition refusing to start, e.g. a durable one after a failed log write, releases those started before.
+	@Override
+	public void startDbTransaction(Long... accountIds) {
+		List<Storage> partitionsToLock = accountIds.length == 0
+				? List.ofAll(ownedPartitions).map(this::getPartition)
+				: Stream.of(accountIds).map(this::partitionOf).distinct().sorted().map(this::getPartition).toList();
+		List<Storage> started = List.empty();
+
+		try {
+			for (Storage partition : partitionsToLock) {
+				partition.startDbTransaction();
+				started = started.prepend(partition);
+			}
+		} catch (RuntimeException e) {
+			started.forEach(Storage::rollbackDbTransaction);
+			throw e;
+		}
+
+		locked.set(partitionsToLock);
+	}
+
+	// Commits of in-memory partitions don't fail, once all partitions are locked the DB transaction can't be
+	// torn between them. Durable partitions commit one after the other, a failed log write stops the partition
+	// it hit while those committed before keep their part.
+	@Override
+	public void commitDbTransaction() {
+		List<Storage> partitionsToUnlock = locked.get();
+		locked.remove();
+
+		partitionsToUnlock.forEach(Storage::commitDbTransaction);
+	}
+
+	@Override
+	public void rollbackDbTransaction() {
+		List<Storage> partitionsToUnlock = locked.get();
+		locked.remove();
+
+		partitionsToUnlock.forEach(Storage::rollbackDbTransaction);
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (int i : ownedPartitions) {
+			if (partitions[i] instanceof Closeable) {
+				((Closeable) partitions[i]).close();
+			}
+		}
+	}
+}
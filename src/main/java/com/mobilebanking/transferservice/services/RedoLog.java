@@ -0,0 +1,116 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.ImmutableAccount;
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+
+// Binary redo entries of one DB transaction. Accounts are logged as their full new state, so replay is idempotent.
+class RedoLog {
+	private static final byte ACCOUNT = 1;
+	private static final byte TRANSACTION = 2;
+
+	static final int MAX_ENTRY_SIZE = 1 + 8 + 8 + (1 + 8) + 8 + 4;
+
+	interface Target {
+		void applyAccount(Account account);
+
+		void applyTransaction(Transaction transaction);
+	}
+
+	private ByteBuffer buffer = ByteBuffer.allocate(128);
+
+	void account(Account account) {
+		writeAccount(ensureCapacity(), account);
+	}
+
+	void transaction(Transaction transaction) {
+		writeTransaction(ensureCapacity(), transaction);
+	}
+
+	boolean isEmpty() {
+		return buffer.position() == 0;
+	}
+
+	int size() {
+		return buffer.position();
+	}
+
+	byte[] toByteArray() {
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	private ByteBuffer ensureCapacity() {
+		if (buffer.remaining() < MAX_ENTRY_SIZE) {
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + MAX_ENTRY_SIZE));
+			buffer.flip();
+			buffer = grown.put(buffer);
+		}
+
+		return buffer;
+	}
+
+	static void writeAccount(ByteBuffer out, Account account) {
+		out.put(ACCOUNT);
+		out.putLong(account.getId());
+		writeMoney(out, account.getBalance());
+		out.put((byte) account.getStatus().ordinal());
+	}
+
+	static void writeTransaction(ByteBuffer out, Transaction transaction) {
+		out.put(TRANSACTION);
+		out.putLong(transaction.getFromAccountId());
+		out.putLong(transaction.getToAccountId());
+		writeMoney(out, transaction.getAmount());
+		out.putLong(transaction.getTimeStamp().getEpochSecond());
+		out.putInt(transaction.getTimeStamp().getNano());
+	}
+
+	static void replay(ByteBuffer record, Target target) {
+		while (record.hasRemaining()) {
+			replayEntry(record, target);
+		}
+	}
+
+	static void replayEntry(ByteBuffer record, Target target) {
+		byte type = record.get();
+
+		switch (type) {
+			case ACCOUNT:
+				target.applyAccount(ImmutableAccount
+						.builder()
+						.id(record.getLong())
+						.balance(readMoney(record))
+						.status(Account.AccountStatus.values()[record.get()])
+						.build());
+				break;
+			case TRANSACTION:
+				target.applyTransaction(ImmutableTransaction
+						.builder()
+						.fromAccountId(record.getLong())
+						.toAccountId(record.getLong())
+						.amount(readMoney(record))
+						.timeStamp(Instant.ofEpochSecond(record.getLong(), record.getInt()))
+						.build());
+				break;
+			default:
+				throw new IllegalStateException("Unknown redo entry type " + type);
+		}
+	}
+
+	private static void writeMoney(ByteBuffer out, Money value) {
+		out.put((byte) value.getScale());
+		out.putLong(value.getUnscaled());
+	}
+
+	private static Money readMoney(ByteBuffer record) {
+		int scale = record.get();
+
+		return Money.valueOf(record.getLong(), scale);
+	}
+}
@@ -3,50 +3,179 @@ package com.mobilebanking.transferservice.services;
 import com.mobilebanking.transferservice.dtos.Account;
 import com.mobilebanking.transferservice.dtos.ImmutableAccount;
 import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.Money;
 import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import com.mobilebanking.transferservice.services.wal.WriteAheadLog;
 import io.vavr.collection.HashMap;
 import io.vavr.collection.List;
 import io.vavr.collection.Map;
+import io.vavr.collection.Stream;
 import io.vavr.control.Option;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.inject.Inject;
-import java.math.BigDecimal;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 
+public class SimpleInMemoryStorageImpl implements Storage, Closeable {
+	private static final Logger log = LoggerFactory.getLogger(SimpleInMemoryStorageImpl.class);
+	private static final int STATE_CHUNK_SIZE = 1 << 16;
 
-public class SimpleInMemoryStorageImpl implements Storage {
+	// Working state, only touched by the thread holding the lock.
 	private Map<Long, Account> accounts;
-	private List<Transaction> transactions;
+	private Map<Long, AccountHistory> transactionsByAccount;
+
+	// Shared by every version, a committed one only refers to positions below the size it was committed at.
+	private final TransactionStore transactions = new TransactionStore();
+
+	// Last committed state for readers outside of a DB transaction. The maps are persistent,
+	// so publishing it is a reference swap and readers never wait for the lock.
+	private final AtomicReference<Snapshot> committed = new AtomicReference<>();
+	private long version;
+
+	// Recovered from the highest account id in the snapshot and the log, so ids are never handed out twice.
+	private final AtomicLong lastAccountId = new AtomicLong();
+	// As a partition of a PartitionedStorage it only hands out and indexes the ids of its partition.
+	private final int partition;
+	private final int partitions;
 
-	private Map<Long, Account> backupAccounts;
-	private List<Transaction> backupTransactions;
+	private UndoLog undoLog;
+	private RedoLog redoLog;
 
 	private ReentrantLock lock = new ReentrantLock();
+	private long lockedAt;
+	private StorageMetrics metrics;
+
+	private final WriteAheadLog writeAheadLog;
+	private ScheduledExecutorService snapshots;
+	// Transactions already in history files, the next snapshot writes those after them.
+	private long transactionsInHistory;
+	// Set once a commit couldn't be written to the log. Its changes are still in the working state and later
+	// commits would build on them, so from then on no DB transaction is started and nothing more is published.
+	private volatile Throwable logFailure;
+
+	// Numbers the commits handed to the listener, on a replica the last one applied from the leader.
+	private CommitListener commitListener;
+	private volatile long commitSequence;
 
 	@Inject
 	public SimpleInMemoryStorageImpl() {
+		this(0, 1);
+	}
+
+	SimpleInMemoryStorageImpl(int partition, int partitions) {
+		this.writeAheadLog = null;
+		this.partition = partition;
+		this.partitions = partitions;
+
+		init();
+	}
+
+	// Durable mode, the state is rebuilt from the latest snapshot and the log after it,
+	// and every commit waits until it is written to disk.
+	public SimpleInMemoryStorageImpl(WriteAheadLog writeAheadLog) throws IOException {
+		this(0, 1, writeAheadLog);
+	}
+
+	// A durable partition, every partition has a log of its own.
+	public SimpleInMemoryStorageImpl(int partition, int partitions, WriteAheadLog writeAheadLog) throws IOException {
+		this.writeAheadLog = writeAheadLog;
+		this.partition = partition;
+		this.partitions = partitions;
+
+		init();
+
+		Path directory = writeAheadLog.getDirectory();
+		Option<Long> snapshot = SnapshotFile.latest(directory);
+
+		for (Path history : SnapshotFile.historiesUpTo(directory, snapshot)) {
+			SnapshotFile.read(history, new Replay());
+		}
+
+		// Anything else, including transactions of a snapshot that still has them, goes to the next history file.
+		transactionsInHistory = transactions.size();
+
+		for (Long segment : snapshot) {
+			SnapshotFile.read(SnapshotFile.of(directory, segment), new Replay());
+		}
+
+		writeAheadLog.replay(snapshot.getOrElse(0L), record -> RedoLog.replay(record, new Replay()));
+
+		publish(new Snapshot(++version, accounts, transactionsByAccount));
+	}
+
+	public SimpleInMemoryStorageImpl(WriteAheadLog writeAheadLog, Duration snapshotInterval) throws IOException {
+		this(0, 1, writeAheadLog, snapshotInterval);
+	}
+
+	public SimpleInMemoryStorageImpl(int partition, int partitions, WriteAheadLog writeAheadLog,
+									 Duration snapshotInterval) throws IOException {
+		this(partition, partitions, writeAheadLog);
+
+		snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "snapshot-" + writeAheadLog.getDirectory().getFileName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		snapshots.scheduleWithFixedDelay(this::snapshotQuietly,
+				snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	private void init() {
+		metrics = new StorageMetrics(partitions > 1 ? "partitioned" : writeAheadLog == null ? "simple" : "durable");
+
 		Account fakeAccount1 = ImmutableAccount
 				.builder()
 				.id(1L)
-				.balance(BigDecimal.valueOf(1000.12))
+				.balance(Money.valueOf(100012, 2))
 				.status(Account.AccountStatus.ACTIVE)
 				.build();
 
 		Account fakeAccount2 = ImmutableAccount
 				.builder()
 				.id(2L)
-				.balance(BigDecimal.valueOf(0))
+				.balance(Money.ZERO)
 				.status(Account.AccountStatus.ACTIVE)
 				.build();
 
-		accounts = HashMap.of(1L, fakeAccount1,2L, fakeAccount2);
-		transactions = List.empty();
+		accounts = HashMap.of(1L, fakeAccount1,2L, fakeAccount2).filterKeys(this::owns);
+
+		// The last id of this partition before the first one that is free.
+		long firstId = partition + 1;
+		while (firstId <= 2) {
+			firstId += partitions;
+		}
+		lastAccountId.set(firstId - partitions);
+
+		transactionsByAccount = HashMap.empty();
+
+		publish(new Snapshot(version, accounts, transactionsByAccount));
 	}
 
+	// Inside a DB transaction its own uncommitted writes are visible, outside only committed ones.
 	@Override
 	public Option<Account> getAccount(Long accountId) {
-		return accounts
+		return (lock.isHeldByCurrentThread() ? accounts : committed.get().accounts)
 				.get(accountId);
 	}
 
@@ -55,41 +184,92 @@ public class SimpleInMemoryStorageImpl implements Storage {
 	}
 
 	@Override
-	public Option<Account> setAccount(Long accountId, BigDecimal newBalance) {
+	public Option<Account> setAccount(Long accountId, Money newBalance) {
+		return autoCommit(() -> updateBalance(accountId, newBalance));
+	}
+
+	private Option<Account> updateBalance(Long accountId, Money newBalance) {
+		recordAccountUndo(accountId);
+
 		accounts = accounts
 				.computeIfPresent(accountId, (Long key, Account value) ->
 					ImmutableAccount.copyOf(value).withBalance(newBalance)
 				)._2();
 
+		accounts.get(accountId).forEach(account -> logRedo(redo -> redo.account(account)));
+
 		return accounts.get(accountId);
 	}
 
 	@Override
-	public Transaction createTransaction(Long fromId, Long toId, BigDecimal amount) {
-		Transaction transaction = ImmutableTransaction
+	public Transaction createTransaction(Long fromId, Long toId, Money amount) {
+		return autoCommit(() -> insertTransaction(ImmutableTransaction
 				.builder()
 				.fromAccountId(fromId)
 				.toAccountId(toId)
 				.amount(amount)
 				.timeStamp(Instant.now())
-				.build();
+				.build()));
+	}
 
-		transactions = transactions.append(transaction);
+	@Override
+	public Transaction recordTransaction(Transaction transaction) {
+		return autoCommit(() -> insertTransaction(transaction));
+	}
+
+	private Transaction insertTransaction(Transaction transaction) {
+		long previousSize = transactions.size();
+		Map<Long, AccountHistory> previousTransactionsByAccount = transactionsByAccount;
+		undoLog.record(() -> {
+			transactions.truncate(previousSize);
+			transactionsByAccount = previousTransactionsByAccount;
+		});
+
+		storeTransaction(transaction);
+		logRedo(redo -> redo.transaction(transaction));
 
 		return transaction;
 	}
 
+	private void storeTransaction(Transaction transaction) {
+		long position = transactions.append(transaction);
+
+		if (owns(transaction.getFromAccountId())) {
+			transactionsByAccount = index(transactionsByAccount, transaction.getFromAccountId(), position);
+		}
+
+		if (!transaction.getFromAccountId().equals(transaction.getToAccountId()) && owns(transaction.getToAccountId())) {
+			transactionsByAccount = index(transactionsByAccount, transaction.getToAccountId(), position);
+		}
+	}
+
+	private Map<Long, AccountHistory> index(Map<Long, AccountHistory> index, Long accountId, long position) {
+		return index.put(accountId, index.get(accountId).getOrElse(AccountHistory.EMPTY).append(position));
+	}
+
+	private boolean owns(Long accountId) {
+		return PartitionedStorage.partitionOf(accountId, partitions) == partition;
+	}
+
 	@Override
-	public List<Transaction> getTransactionsForAccount(Long accountId) {
-		return transactions.filter(transaction ->
-				transaction.getFromAccountId().equals(accountId) || transaction.getToAccountId().equals(accountId)
-		);
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		Map<Long, AccountHistory> index = lock.isHeldByCurrentThread()
+				? transactionsByAccount
+				: committed.get().transactionsByAccount;
+		AccountHistory history = index.get(accountId).getOrElse(AccountHistory.EMPTY);
+
+		return TransactionPages.page(history.size(), i -> transactions.timeStamp(history.position(i)),
+				(start, end) -> Stream.range(start, end).map(i -> transactions.get(history.position(i))), query);
 	}
 
 	@Override
-	public Account createAccount(BigDecimal initialBalance) {
-		Long newId = accounts.last()._2().getId() + 1L;
+	public Account createAccount(Money initialBalance) {
+		Long newId = lastAccountId.addAndGet(partitions);
+
+		return autoCommit(() -> insertAccount(newId, initialBalance));
+	}
 
+	private Account insertAccount(Long newId, Money initialBalance) {
 		Account account = ImmutableAccount
 				.builder()
 				.id(newId)
@@ -98,46 +278,324 @@ public class SimpleInMemoryStorageImpl implements Storage {
 				.build();
 
 		accounts = accounts.put(newId, account);
+		logRedo(redo -> redo.account(account));
 
 		return account;
 	}
 
 	@Override
 	public Option<Account> closeAccount(Long accountId) {
+		return autoCommit(() -> updateStatus(accountId));
+	}
+
+	private Option<Account> updateStatus(Long accountId) {
+		recordAccountUndo(accountId);
+
 		accounts = accounts.computeIfPresent(accountId,
 				(Long key, Account account) ->
 						ImmutableAccount.copyOf(account).withStatus(Account.AccountStatus.CLOSED)
 		)._2();
 
+		accounts.get(accountId).forEach(account -> logRedo(redo -> redo.account(account)));
+
 		return accounts.get(accountId);
 	}
 
 	@Override
-	public void startDbTransaction() {
+	public void startDbTransaction(Long... accountIds) {
+		long start = System.nanoTime();
 		lock.lock();
+		lockedAt = System.nanoTime();
+		metrics.lockWait.record(lockedAt - start);
 
-		backupAccounts = copyHashMap(accounts);
-		backupTransactions = copyList(transactions);
-	}
-
-	private <K, V> HashMap<K, V> copyHashMap(Map<K, V> map) {
-		return HashMap.ofAll(map.toJavaMap());
-	}
+		if (logFailure != null) {
+			lock.unlock();
+			throw new IllegalStateException("Storage stopped after a failed write-ahead log write", logFailure);
+		}
 
-	private <V> List<V> copyList(List<V> list) {
-		return List.ofAll(list.asJava());
+		undoLog = new UndoLog();
+		redoLog = writeAheadLog == null && commitListener == null ? null : new RedoLog();
 	}
 
 	@Override
 	public void commitDbTransaction() {
+		byte[] redo = redoLog == null || redoLog.isEmpty() ? null : redoLog.toByteArray();
+		CompletableFuture<Void> durable = append(redo);
+		Snapshot snapshot = new Snapshot(++version, accounts, transactionsByAccount);
+
+		if (redo != null && commitListener != null) {
+			commitListener.committed(++commitSequence, redo);
+		}
+
+		// Readers see the transaction once it is on disk, whichever of the log and this thread gets there first.
+		// A failed write stops the storage. A DB transaction that started before that can't commit either, the log
+		// fails every append after a failed one.
+		durable.whenComplete((written, failure) -> {
+			if (failure == null) {
+				publish(snapshot);
+			} else {
+				logFailure = failure;
+			}
+		});
+
+		undoLog = null;
+		redoLog = null;
+
+		metrics.lockHold.recordSince(lockedAt);
 		lock.unlock();
+
+		// Waiting after the unlock lets the transactions queued meanwhile share the same fsync.
+		durable.join();
+		publish(snapshot);
+	}
+
+	// Durable commits can finish out of order, an older snapshot never replaces a newer one.
+	private void publish(Snapshot snapshot) {
+		committed.accumulateAndGet(snapshot, (current, next) ->
+				current == null || next.version > current.version ? next : current);
 	}
 
 	@Override
 	public void rollbackDbTransaction() {
-		accounts = backupAccounts;
-		transactions = backupTransactions;
+		undoLog.rollback();
+		undoLog = null;
+		redoLog = null;
 
+		metrics.rollbacks.increment();
+		metrics.lockHold.recordSince(lockedAt);
 		lock.unlock();
 	}
+
+	// Takes a consistent cut under the lock, then writes it while transfers keep running,
+	// and drops the log segments and snapshots the new one makes obsolete. Only the transactions recorded since
+	// the snapshot before are written, to a history file of their own ahead of the accounts.
+	public synchronized void snapshot() throws IOException {
+		Map<Long, Account> accountsAtCut;
+		long transactionsAtCut;
+		long segment;
+
+		lock.lock();
+
+		try {
+			if (logFailure != null) {
+				throw new IOException("Storage stopped after a failed write-ahead log write", logFailure);
+			}
+
+			accountsAtCut = accounts;
+			transactionsAtCut = transactions.size();
+			segment = writeAheadLog.rotate();
+		} finally {
+			lock.unlock();
+		}
+
+		Path directory = writeAheadLog.getDirectory();
+
+		if (transactionsAtCut > transactionsInHistory) {
+			SnapshotFile.write(SnapshotFile.historyOf(directory, segment), List.empty(),
+					transactions.slice(transactionsInHistory, transactionsAtCut));
+		}
+
+		SnapshotFile.write(SnapshotFile.of(directory, segment), accountsAtCut.values(), List.empty());
+		transactionsInHistory = transactionsAtCut;
+
+		writeAheadLog.deleteSegmentsBefore(segment);
+		SnapshotFile.deleteBefore(directory, segment);
+	}
+
+	// Commits from now on are also handed to the listener, null stops that.
+	public void setCommitListener(CommitListener listener) {
+		lock.lock();
+
+		try {
+			commitListener = listener;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getCommitSequence() {
+		return commitSequence;
+	}
+
+	// Writes a consistent cut of every account and transaction for a replica, as the commit sequence it was taken
+	// at and length-prefixed chunks of redo entries ending with an empty one. Like snapshot() only taking the cut
+	// holds the lock, the writing doesn't. Returns the sequence of the cut.
+	public long writeState(DataOutput out) throws IOException {
+		Map<Long, Account> accountsAtCut;
+		long transactionsAtCut;
+		long sequenceAtCut;
+
+		lock.lock();
+
+		try {
+			accountsAtCut = accounts;
+			transactionsAtCut = transactions.size();
+			sequenceAtCut = commitSequence;
+		} finally {
+			lock.unlock();
+		}
+
+		out.writeLong(sequenceAtCut);
+
+		RedoLog chunk = new RedoLog();
+
+		for (Account account : accountsAtCut.values()) {
+			chunk.account(account);
+			chunk = flushWhenFull(out, chunk);
+		}
+
+		for (Transaction transaction : transactions.slice(0, transactionsAtCut)) {
+			chunk.transaction(transaction);
+			chunk = flushWhenFull(out, chunk);
+		}
+
+		if (!chunk.isEmpty()) {
+			writeChunk(out, chunk.toByteArray());
+		}
+
+		out.writeInt(0);
+
+		return sequenceAtCut;
+	}
+
+	private static RedoLog flushWhenFull(DataOutput out, RedoLog chunk) throws IOException {
+		if (chunk.size() < STATE_CHUNK_SIZE) {
+			return chunk;
+		}
+
+		writeChunk(out, chunk.toByteArray());
+
+		return new RedoLog();
+	}
+
+	private static void writeChunk(DataOutput out, byte[] chunk) throws IOException {
+		out.writeInt(chunk.length);
+		out.write(chunk);
+	}
+
+	// A replica of the state written by writeState(), it goes on with the commits after it through apply().
+	public static SimpleInMemoryStorageImpl readState(DataInput in) throws IOException {
+		SimpleInMemoryStorageImpl replica = new SimpleInMemoryStorageImpl();
+		long sequence = in.readLong();
+
+		replica.startDbTransaction();
+		replica.accounts = HashMap.empty();
+		replica.lastAccountId.set(0);
+
+		for (int length = in.readInt(); length > 0; length = in.readInt()) {
+			byte[] chunk = new byte[length];
+			in.readFully(chunk);
+			RedoLog.replay(ByteBuffer.wrap(chunk), replica.new Replay());
+		}
+
+		replica.commitSequence = sequence;
+		replica.commitDbTransaction();
+
+		return replica;
+	}
+
+	// Applies the redo entries of a leader's commit, readers see all of it or nothing. Replayed entries leave no
+	// undo, a replica that failed to apply one is out of step and has to be replaced with a new copy of the state.
+	public void apply(long sequence, byte[] redo) {
+		startDbTransaction();
+
+		try {
+			RedoLog.replay(ByteBuffer.wrap(redo), new Replay());
+			commitSequence = sequence;
+		} catch (RuntimeException e) {
+			rollbackDbTransaction();
+			throw e;
+		}
+
+		commitDbTransaction();
+	}
+
+	private void snapshotQuietly() {
+		try {
+			snapshot();
+		} catch (IOException | RuntimeException e) {
+			log.error("Snapshot failed", e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (snapshots != null) {
+			snapshots.shutdownNow();
+		}
+
+		if (writeAheadLog != null) {
+			writeAheadLog.close();
+		}
+	}
+
+	// Writes made outside of a DB transaction are committed on their own.
+	private <T> T autoCommit(Supplier<T> write) {
+		if (lock.isHeldByCurrentThread()) {
+			return write.get();
+		}
+
+		startDbTransaction();
+
+		T result;
+
+		try {
+			result = write.get();
+		} catch (RuntimeException e) {
+			rollbackDbTransaction();
+			throw e;
+		}
+
+		commitDbTransaction();
+
+		return result;
+	}
+
+	private void logRedo(Consumer<RedoLog> entry) {
+		if (redoLog != null) {
+			entry.accept(redoLog);
+		}
+	}
+
+	private CompletableFuture<Void> append(byte[] redo) {
+		if (writeAheadLog == null || redo == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		return writeAheadLog.append(redo);
+	}
+
+	private void recordAccountUndo(Long accountId) {
+		Option<Account> previousAccount = accounts.get(accountId);
+
+		undoLog.record(() -> accounts = previousAccount
+				.map(account -> accounts.put(accountId, account))
+				.getOrElse(() -> accounts.remove(accountId)));
+	}
+
+	private static class Snapshot {
+		private final long version;
+		private final Map<Long, Account> accounts;
+		private final Map<Long, AccountHistory> transactionsByAccount;
+
+		private Snapshot(long version, Map<Long, Account> accounts,
+						 Map<Long, AccountHistory> transactionsByAccount) {
+			this.version = version;
+			this.accounts = accounts;
+			this.transactionsByAccount = transactionsByAccount;
+		}
+	}
+
+	private class Replay implements RedoLog.Target {
+		@Override
+		public void applyAccount(Account account) {
+			accounts = accounts.put(account.getId(), account);
+			lastAccountId.accumulateAndGet(account.getId(), Math::max);
+		}
+
+		@Override
+		public void applyTransaction(Transaction transaction) {
+			storeTransaction(transaction);
+		}
+	}
 }
@@ -0,0 +1,134 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.services.wal.WriteAheadLog;
+import io.vavr.collection.Seq;
+import io.vavr.collection.Vector;
+import io.vavr.control.Option;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// A snapshot holds the redo entries of every account as of the start of a log segment. Transactions never change,
+// so they are kept in history files instead, each one holding those recorded since the snapshot before, and a
+// snapshot only writes the new ones. Both are written through a memory-mapped file, one region at a time, and
+// renamed into place once complete.
+final class SnapshotFile {
+	private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)\\.snap");
+	private static final Pattern HISTORY_NAME = Pattern.compile("history-(\\d+)\\.snap");
+	private static final long REGION_SIZE = 64L * 1024 * 1024;
+
+	private SnapshotFile() {
+	}
+
+	static Path of(Path directory, long segment) {
+		return directory.resolve(String.format("snapshot-%020d.snap", segment));
+	}
+
+	static Path historyOf(Path directory, long segment) {
+		return directory.resolve(String.format("history-%020d.snap", segment));
+	}
+
+	static Option<Long> latest(Path directory) {
+		return numbered(directory, SNAPSHOT_NAME).lastOption();
+	}
+
+	// The history files up to the given snapshot in order, those after it were left by a snapshot that never
+	// completed and are deleted, the log still has their transactions.
+	static Seq<Path> historiesUpTo(Path directory, Option<Long> snapshot) throws IOException {
+		Seq<Long> histories = numbered(directory, HISTORY_NAME);
+
+		for (Long later : histories.filter(number -> snapshot.forAll(latest -> number > latest))) {
+			Files.deleteIfExists(historyOf(directory, later));
+		}
+
+		return histories
+				.filter(number -> snapshot.exists(latest -> number <= latest))
+				.map(number -> historyOf(directory, number));
+	}
+
+	// History files are kept, together they are the whole history.
+	static void deleteBefore(Path directory, long segment) throws IOException {
+		for (Long older : numbered(directory, SNAPSHOT_NAME).filter(number -> number < segment)) {
+			Files.deleteIfExists(of(directory, older));
+		}
+	}
+
+	static void write(Path file, Iterable<Account> accounts, Iterable<Transaction> transactions) throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long position = 0;
+			MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, position, REGION_SIZE);
+
+			for (Account account : accounts) {
+				if (region.remaining() < RedoLog.MAX_ENTRY_SIZE) {
+					position += region.position();
+					region = channel.map(FileChannel.MapMode.READ_WRITE, position, REGION_SIZE);
+				}
+
+				RedoLog.writeAccount(region, account);
+			}
+
+			for (Transaction transaction : transactions) {
+				if (region.remaining() < RedoLog.MAX_ENTRY_SIZE) {
+					position += region.position();
+					region = channel.map(FileChannel.MapMode.READ_WRITE, position, REGION_SIZE);
+				}
+
+				RedoLog.writeTransaction(region, transaction);
+			}
+
+			region.force();
+			channel.truncate(position + region.position());
+			channel.force(true);
+		}
+
+		Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		// The rename has to survive a crash before the log it replaces is deleted.
+		WriteAheadLog.syncDirectory(file.getParent());
+	}
+
+	static void read(Path file, RedoLog.Target target) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+
+			while (position < size) {
+				long length = Math.min(REGION_SIZE, size - position);
+				boolean lastRegion = position + length == size;
+				MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+				// An entry may cross the end of a region, it is read again from the start of the next one.
+				while (region.remaining() >= RedoLog.MAX_ENTRY_SIZE || (lastRegion && region.hasRemaining())) {
+					RedoLog.replayEntry(region, target);
+				}
+
+				position += region.position();
+			}
+		}
+	}
+
+	private static Seq<Long> numbered(Path directory, Pattern name) {
+		try (Stream<Path> files = Files.list(directory)) {
+			return Vector.ofAll(files::iterator)
+					.map(file -> name.matcher(file.getFileName().toString()))
+					.filter(Matcher::matches)
+					.map(matcher -> Long.valueOf(matcher.group(1)))
+					.sorted();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
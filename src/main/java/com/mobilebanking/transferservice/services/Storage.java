@@ -1,21 +1,40 @@
 package com.mobilebanking.transferservice.services;
 
 import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
 import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
 import io.vavr.collection.List;
 import io.vavr.control.Option;
 
-import java.math.BigDecimal;
 
 public interface Storage {
 	Option<Account> getAccount(Long accountId);
-	Option<Account> setAccount(Long accountId, BigDecimal newBalance);
-	Transaction createTransaction(Long fromId, Long toId, BigDecimal amount);
-	List<Transaction> getTransactionsForAccount(Long accountId);
-	Account createAccount(BigDecimal initialBalance);
+	Option<Account> setAccount(Long accountId, Money newBalance);
+	Transaction createTransaction(Long fromId, Long toId, Money amount);
+	TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query);
+	Account createAccount(Money initialBalance);
 	Option<Account> closeAccount(Long accountId);
 
-	void startDbTransaction();
+	// Stores a transaction built elsewhere, so both partitions of a transfer between them keep the same one.
+	Transaction recordTransaction(Transaction transaction);
+
+	default List<Transaction> getTransactionsForAccount(Long accountId) {
+		return getTransactionsForAccount(accountId, TransactionQuery.all()).getTransactions().toList();
+	}
+
+	// Hot accounts can be credited without being locked by the DB transaction, debits still lock them.
+	default boolean isHotAccount(Long accountId) {
+		return false;
+	}
+
+	default Option<Account> creditAccount(Long accountId, Money amount) {
+		return getAccount(accountId).flatMap(account -> setAccount(accountId, account.getBalance().add(amount)));
+	}
+
+	// Implementations may lock only the given accounts, no accounts means the whole storage.
+	void startDbTransaction(Long... accountIds);
 	void commitDbTransaction();
 	void rollbackDbTransaction();
 }
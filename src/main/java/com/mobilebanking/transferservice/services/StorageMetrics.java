@@ -0,0 +1,21 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.metrics.Counter;
+import com.mobilebanking.transferservice.metrics.LatencyHistogram;
+import com.mobilebanking.transferservice.metrics.Metrics;
+
+// Lock and rollback metrics of DB transactions, labelled with the kind of storage.
+class StorageMetrics {
+	final LatencyHistogram lockWait;
+	final LatencyHistogram lockHold;
+	final Counter rollbacks;
+
+	StorageMetrics(String storage) {
+		lockWait = Metrics.histogram("storage_lock_wait_seconds",
+				"Time a DB transaction waited for its locks", "storage", storage);
+		lockHold = Metrics.histogram("storage_lock_hold_seconds",
+				"Time a DB transaction held its locks", "storage", storage);
+		rollbacks = Metrics.counter("storage_rollbacks_total",
+				"Rolled back DB transactions", "storage", storage);
+	}
+}
@@ -0,0 +1,378 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.ImmutableAccount;
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import io.vavr.collection.Vector;
+import io.vavr.control.Option;
+
+import javax.inject.Inject;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+public class StripedLockStorageImpl implements Storage {
+	static final int DEFAULT_STRIPES = 1024;
+
+	private final AccountTable accounts;
+	private final ConcurrentHashMap<Long, Vector<Transaction>> transactions = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Long, HotBalance> hotBalances = new ConcurrentHashMap<>();
+	private final AtomicLong lastAccountId = new AtomicLong();
+
+	private final ReentrantLock[] locks;
+	private final ThreadLocal<DbTransaction> currentDbTransaction = new ThreadLocal<>();
+	private final StorageMetrics metrics;
+
+	@Inject
+	public StripedLockStorageImpl() {
+		this(DEFAULT_STRIPES);
+	}
+
+	public StripedLockStorageImpl(int stripes) {
+		this(stripes, new HeapAccountTable());
+	}
+
+	StripedLockStorageImpl(int stripes, AccountTable accounts) {
+		this.accounts = accounts;
+		this.metrics = new StorageMetrics(accounts instanceof OffHeapAccountTable ? "offheap" : "striped");
+
+		locks = new ReentrantLock[stripes];
+
+		for (int i = 0; i < stripes; i++) {
+			locks[i] = new ReentrantLock();
+		}
+
+		Account fakeAccount1 = ImmutableAccount
+				.builder()
+				.id(1L)
+				.balance(Money.valueOf(100012, 2))
+				.status(Account.AccountStatus.ACTIVE)
+				.build();
+
+		Account fakeAccount2 = ImmutableAccount
+				.builder()
+				.id(2L)
+				.balance(Money.ZERO)
+				.status(Account.AccountStatus.ACTIVE)
+				.build();
+
+		accounts.put(fakeAccount1);
+		accounts.put(fakeAccount2);
+		lastAccountId.set(2L);
+	}
+
+	// Spreads credits of the account over the given number of sub-balances, for accounts such as fee collection
+	// that receive a large share of all transfers.
+	public void enableHotAccount(Long accountId, int shards) {
+		startDbTransaction(accountId);
+
+		HotBalance hotBalance = new HotBalance(shards);
+
+		if (accounts.get(accountId).exists(account -> account.getStatus().equals(Account.AccountStatus.CLOSED))) {
+			hotBalance.close();
+		}
+
+		hotBalances.putIfAbsent(accountId, hotBalance);
+		commitDbTransaction();
+	}
+
+	@Override
+	public boolean isHotAccount(Long accountId) {
+		return hotBalances.containsKey(accountId);
+	}
+
+	// The DB transaction holding a hot account's lock reads its base only, with the sub-balances folded in first.
+	// Credits committed after that stay in the sub-balances, a write based on the read doesn't overwrite them.
+	@Override
+	public Option<Account> getAccount(Long accountId) {
+		HotBalance hotBalance = hotBalances.get(accountId);
+
+		if (hotBalance != null && holdsLockOf(accountId)) {
+			fold(accountId, hotBalance);
+
+			return accounts.get(accountId);
+		}
+
+		return accounts.get(accountId).map(this::withHotBalance);
+	}
+
+	private void fold(Long accountId, HotBalance hotBalance) {
+		Money drained = hotBalance.drain();
+
+		if (!drained.isZero()) {
+			accounts.update(accountId, account ->
+					ImmutableAccount.copyOf(account).withBalance(account.getBalance().add(drained)));
+		}
+	}
+
+	private Account withHotBalance(Account account) {
+		HotBalance hotBalance = hotBalances.get(account.getId());
+
+		return hotBalance == null
+				? account
+				: ImmutableAccount.copyOf(account).withBalance(account.getBalance().add(hotBalance.sum()));
+	}
+
+	@Override
+	public Option<Account> setAccount(Long accountId, Money newBalance) {
+		HotBalance hotBalance = hotBalances.get(accountId);
+
+		if (hotBalance == null) {
+			recordAccountUndo(accountId);
+
+			return accounts.update(accountId, account -> ImmutableAccount.copyOf(account).withBalance(newBalance));
+		}
+
+		// Without a DB transaction nothing was folded, the new balance replaces the sub-balances as well.
+		if (currentDbTransaction.get() == null) {
+			hotBalance.drain();
+		}
+
+		Option<Account> previous = accounts.get(accountId);
+
+		// Undone by the difference, so what a later read folded into the base survives a rollback.
+		previous.forEach(account -> recordUndo(() -> accounts.update(accountId, current ->
+				ImmutableAccount.copyOf(current).withBalance(current.getBalance()
+						.add(account.getBalance())
+						.subtract(newBalance)))));
+
+		return accounts.update(accountId, account -> ImmutableAccount.copyOf(account).withBalance(newBalance));
+	}
+
+	@Override
+	public Option<Account> creditAccount(Long accountId, Money amount) {
+		HotBalance hotBalance = hotBalances.get(accountId);
+
+		if (hotBalance == null || holdsLockOf(accountId)) {
+			return Storage.super.creditAccount(accountId, amount);
+		}
+
+		// The balance the account will have once the credit is added, the reservation checks it stays in range
+		// along with the other reserved credits.
+		Option<Account> credited = getAccount(accountId)
+				.map(account -> ImmutableAccount.copyOf(account).withBalance(account.getBalance().add(amount)));
+
+		if (credited.isEmpty() || !hotBalance.reserve(accounts.get(accountId).get().getBalance(), amount)) {
+			return Option.none();
+		}
+
+		DbTransaction dbTransaction = currentDbTransaction.get();
+
+		if (dbTransaction == null) {
+			hotBalance.add(amount);
+		} else {
+			dbTransaction.credits.add(new PendingCredit(hotBalance, amount));
+		}
+
+		return credited;
+	}
+
+	@Override
+	public Transaction createTransaction(Long fromId, Long toId, Money amount) {
+		Transaction transaction = ImmutableTransaction
+				.builder()
+				.fromAccountId(fromId)
+				.toAccountId(toId)
+				.amount(amount)
+				.timeStamp(Instant.now())
+				.build();
+
+		return recordTransaction(transaction);
+	}
+
+	@Override
+	public Transaction recordTransaction(Transaction transaction) {
+		appendTransaction(transaction.getFromAccountId(), transaction);
+
+		if (!transaction.getFromAccountId().equals(transaction.getToAccountId())) {
+			appendTransaction(transaction.getToAccountId(), transaction);
+		}
+
+		return transaction;
+	}
+
+	private void appendTransaction(Long accountId, Transaction transaction) {
+		transactions.merge(accountId, Vector.of(transaction), (history, single) -> history.appendAll(single));
+
+		// Removes just this transaction, a hot account's history also receives appends of unlocked credits.
+		recordUndo(() -> transactions.computeIfPresent(accountId, (Long key, Vector<Transaction> history) ->
+				history.removeLast(appended -> appended == transaction)
+		));
+	}
+
+	@Override
+	public TransactionPage getTransactionsForAccount(Long accountId, TransactionQuery query) {
+		return TransactionPages.page(transactions.getOrDefault(accountId, Vector.empty()), query);
+	}
+
+	@Override
+	public Account createAccount(Money initialBalance) {
+		Long newId = lastAccountId.incrementAndGet();
+
+		Account account = ImmutableAccount
+				.builder()
+				.id(newId)
+				.balance(initialBalance)
+				.status(Account.AccountStatus.ACTIVE)
+				.build();
+
+		accounts.put(account);
+
+		return account;
+	}
+
+	@Override
+	public Option<Account> closeAccount(Long accountId) {
+		HotBalance hotBalance = hotBalances.get(accountId);
+
+		if (hotBalance == null) {
+			return close(accountId);
+		}
+
+		if (!hotBalance.close()) {
+			return Option.none();
+		}
+
+		recordUndo(hotBalance::reopen);
+		// Nothing is added to a closed account, the base stays its whole balance.
+		fold(accountId, hotBalance);
+
+		return close(accountId);
+	}
+
+	private Option<Account> close(Long accountId) {
+		recordAccountUndo(accountId);
+
+		return accounts.update(accountId, account ->
+				ImmutableAccount.copyOf(account).withStatus(Account.AccountStatus.CLOSED)
+		);
+	}
+
+	@Override
+	public void startDbTransaction(Long... accountIds) {
+		int[] stripes = accountIds.length == 0 ? allStripes() : stripesOf(accountIds);
+
+		long start = System.nanoTime();
+
+		// Stripes are always taken in ascending order and are the only locks, credits of hot accounts never wait,
+		// so two transactions can never wait on each other.
+		for (int stripe : stripes) {
+			locks[stripe].lock();
+		}
+
+		long lockedAt = System.nanoTime();
+		metrics.lockWait.record(lockedAt - start);
+
+		currentDbTransaction.set(new DbTransaction(stripes, lockedAt));
+	}
+
+	private boolean holdsLockOf(Long accountId) {
+		DbTransaction dbTransaction = currentDbTransaction.get();
+
+		return dbTransaction != null && Arrays.binarySearch(dbTransaction.stripes, stripeOf(accountId)) >= 0;
+	}
+
+	@Override
+	public void commitDbTransaction() {
+		DbTransaction dbTransaction = currentDbTransaction.get();
+		currentDbTransaction.remove();
+
+		try {
+			dbTransaction.credits.forEach(credit -> credit.hotBalance.add(credit.amount));
+		} finally {
+			unlock(dbTransaction);
+		}
+	}
+
+	@Override
+	public void rollbackDbTransaction() {
+		DbTransaction dbTransaction = currentDbTransaction.get();
+		currentDbTransaction.remove();
+
+		try {
+			dbTransaction.undoLog.rollback();
+			dbTransaction.credits.forEach(credit -> credit.hotBalance.release(credit.amount));
+			metrics.rollbacks.increment();
+		} finally {
+			unlock(dbTransaction);
+		}
+	}
+
+	private void recordAccountUndo(Long accountId) {
+		if (currentDbTransaction.get() != null) {
+			accounts.get(accountId).forEach(previous -> recordUndo(() -> accounts.put(previous)));
+		}
+	}
+
+	private void recordUndo(Runnable undo) {
+		DbTransaction dbTransaction = currentDbTransaction.get();
+
+		if (dbTransaction != null) {
+			dbTransaction.undoLog.record(undo);
+		}
+	}
+
+	private void unlock(DbTransaction dbTransaction) {
+		metrics.lockHold.recordSince(dbTransaction.lockedAt);
+
+		for (int i = dbTransaction.stripes.length - 1; i >= 0; i--) {
+			locks[dbTransaction.stripes[i]].unlock();
+		}
+	}
+
+	private int[] stripesOf(Long[] accountIds) {
+		return Arrays.stream(accountIds)
+				.mapToInt(this::stripeOf)
+				.sorted()
+				.distinct()
+				.toArray();
+	}
+
+	private int[] allStripes() {
+		int[] stripes = new int[locks.length];
+
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = i;
+		}
+
+		return stripes;
+	}
+
+	private int stripeOf(Long accountId) {
+		long hash = accountId * 0x9E3779B97F4A7C15L;
+
+		return (int) ((hash >>> 32) % locks.length);
+	}
+
+	private static class DbTransaction {
+		private final int[] stripes;
+		private final long lockedAt;
+		private final UndoLog undoLog = new UndoLog();
+		// Reserved credits of hot accounts this transaction doesn't lock, added on commit.
+		private final List<PendingCredit> credits = new ArrayList<>();
+
+		private DbTransaction(int[] stripes, long lockedAt) {
+			this.stripes = stripes;
+			this.lockedAt = lockedAt;
+		}
+	}
+
+	private static class PendingCredit {
+		private final HotBalance hotBalance;
+		private final Money amount;
+
+		private PendingCredit(HotBalance hotBalance, Money amount) {
+			this.hotBalance = hotBalance;
+			this.amount = amount;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionPage;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
+import io.vavr.collection.IndexedSeq;
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
+
+import java.time.Instant;
+import java.util.function.IntFunction;
+
+final class TransactionPages {
+	private TransactionPages() {
+	}
+
+	static TransactionPage page(IndexedSeq<Transaction> history, TransactionQuery query) {
+		return page(history.size(), index -> history.get(index).getTimeStamp(), history::slice, query);
+	}
+
+	// The history is in insertion order, which is also timestamp order, so the time range is found by binary search.
+	// Only the transactions of the page are taken from it.
+	static TransactionPage page(int size, IntFunction<Instant> timeStampAt, Slice slice, TransactionQuery query) {
+		int rangeStart = firstNotBefore(size, timeStampAt, query.getFromTime());
+		int rangeEnd = firstNotBefore(size, timeStampAt, query.getToTime());
+
+		int start = (int) Math.max(rangeStart, Math.min(query.getCursor(), rangeEnd));
+		int end = (int) Math.min(rangeEnd, (long) start + query.getLimit());
+
+		return ImmutableTransactionPage
+				.builder()
+				.transactions(slice.apply(start, end))
+				.nextCursor(end < rangeEnd ? Option.of((long) end) : Option.none())
+				.build();
+	}
+
+	private static int firstNotBefore(int size, IntFunction<Instant> timeStampAt, Instant timeStamp) {
+		int low = 0;
+		int high = size;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (timeStampAt.apply(middle).isBefore(timeStamp)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	interface Slice {
+		Seq<Transaction> apply(int start, int end);
+	}
+}
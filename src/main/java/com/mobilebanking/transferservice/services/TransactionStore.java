@@ -0,0 +1,151 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Append-only transactions in fixed-size chunks of primitive columns, about 33 bytes each instead of a boxed
+// Transaction with its Instant, Money and ids. Chunks never move once created, so appending is O(1) and a
+// position stays valid forever. Appends claim positions atomically and are published in order, everything
+// below size() is complete and visible to any thread.
+final class TransactionStore {
+	private static final int CHUNK_SHIFT = 14;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	private final AtomicLong claimed = new AtomicLong();
+	private final AtomicLong published = new AtomicLong();
+	// Replaced by a longer copy when the store outgrows it.
+	private volatile Chunk[] chunks = new Chunk[0];
+
+	long append(Transaction transaction) {
+		Instant timeStamp = transaction.getTimeStamp();
+
+		return append(transaction.getFromAccountId(), transaction.getToAccountId(),
+				transaction.getAmount().getUnscaled(), transaction.getAmount().getScale(),
+				Math.addExact(Math.multiplyExact(timeStamp.getEpochSecond(), 1_000_000_000L), timeStamp.getNano()));
+	}
+
+	long append(long fromId, long toId, long unscaled, int scale, long epochNanos) {
+		long position = claimed.getAndIncrement();
+		Chunk chunk = chunkFor(position);
+		int slot = slotOf(position);
+
+		chunk.fromIds[slot] = fromId;
+		chunk.toIds[slot] = toId;
+		chunk.unscaled[slot] = unscaled;
+		chunk.scales[slot] = (byte) scale;
+		chunk.epochNanos[slot] = epochNanos;
+
+		// Appends that claimed earlier positions publish first, the wait is a few stores long.
+		while (!published.compareAndSet(position, position + 1)) {
+			Thread.yield();
+		}
+
+		return position;
+	}
+
+	long size() {
+		return published.get();
+	}
+
+	// Drops everything from the given size on. Only for a single writer undoing its own appends,
+	// nothing may be appended meanwhile.
+	void truncate(long size) {
+		claimed.set(size);
+		published.set(size);
+	}
+
+	long fromId(long position) {
+		return chunkOf(position).fromIds[slotOf(position)];
+	}
+
+	long toId(long position) {
+		return chunkOf(position).toIds[slotOf(position)];
+	}
+
+	long epochNanos(long position) {
+		return chunkOf(position).epochNanos[slotOf(position)];
+	}
+
+	Instant timeStamp(long position) {
+		return Instant.ofEpochSecond(0, epochNanos(position));
+	}
+
+	Transaction get(long position) {
+		Chunk chunk = chunkOf(position);
+		int slot = slotOf(position);
+
+		return ImmutableTransaction
+				.builder()
+				.fromAccountId(chunk.fromIds[slot])
+				.toAccountId(chunk.toIds[slot])
+				.amount(Money.valueOf(chunk.unscaled[slot], chunk.scales[slot]))
+				.timeStamp(Instant.ofEpochSecond(0, chunk.epochNanos[slot]))
+				.build();
+	}
+
+	// Builds each transaction only when the scan reaches it.
+	Iterable<Transaction> slice(long start, long end) {
+		return () -> new Iterator<Transaction>() {
+			private long position = start;
+
+			@Override
+			public boolean hasNext() {
+				return position < end;
+			}
+
+			@Override
+			public Transaction next() {
+				if (position >= end) {
+					throw new NoSuchElementException();
+				}
+
+				return get(position++);
+			}
+		};
+	}
+
+	private Chunk chunkOf(long position) {
+		return chunks[(int) (position >>> CHUNK_SHIFT)];
+	}
+
+	private Chunk chunkFor(long position) {
+		Chunk[] current = chunks;
+		int index = (int) (position >>> CHUNK_SHIFT);
+
+		return index < current.length && current[index] != null ? current[index] : addChunk(index);
+	}
+
+	private synchronized Chunk addChunk(int index) {
+		Chunk[] current = chunks;
+
+		if (index < current.length && current[index] != null) {
+			return current[index];
+		}
+
+		int length = index < current.length ? current.length : Math.max(index + 1, current.length * 2);
+		Chunk[] grown = Arrays.copyOf(current, length);
+		grown[index] = new Chunk();
+		chunks = grown;
+
+		return grown[index];
+	}
+
+	private static int slotOf(long position) {
+		return (int) (position & (CHUNK_SIZE - 1));
+	}
+
+	private static class Chunk {
+		private final long[] fromIds = new long[CHUNK_SIZE];
+		private final long[] toIds = new long[CHUNK_SIZE];
+		private final long[] unscaled = new long[CHUNK_SIZE];
+		private final byte[] scales = new byte[CHUNK_SIZE];
+		private final long[] epochNanos = new long[CHUNK_SIZE];
+	}
+}
@@ -0,0 +1,18 @@
+package com.mobilebanking.transferservice.services;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+class UndoLog {
+	private final Deque<Runnable> entries = new ArrayDeque<>();
+
+	void record(Runnable undo) {
+		entries.push(undo);
+	}
+
+	void rollback() {
+		while (!entries.isEmpty()) {
+			entries.pop().run();
+		}
+	}
+}
@@ -0,0 +1,354 @@
+package com.mobilebanking.transferservice.services.wal;
+
+import io.vavr.collection.Seq;
+import io.vavr.collection.Vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// The log is a sequence of numbered segment files, every record is framed as [length][crc32][payload].
+// Appends are queued and a single writer thread writes whatever has accumulated with one fsync,
+// completing the futures of the whole batch at once.
+public class WriteAheadLog implements Closeable {
+	private static final int HEADER_SIZE = 8;
+	private static final Pattern SEGMENT_NAME = Pattern.compile("wal-(\\d+)\\.log");
+
+	private final Path directory;
+	private final long flushIntervalNanos;
+	private final int batchSize;
+
+	private long lastSegment;
+
+	private FileChannel channel;
+	private long writtenSegment;
+
+	private final BlockingQueue<PendingRecord> pending = new LinkedBlockingQueue<>();
+	private final Thread writer;
+	private volatile boolean closed;
+	// Set by the first failed write. Every later record fails with it too, so the log never has a hole that a
+	// replay would skip over.
+	private volatile IOException failure;
+
+	public WriteAheadLog(Path directory, Duration flushInterval, int batchSize) throws IOException {
+		this.directory = directory;
+		this.flushIntervalNanos = flushInterval.toNanos();
+		this.batchSize = batchSize;
+
+		lastSegment = segments().lastOption().getOrElse(0L);
+		writtenSegment = lastSegment;
+		channel = openSegment(writtenSegment);
+		channel.position(channel.size());
+
+		writer = new Thread(this::writeLoop, "wal-writer-" + directory.getFileName());
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	// Reads back every complete record of the segments starting from the given one. A torn record left by a crash
+	// in the middle of a write ends the log, it is cut off together with anything written after it.
+	public void replay(long fromSegment, Consumer<ByteBuffer> consumer) throws IOException {
+		for (Long replayed : segments().filter(number -> number >= fromSegment)) {
+			try (FileChannel segmentChannel = openSegment(replayed)) {
+				long end = replaySegment(segmentChannel, consumer);
+
+				if (end < segmentChannel.size()) {
+					segmentChannel.truncate(end);
+					continueAt(replayed);
+					break;
+				}
+			}
+		}
+
+		channel.position(channel.size());
+	}
+
+	public CompletableFuture<Void> append(byte[] record) {
+		return enqueue(new PendingRecord(record));
+	}
+
+	// Records appended before this call stay in the older segments, the ones appended after it go to the returned one.
+	public synchronized long rotate() {
+		enqueue(new PendingRecord(null));
+
+		return ++lastSegment;
+	}
+
+	public void deleteSegmentsBefore(long firstKept) throws IOException {
+		deleteSegments(number -> number < firstKept);
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		failPending();
+		channel.close();
+	}
+
+	// Fails what is left in the queue once the writer is gone, a record is taken out by whoever gets it first.
+	private void failPending() {
+		for (PendingRecord record = pending.poll(); record != null; record = pending.poll()) {
+			record.done.completeExceptionally(new IOException("Write-ahead log is closed"));
+		}
+	}
+
+	private void continueAt(long number) throws IOException {
+		if (writtenSegment != number) {
+			channel.close();
+			lastSegment = number;
+			writtenSegment = number;
+			channel = openSegment(number);
+		}
+
+		deleteSegments(later -> later > number);
+	}
+
+	private CompletableFuture<Void> enqueue(PendingRecord pendingRecord) {
+		if (failure != null) {
+			pendingRecord.done.completeExceptionally(failure);
+		} else if (closed) {
+			pendingRecord.done.completeExceptionally(new IOException("Write-ahead log is closed"));
+		} else {
+			pending.add(pendingRecord);
+
+			// Closed in the meantime, the writer may have stopped before it saw the record and close() drained
+			// the queue before it was added.
+			if (closed && !writer.isAlive()) {
+				failPending();
+			}
+		}
+
+		return pendingRecord.done;
+	}
+
+	private long replaySegment(FileChannel segmentChannel, Consumer<ByteBuffer> consumer) throws IOException {
+		long position = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+		while (true) {
+			header.clear();
+
+			if (!readFully(segmentChannel, header, position)) {
+				return position;
+			}
+
+			header.flip();
+			int length = header.getInt();
+			int checksum = header.getInt();
+
+			if (length < 0 || position + HEADER_SIZE + length > segmentChannel.size()) {
+				return position;
+			}
+
+			ByteBuffer payload = ByteBuffer.allocate(length);
+
+			if (!readFully(segmentChannel, payload, position + HEADER_SIZE) || checksum(payload.array()) != checksum) {
+				return position;
+			}
+
+			payload.flip();
+			consumer.accept(payload);
+
+			position += HEADER_SIZE + length;
+		}
+	}
+
+	private void writeLoop() {
+		List<PendingRecord> batch = new ArrayList<>(batchSize);
+
+		while (!closed || !pending.isEmpty()) {
+			try {
+				PendingRecord first = pending.poll(10, TimeUnit.MILLISECONDS);
+
+				if (first == null) {
+					continue;
+				}
+
+				batch.add(first);
+				collectBatch(batch);
+				write(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void collectBatch(List<PendingRecord> batch) throws InterruptedException {
+		long deadline = System.nanoTime() + flushIntervalNanos;
+
+		while (batch.size() < batchSize && !batch.get(batch.size() - 1).isRotation()) {
+			PendingRecord next = pending.poll();
+
+			if (next == null) {
+				long remaining = deadline - System.nanoTime();
+
+				if (remaining <= 0 || (next = pending.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+					return;
+				}
+			}
+
+			batch.add(next);
+		}
+	}
+
+	private void write(List<PendingRecord> batch) {
+		PendingRecord last = batch.get(batch.size() - 1);
+		List<PendingRecord> records = last.isRotation() ? batch.subList(0, batch.size() - 1) : batch;
+
+		try {
+			if (failure != null) {
+				throw failure;
+			}
+
+			if (!records.isEmpty()) {
+				writeRecords(records);
+			}
+
+			if (last.isRotation()) {
+				channel.close();
+				channel = openSegment(++writtenSegment);
+			}
+
+			batch.forEach(record -> record.done.complete(null));
+		} catch (IOException e) {
+			failure = e;
+			batch.forEach(record -> record.done.completeExceptionally(e));
+		}
+	}
+
+	private void writeRecords(List<PendingRecord> records) throws IOException {
+		ByteBuffer[] buffers = new ByteBuffer[records.size() * 2];
+
+		for (int i = 0; i < records.size(); i++) {
+			byte[] record = records.get(i).record;
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(record.length).putInt(checksum(record)).flip();
+
+			buffers[i * 2] = header;
+			buffers[i * 2 + 1] = ByteBuffer.wrap(record);
+		}
+
+		while (buffers[buffers.length - 1].hasRemaining()) {
+			channel.write(buffers);
+		}
+
+		channel.force(false);
+	}
+
+	// A new segment is only there after a crash once its directory entry is on disk as well.
+	private FileChannel openSegment(long number) throws IOException {
+		Path file = segmentFile(number);
+		boolean created = !Files.exists(file);
+		FileChannel segment = FileChannel.open(file,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		if (created) {
+			try {
+				syncDirectory(directory);
+			} catch (IOException e) {
+				segment.close();
+				throw e;
+			}
+		}
+
+		return segment;
+	}
+
+	// Forces the entries of a directory, i.e. files created, renamed or deleted in it, to disk.
+	public static void syncDirectory(Path directory) throws IOException {
+		try (FileChannel entries = FileChannel.open(directory, StandardOpenOption.READ)) {
+			entries.force(true);
+		}
+	}
+
+	private Path segmentFile(long number) {
+		return directory.resolve(String.format("wal-%020d.log", number));
+	}
+
+	private Seq<Long> segments() {
+		try (Stream<Path> files = Files.list(directory)) {
+			return Vector.ofAll(files::iterator)
+					.map(file -> SEGMENT_NAME.matcher(file.getFileName().toString()))
+					.filter(Matcher::matches)
+					.map(matcher -> Long.valueOf(matcher.group(1)))
+					.sorted();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void deleteSegments(LongPredicate selected) throws IOException {
+		for (Long number : segments().filter(selected::test)) {
+			if (number != writtenSegment) {
+				Files.deleteIfExists(segmentFile(number));
+			}
+		}
+	}
+
+	private static boolean readFully(FileChannel source, ByteBuffer buffer, long position) throws IOException {
+		int start = buffer.position();
+
+		while (buffer.hasRemaining()) {
+			int read = source.read(buffer, position + buffer.position() - start);
+
+			if (read < 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int checksum(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+
+		return (int) crc.getValue();
+	}
+
+	private static class PendingRecord {
+		private final byte[] record;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		private PendingRecord(byte[] record) {
+			this.record = record;
+		}
+
+		private boolean isRotation() {
+			return record == null;
+		}
+	}
+}
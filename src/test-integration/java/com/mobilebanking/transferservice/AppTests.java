@@ -2,9 +2,14 @@ package com.mobilebanking.transferservice;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mobilebanking.transferservice.controllers.BodyFormat;
 import com.mobilebanking.transferservice.dtos.AccountBody;
 import com.mobilebanking.transferservice.dtos.Account;
 import com.mobilebanking.transferservice.dtos.ImmutableAccountBody;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionBody;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
 import io.javalin.Javalin;
 import io.vavr.jackson.datatype.VavrModule;
 import okhttp3.MediaType;
@@ -225,10 +230,193 @@ public class AppTests {
 		assertThat(resultByFromId).contains(expected);
 	}
 
+	@Test
+	public void shouldReturnTransactionsPageByPage() throws IOException {
+		Long fromAccountId = createAccount(BigDecimal.valueOf(1000));
+		Long toAccountId = createAccount(BigDecimal.ZERO);
+
+		String body = "{ \n" +
+				"\t\"fromAccountId\": " + fromAccountId + ", \n" +
+				"\t\"toAccountId\": " + toAccountId + ", \n" +
+				"\t\"amount\": \"100\" \n" +
+				"}";
+
+		post(URL + "/v1/transaction/", body);
+		post(URL + "/v1/transaction/", body);
+		post(URL + "/v1/transaction/", body);
+
+		Request firstPageRequest = new Request.Builder()
+				.url(URL + "/v1/account/" + toAccountId + "/transactions?limit=2")
+				.build();
+
+		try (Response firstPage = client.newCall(firstPageRequest).execute()) {
+			String nextCursor = firstPage.header("X-Next-Cursor");
+
+			assertThat(firstPage.body().string().split("\"amount\"")).hasSize(3);
+			assertThat(nextCursor).isEqualTo("2");
+
+			String lastPage = get(URL + "/v1/account/" + toAccountId + "/transactions?limit=2&cursor=" + nextCursor);
+
+			assertThat(lastPage).containsOnlyOnce("\"amount\"");
+		}
+	}
+
+	@Test
+	public void shouldReturnTransactionsOnePerLineWhenAskedForNdjson() throws IOException {
+		Long fromAccountId = createAccount(BigDecimal.valueOf(1000));
+		Long toAccountId = createAccount(BigDecimal.ZERO);
+
+		String body = "{ \n" +
+				"\t\"fromAccountId\": " + fromAccountId + ", \n" +
+				"\t\"toAccountId\": " + toAccountId + ", \n" +
+				"\t\"amount\": \"100\" \n" +
+				"}";
+
+		post(URL + "/v1/transaction/", body);
+		post(URL + "/v1/transaction/", body);
+		post(URL + "/v1/transaction/", body);
+
+		Request request = new Request.Builder()
+				.url(URL + "/v1/account/" + toAccountId + "/transactions?limit=2")
+				.header("Accept", "application/x-ndjson")
+				.build();
+
+		try (Response response = client.newCall(request).execute()) {
+			String[] lines = response.body().string().split("\n");
+
+			assertThat(response.header("Content-Type")).startsWith("application/x-ndjson");
+			assertThat(response.header("X-Next-Cursor")).isEqualTo("2");
+			assertThat(lines).hasSize(2);
+
+			for (String line : lines) {
+				assertThat(objectMapper.readTree(line).get("toAccountId").asLong()).isEqualTo(toAccountId);
+			}
+		}
+	}
+
+	@Test
+	public void shouldReturnErrorOnInvalidPaginationParameter() throws IOException {
+		Request request = new Request.Builder()
+				.url(URL + "/v1/account/1/transactions?limit=0")
+				.build();
+
+		try (Response response = client.newCall(request).execute()) {
+			assertThat(response.code()).isEqualTo(400);
+		}
+	}
+
+	@Test
+	public void shouldApplyBatchAtomically() throws IOException {
+		Long fromAccountId = createAccount(BigDecimal.valueOf(100));
+		Long toAccountId = createAccount(BigDecimal.ZERO);
+
+		String body = "{\"transfers\": [" +
+				"{\"fromAccountId\": " + fromAccountId + ", \"toAccountId\": " + toAccountId + ", \"amount\": \"60\"}, " +
+				"{\"fromAccountId\": " + fromAccountId + ", \"toAccountId\": " + toAccountId + ", \"amount\": \"60\"}" +
+				"]}";
+
+		String result = post(URL + "/v1/transactions/batch", body);
+
+		assertThat(result).isEqualTo("Not sufficient balance");
+		assertThat(get(URL + "/v1/account/" + fromAccountId)).contains("\"balance\":\"100\"");
+	}
+
+	@Test
+	public void shouldReportFailedTransfersOfBestEffortBatch() throws IOException {
+		Long fromAccountId = createAccount(BigDecimal.valueOf(100));
+		Long toAccountId = createAccount(BigDecimal.ZERO);
+
+		String body = "{\"mode\": \"BEST_EFFORT\", \"transfers\": [" +
+				"{\"fromAccountId\": " + fromAccountId + ", \"toAccountId\": " + toAccountId + ", \"amount\": \"60\"}, " +
+				"{\"fromAccountId\": " + fromAccountId + ", \"toAccountId\": " + toAccountId + ", \"amount\": \"60\"}" +
+				"]}";
+
+		String result = post(URL + "/v1/transactions/batch", body);
+
+		assertThat(result).containsOnlyOnce("\"amount\":\"60\"");
+		assertThat(result).contains("\"error\":\"Not sufficient balance\"");
+		assertThat(get(URL + "/v1/account/" + toAccountId)).contains("\"balance\":\"60\"");
+	}
+
+	@Test
+	public void shouldApplyRetriedTransferOnce() throws IOException {
+		Long fromAccountId = createAccount(BigDecimal.valueOf(100));
+		Long toAccountId = createAccount(BigDecimal.ZERO);
+
+		String body = "{\"fromAccountId\": " + fromAccountId + ", \"toAccountId\": " + toAccountId + ", \"amount\": \"10\"}";
+
+		Request request = new Request.Builder()
+				.url(URL + "/v1/transaction/")
+				.header("Idempotency-Key", "retry-" + fromAccountId)
+				.post(RequestBody.create(JSON, body))
+				.build();
+
+		String first;
+		try (Response response = client.newCall(request).execute()) {
+			first = response.body().string();
+		}
+
+		try (Response retry = client.newCall(request).execute()) {
+			assertThat(retry.code()).isEqualTo(201);
+			assertThat(retry.body().string()).isEqualTo(first);
+		}
+
+		assertThat(get(URL + "/v1/account/" + fromAccountId)).contains("\"balance\":\"90\"");
+	}
+
+	@Test
+	public void shouldTransferWithSmileBodies() throws IOException {
+		Long fromAccountId = createAccount(BigDecimal.valueOf(100));
+		Long toAccountId = createAccount(BigDecimal.ZERO);
+
+		ObjectMapper smile = BodyFormat.SMILE.getObjectMapper();
+		MediaType smileType = MediaType.get(BodyFormat.SMILE.getMediaType());
+
+		TransactionBody body = ImmutableTransactionBody.builder()
+				.fromAccountId(fromAccountId)
+				.toAccountId(toAccountId)
+				.amount(Money.valueOf(25))
+				.build();
+
+		Request request = new Request.Builder()
+				.url(URL + "/v1/transaction/")
+				.header("Accept", BodyFormat.SMILE.getMediaType())
+				.post(RequestBody.create(smileType, smile.writeValueAsBytes(body)))
+				.build();
+
+		try (Response response = client.newCall(request).execute()) {
+			Transaction transaction = smile.readValue(response.body().bytes(), Transaction.class);
+
+			assertThat(response.code()).isEqualTo(201);
+			assertThat(response.header("Content-Type")).startsWith(BodyFormat.SMILE.getMediaType());
+			assertThat(transaction.getToAccountId()).isEqualTo(toAccountId);
+			assertThat(transaction.getAmount()).isEqualTo(Money.valueOf(25));
+		}
+
+		assertThat(get(URL + "/v1/account/" + toAccountId)).contains("\"balance\":\"25\"");
+	}
+
+	@Test
+	public void shouldExposeMetrics() throws IOException {
+		Long fromAccountId = createAccount(BigDecimal.ONE);
+		Long toAccountId = createAccount(BigDecimal.ZERO);
+
+		post(URL + "/v1/transaction/",
+				"{\"fromAccountId\":" + fromAccountId + ",\"toAccountId\":" + toAccountId + ",\"amount\":5}");
+
+		assertThat(get(URL + "/metrics"))
+				.contains("# TYPE http_request_duration_seconds summary")
+				.contains("http_request_duration_seconds_count{route=\"POST /v1/account\"}")
+				.contains("transfer_component_failures_total{method=\"transferMoneyAsync\",exception=\"NotSufficientBalance\"}")
+				.contains("storage_lock_wait_seconds{storage=\"striped\",quantile=\"0.99\"}")
+				.contains("storage_rollbacks_total{storage=\"striped\"}")
+				.contains("json_duration_seconds_count{direction=\"serialize\"}");
+	}
+
 	private Long createAccount(BigDecimal initialBalance) throws IOException {
 		AccountBody accountBody = ImmutableAccountBody
 				.builder()
-				.balance(initialBalance)
+				.balance(Money.of(initialBalance))
 				.build();
 
 		String body = objectMapper.writeValueAsString(accountBody);
@@ -0,0 +1,275 @@
+package com.mobilebanking.transferservice.cluster;
+
+import com.mobilebanking.transferservice.components.TransferComponent;
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.BatchSpansNodes;
+import com.mobilebanking.transferservice.components.exceptions.NodeIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionBody;
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.services.PartitionedStorage;
+import com.mobilebanking.transferservice.services.SimpleInMemoryStorageImpl;
+import com.mobilebanking.transferservice.services.wal.WriteAheadLog;
+import io.vavr.collection.List;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class ClusterNodeTests {
+	// Two nodes sharing four partitions, accounts 1 and 2 are the first ones of node 0 and node 1.
+	private static final int PARTITIONS = 4;
+
+	private List<InetSocketAddress> addresses;
+	private Path dataDirectory;
+	private ClusterNode[] nodes;
+
+	@BeforeMethod
+	public void init() throws IOException {
+		addresses = List.of(freeAddress(), freeAddress());
+		dataDirectory = Files.createTempDirectory("cluster");
+		nodes = new ClusterNode[2];
+	}
+
+	@AfterMethod
+	public void close() throws IOException {
+		for (ClusterNode node : nodes) {
+			if (node != null) {
+				node.close();
+			}
+		}
+	}
+
+	@Test
+	public void shouldForwardRequestsForAccountsOfOtherNodes()
+			throws IOException, AccountIsNotAvailable, BalanceIsNotZero {
+		TransferComponent first = start(0).getTransferComponent();
+		TransferComponent second = start(1).getTransferComponent();
+
+		Account created = second.createAccount(Money.ZERO);
+
+		assertThat(topology(0).isLocal(created.getId())).isFalse();
+		assertThat(first.getAccount(created.getId())).isEqualTo(created);
+		assertThat(first.getAccount(2L).getBalance()).isEqualTo(Money.ZERO);
+		assertThat(first.closeAccount(created.getId()).getStatus()).isEqualTo(Account.AccountStatus.CLOSED);
+		assertThat(second.getAccount(created.getId()).getStatus()).isEqualTo(Account.AccountStatus.CLOSED);
+		assertThat(catchThrowable(() -> first.getAccount(created.getId() + 2 * PARTITIONS)))
+				.isInstanceOf(AccountIsNotAvailable.class);
+	}
+
+	@Test
+	public void shouldTransferAcrossNodes() throws IOException, NotSufficientBalance, AccountIsNotAvailable {
+		TransferComponent first = start(0).getTransferComponent();
+		TransferComponent second = start(1).getTransferComponent();
+		Account source = first.createAccount(Money.valueOf(10));
+		Account target = second.createAccount(Money.ZERO);
+
+		// Sent to the second node, which forwards it to the first one owning the source.
+		second.transferMoney(source.getId(), target.getId(), Money.valueOf(4));
+
+		assertThat(second.getAccount(source.getId()).getBalance()).isEqualTo(Money.valueOf(6));
+		assertThat(first.getAccount(target.getId()).getBalance()).isEqualTo(Money.valueOf(4));
+		assertThat(first.getTransactionsForAccount(target.getId())).hasSize(1);
+		assertThat(second.getTransactionsForAccount(source.getId())).hasSize(1);
+		assertThat(nodes[0].getCoordinator().getUnacknowledgedCount()).isZero();
+		assertThat(nodes[1].getParticipant().getPreparedCount()).isZero();
+	}
+
+	@Test
+	public void shouldNotSendForwardedTransfersAgainAfterTheirConnectionBroke()
+			throws IOException, NotSufficientBalance, AccountIsNotAvailable {
+		start(0);
+		TransferComponent second = start(1).getTransferComponent();
+		second.transferMoney(1L, 2L, Money.valueOf(1));
+
+		nodes[0].close();
+		start(0);
+		Throwable refused = catchThrowable(() -> second.transferMoney(1L, 2L, Money.valueOf(1)));
+
+		assertThat(refused).isInstanceOf(NodeIsNotAvailable.class);
+		assertThat(second.getAccount(1L).getBalance()).isEqualTo(Money.valueOf(99912, 2));
+
+		second.transferMoney(1L, 2L, Money.valueOf(1));
+
+		assertThat(second.getAccount(1L).getBalance()).isEqualTo(Money.valueOf(99812, 2));
+	}
+
+	@Test
+	public void shouldRefuseBatchesSpanningNodes() throws IOException, AccountIsNotAvailable {
+		start(0);
+		TransferComponent second = start(1).getTransferComponent();
+
+		Throwable refused = catchThrowable(() -> second.transferMoney(List.of(
+				ImmutableTransactionBody.builder().fromAccountId(1L).toAccountId(3L).amount(Money.valueOf(1)).build(),
+				ImmutableTransactionBody.builder().fromAccountId(1L).toAccountId(2L).amount(Money.valueOf(1)).build()),
+				BatchTransferBody.BatchMode.ATOMIC));
+
+		assertThat(refused).isInstanceOf(BatchSpansNodes.class);
+		assertThat(second.getAccount(1L).getBalance()).isEqualTo(Money.valueOf(100012, 2));
+	}
+
+	@Test
+	public void shouldRollbackDebitWhenParticipantVotesNo() throws IOException, AccountIsNotAvailable, BalanceIsNotZero {
+		TransferComponent first = start(0).getTransferComponent();
+		TransferComponent second = start(1).getTransferComponent();
+		Account source = first.createAccount(Money.valueOf(10));
+		Account target = second.createAccount(Money.ZERO);
+		second.closeAccount(target.getId());
+
+		Throwable refused = catchThrowable(() -> first.transferMoney(source.getId(), target.getId(), Money.valueOf(4)));
+
+		assertThat(refused).isInstanceOf(AccountIsNotAvailable.class);
+		assertThat(first.getAccount(source.getId())).isEqualTo(source);
+		assertThat(first.getTransactionsForAccount(source.getId())).isEmpty();
+	}
+
+	@Test
+	public void shouldRollbackDebitWhileParticipantIsDownAndTransferAfterItsRestart()
+			throws IOException, NotSufficientBalance, AccountIsNotAvailable {
+		TransferComponent first = start(0).getTransferComponent();
+		start(1);
+		Account source = first.createAccount(Money.valueOf(10));
+
+		nodes[1].close();
+		Throwable refused = catchThrowable(() -> first.transferMoney(source.getId(), 2L, Money.valueOf(4)));
+
+		assertThat(refused).isInstanceOf(NodeIsNotAvailable.class);
+		assertThat(first.getAccount(source.getId())).isEqualTo(source);
+
+		start(1);
+		first.transferMoney(source.getId(), 2L, Money.valueOf(4));
+
+		assertThat(first.getAccount(source.getId()).getBalance()).isEqualTo(Money.valueOf(6));
+		assertThat(first.getAccount(2L).getBalance()).isEqualTo(Money.valueOf(4));
+	}
+
+	@Test
+	public void shouldCommitLoggedDecisionsAfterCoordinatorRestart() throws IOException, AccountIsNotAvailable {
+		UUID transfer = UUID.randomUUID();
+		Transaction transaction = transaction(1L, 2L, Money.valueOf(3));
+
+		// The coordinator crashed after deciding to commit, before its debit reached the partition's log and
+		// before the participant acknowledged it.
+		Path log = dataDirectory.resolve("node-0").resolve("coordinator-0");
+		Files.createDirectories(log);
+		try (WriteAheadLog decisions = new WriteAheadLog(log, Duration.ZERO, 1)) {
+			decisions.append(Coordinator.commitRecord(transfer, 1, transaction)).join();
+		}
+
+		start(1).getParticipant().prepareCredit(transfer, 0, transaction);
+		start(0);
+
+		awaitTrue(() -> nodes[0].getCoordinator().getUnacknowledgedCount() == 0);
+
+		assertThat(nodes[1].getParticipant().getPreparedCount()).isZero();
+		assertThat(nodes[1].getTransferComponent().getAccount(2L).getBalance()).isEqualTo(Money.valueOf(3));
+		assertThat(nodes[0].getTransferComponent().getAccount(1L).getBalance()).isEqualTo(Money.valueOf(99712, 2));
+		assertThat(nodes[0].getTransferComponent().getTransactionsForAccount(1L)).containsExactly(transaction);
+	}
+
+	@Test
+	public void shouldRedoEachLoggedDebitOnce() throws IOException, NotSufficientBalance, AccountIsNotAvailable {
+		TransferComponent first = start(0).getTransferComponent();
+		start(1);
+		first.transferMoney(1L, 2L, Money.valueOf(3));
+
+		nodes[0].close();
+		nodes[1].close();
+		start(0);
+		start(1);
+
+		assertThat(nodes[0].getTransferComponent().getAccount(1L).getBalance()).isEqualTo(Money.valueOf(99712, 2));
+		assertThat(nodes[1].getTransferComponent().getAccount(2L).getBalance()).isEqualTo(Money.valueOf(3));
+		assertThat(nodes[0].getTransferComponent().getTransactionsForAccount(1L)).hasSize(1);
+	}
+
+	@Test
+	public void shouldKeepPreparedCreditsAcrossParticipantRestart() throws IOException, AccountIsNotAvailable {
+		UUID transfer = UUID.randomUUID();
+		Transaction transaction = transaction(1L, 2L, Money.valueOf(3));
+
+		start(1).getParticipant().prepareCredit(transfer, 0, transaction);
+		nodes[1].close();
+
+		Participant participant = start(1).getParticipant();
+
+		assertThat(participant.getPreparedCount()).isEqualTo(1);
+
+		participant.commit(transfer);
+		participant.commit(transfer);
+		nodes[1].close();
+
+		assertThat(start(1).getParticipant().getPreparedCount()).isZero();
+		assertThat(nodes[1].getTransferComponent().getAccount(2L).getBalance()).isEqualTo(Money.valueOf(3));
+		assertThat(nodes[1].getTransferComponent().getTransactionsForAccount(2L)).containsExactly(transaction);
+	}
+
+	@Test
+	public void shouldAbortInDoubtCreditsTheCoordinatorHasNoDecisionFor() throws IOException, AccountIsNotAvailable {
+		start(0);
+		start(1).getParticipant().prepareCredit(UUID.randomUUID(), 0, transaction(1L, 2L, Money.valueOf(3)));
+
+		awaitTrue(() -> nodes[1].getParticipant().getPreparedCount() == 0);
+
+		assertThat(nodes[1].getTransferComponent().getAccount(2L).getBalance()).isEqualTo(Money.ZERO);
+	}
+
+	private ClusterNode start(int nodeId) throws IOException {
+		// Every node logs to a directory of its own, like it would on a host of its own.
+		Path directory = dataDirectory.resolve("node-" + nodeId);
+		PartitionedStorage storage = new PartitionedStorage(PARTITIONS, topology(nodeId)::ownsPartition,
+				(partition, partitions) -> new SimpleInMemoryStorageImpl(partition, partitions, new WriteAheadLog(
+						Files.createDirectories(directory.resolve("partition-" + partition)), Duration.ZERO, 64)));
+
+		nodes[nodeId] = new ClusterNode(topology(nodeId), storage, directory,
+				Duration.ofSeconds(1), Duration.ofMillis(50), Duration.ofMillis(200));
+
+		return nodes[nodeId];
+	}
+
+	private static Transaction transaction(Long fromAccountId, Long toAccountId, Money amount) {
+		return ImmutableTransaction
+				.builder()
+				.fromAccountId(fromAccountId)
+				.toAccountId(toAccountId)
+				.amount(amount)
+				.timeStamp(Instant.now())
+				.build();
+	}
+
+	private ClusterTopology topology(int nodeId) {
+		return new ClusterTopology(addresses, nodeId, PARTITIONS);
+	}
+
+	private static InetSocketAddress freeAddress() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return new InetSocketAddress("localhost", socket.getLocalPort());
+		}
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.yield();
+		}
+	}
+}
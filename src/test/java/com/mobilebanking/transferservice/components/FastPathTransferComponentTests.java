@@ -0,0 +1,89 @@
+package com.mobilebanking.transferservice.components;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.services.FastPathStorageImpl;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class FastPathTransferComponentTests {
+	private final FastPathTransferComponentImpl tested = new FastPathTransferComponentImpl(new FastPathStorageImpl(16));
+
+	@Test
+	public void shouldTransferBetweenBalancesOfDifferentScales() throws NotSufficientBalance, AccountIsNotAvailable {
+		Account source = tested.createAccount(Money.valueOf(10));
+		Account target = tested.createAccount(Money.valueOf(1, 1));
+
+		Transaction transaction = tested.transferMoney(source.getId(), target.getId(), Money.valueOf(250, 2));
+
+		assertThat(transaction.getAmount()).isEqualTo(Money.valueOf(250, 2));
+		assertThat(tested.getAccount(source.getId()).getBalance().toString()).isEqualTo("7.50");
+		assertThat(tested.getAccount(target.getId()).getBalance().toString()).isEqualTo("2.60");
+		assertThat(tested.getTransactionsForAccount(target.getId())).containsExactly(transaction);
+	}
+
+	@Test
+	public void shouldRefuseWithSharedExceptionsAndWriteNothing() throws AccountIsNotAvailable {
+		Account source = tested.createAccount(Money.valueOf(5));
+		Account target = tested.createAccount(Money.ZERO);
+
+		Throwable notSufficient = catchThrowable(() ->
+				tested.transferMoney(source.getId(), target.getId(), Money.valueOf(6)));
+		Throwable notAvailable = catchThrowable(() ->
+				tested.transferMoney(source.getId(), -1L, Money.valueOf(1)));
+
+		assertThat(notSufficient).isSameAs(NotSufficientBalance.STACKLESS);
+		assertThat(notSufficient.getStackTrace()).isEmpty();
+		assertThat(notAvailable).isSameAs(AccountIsNotAvailable.STACKLESS);
+		assertThat(catchThrowable(() -> tested.transferMoney(-1L, target.getId(), Money.valueOf(1))))
+				.isSameAs(NotSufficientBalance.STACKLESS);
+		assertThat(tested.getTransactionsForAccount(source.getId())).isEmpty();
+		assertThat(tested.getAccount(source.getId()).getBalance()).isEqualTo(Money.valueOf(5));
+	}
+
+	@Test
+	public void shouldKeepBalanceOfTransferToSameAccount() throws NotSufficientBalance, AccountIsNotAvailable {
+		Account account = tested.createAccount(Money.valueOf(5));
+
+		tested.transferMoney(account.getId(), account.getId(), Money.valueOf(3));
+
+		assertThat(tested.getAccount(account.getId()).getBalance()).isEqualTo(Money.valueOf(5));
+		assertThat(tested.getTransactionsForAccount(account.getId())).hasSize(1);
+	}
+
+	@Test
+	public void shouldKeepTotalBalanceUnderConcurrentTransfers() throws InterruptedException, AccountIsNotAvailable {
+		Account first = tested.createAccount(Money.valueOf(1000));
+		Account second = tested.createAccount(Money.valueOf(1000));
+
+		Thread[] senders = new Thread[4];
+		for (int i = 0; i < senders.length; i++) {
+			boolean forward = i % 2 == 0;
+
+			senders[i] = new Thread(() -> {
+				for (int j = 0; j < 5000; j++) {
+					try {
+						tested.transferMoney(forward ? first.getId() : second.getId(),
+								forward ? second.getId() : first.getId(), Money.valueOf(1));
+					} catch (NotSufficientBalance | AccountIsNotAvailable ignored) {
+					}
+				}
+			});
+			senders[i].start();
+		}
+
+		for (Thread sender : senders) {
+			sender.join();
+		}
+
+		Money total = tested.getAccount(first.getId()).getBalance()
+				.add(tested.getAccount(second.getId()).getBalance());
+
+		assertThat(total).isEqualTo(Money.valueOf(2000));
+	}
+}
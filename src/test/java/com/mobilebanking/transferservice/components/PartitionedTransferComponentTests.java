@@ -0,0 +1,101 @@
+package com.mobilebanking.transferservice.components;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.services.PartitionedStorage;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class PartitionedTransferComponentTests {
+	private final PartitionedStorage storage = new PartitionedStorage(4);
+	private final PartitionedTransferComponentImpl tested = new PartitionedTransferComponentImpl(storage);
+
+	@Test
+	public void shouldTransferWithinAndAcrossPartitions() throws NotSufficientBalance, AccountIsNotAvailable {
+		Account source = tested.createAccount(Money.valueOf(10));
+		Account across = tested.createAccount(Money.ZERO);
+		Account within = accountInPartitionOf(source);
+
+		Transaction first = tested.transferMoney(source.getId(), across.getId(), Money.valueOf(3));
+		Transaction second = tested.transferMoney(source.getId(), within.getId(), Money.valueOf(2));
+
+		assertThat(storage.partitionOf(source.getId())).isNotEqualTo(storage.partitionOf(across.getId()));
+		assertThat(tested.getAccount(source.getId()).getBalance()).isEqualTo(Money.valueOf(5));
+		assertThat(tested.getAccount(across.getId()).getBalance()).isEqualTo(Money.valueOf(3));
+		assertThat(tested.getAccount(within.getId()).getBalance()).isEqualTo(Money.valueOf(2));
+		assertThat(tested.getTransactionsForAccount(source.getId())).containsExactly(first, second);
+		assertThat(tested.getTransactionsForAccount(across.getId())).containsExactly(first);
+		assertThat(tested.getTransactionsForAccount(within.getId())).containsExactly(second);
+	}
+
+	@Test
+	public void shouldRollbackPreparedSideWhenOtherVotesNo()
+			throws NotSufficientBalance, AccountIsNotAvailable, BalanceIsNotZero {
+		Account source = tested.createAccount(Money.valueOf(10));
+		Account target = tested.createAccount(Money.valueOf(1));
+		tested.transferMoney(target.getId(), source.getId(), Money.valueOf(1));
+		tested.closeAccount(target.getId());
+
+		// The source is in the lower partition, so the first transfer prepares its debit first and the second its credit.
+		Throwable toClosed = catchThrowable(() ->
+				tested.transferMoney(source.getId(), target.getId(), Money.valueOf(1)));
+		Throwable fromClosed = catchThrowable(() ->
+				tested.transferMoney(target.getId(), source.getId(), Money.valueOf(1)));
+		Throwable tooMuch = catchThrowable(() ->
+				tested.transferMoney(source.getId(), 3L, Money.valueOf(100)));
+
+		assertThat(toClosed).isInstanceOf(AccountIsNotAvailable.class);
+		assertThat(fromClosed).isInstanceOf(NotSufficientBalance.class);
+		assertThat(tooMuch).isInstanceOf(NotSufficientBalance.class);
+		assertThat(tested.getAccount(source.getId()).getBalance()).isEqualTo(Money.valueOf(11));
+		assertThat(tested.getTransactionsForAccount(source.getId())).hasSize(1);
+		assertThat(tested.getTransactionsForAccount(target.getId())).hasSize(1);
+	}
+
+	@Test
+	public void shouldKeepTotalBalanceUnderOppositeTransfers() throws InterruptedException {
+		Account first = tested.createAccount(Money.valueOf(1000));
+		Account second = tested.createAccount(Money.valueOf(1000));
+
+		Thread[] senders = new Thread[4];
+		for (int i = 0; i < senders.length; i++) {
+			boolean forward = i % 2 == 0;
+
+			senders[i] = new Thread(() -> {
+				for (int j = 0; j < 5000; j++) {
+					try {
+						tested.transferMoney(forward ? first.getId() : second.getId(),
+								forward ? second.getId() : first.getId(), Money.valueOf(1));
+					} catch (NotSufficientBalance | AccountIsNotAvailable ignored) {
+					}
+				}
+			});
+			senders[i].start();
+		}
+
+		for (Thread sender : senders) {
+			sender.join();
+		}
+
+		Money total = storage.getAccount(first.getId()).get().getBalance()
+				.add(storage.getAccount(second.getId()).get().getBalance());
+
+		assertThat(total).isEqualTo(Money.valueOf(2000));
+	}
+
+	private Account accountInPartitionOf(Account account) {
+		Account created;
+
+		do {
+			created = tested.createAccount(Money.ZERO);
+		} while (storage.partitionOf(created.getId()) != storage.partitionOf(account.getId()));
+
+		return created;
+	}
+}
@@ -0,0 +1,115 @@
+package com.mobilebanking.transferservice.components;
+
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.services.SimpleInMemoryStorageImpl;
+import com.mobilebanking.transferservice.services.wal.WriteAheadLog;
+import io.vavr.collection.List;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class SequencedTransferComponentTests {
+	private final SequencedTransferComponentImpl tested =
+			new SequencedTransferComponentImpl(new SimpleInMemoryStorageImpl(), 64);
+
+	@After
+	public void close() {
+		tested.close();
+	}
+
+	@Test
+	public void shouldApplyQueuedTransfersAndRefuseOnlyThoseWithoutBalance() throws AccountIsNotAvailable {
+		Account source = tested.createAccount(Money.valueOf(50));
+		Account target = tested.createAccount(Money.ZERO);
+
+		List<CompletableFuture<Transaction>> results = List.range(0, 200)
+				.map(i -> tested.transferMoneyAsync(source.getId(), target.getId(), Money.valueOf(1)));
+
+		List<Throwable> failures = results
+				.map(result -> catchThrowable(result::join))
+				.filter(failure -> failure != null);
+
+		assertThat(failures).hasSize(150);
+		assertThat(failures).allSatisfy(failure -> assertThat(failure)
+				.isInstanceOf(CompletionException.class)
+				.hasCauseInstanceOf(NotSufficientBalance.class));
+		assertThat(tested.getAccount(source.getId()).getBalance()).isEqualTo(Money.ZERO);
+		assertThat(tested.getAccount(target.getId()).getBalance()).isEqualTo(Money.valueOf(50));
+		assertThat(tested.getTransactionsForAccount(target.getId())).hasSize(50);
+	}
+
+	@Test
+	public void shouldKeepTotalBalanceUnderConcurrentTransfers() throws InterruptedException, AccountIsNotAvailable {
+		Account first = tested.createAccount(Money.valueOf(1000));
+		Account second = tested.createAccount(Money.valueOf(1000));
+
+		Thread[] senders = new Thread[4];
+		for (int i = 0; i < senders.length; i++) {
+			boolean forward = i % 2 == 0;
+
+			senders[i] = new Thread(() -> {
+				for (int j = 0; j < 500; j++) {
+					try {
+						tested.transferMoney(forward ? first.getId() : second.getId(),
+								forward ? second.getId() : first.getId(), Money.valueOf(1));
+					} catch (NotSufficientBalance | AccountIsNotAvailable ignored) {
+					}
+				}
+			});
+			senders[i].start();
+		}
+
+		for (Thread sender : senders) {
+			sender.join();
+		}
+
+		Money total = tested.getAccount(first.getId()).getBalance()
+				.add(tested.getAccount(second.getId()).getBalance());
+
+		assertThat(total).isEqualTo(Money.valueOf(2000));
+	}
+
+	@Test
+	public void shouldRethrowCheckedExceptionsOfSynchronousCalls() {
+		Account account = tested.createAccount(Money.valueOf(10));
+
+		assertThat(catchThrowable(() -> tested.closeAccount(account.getId()))).isInstanceOf(BalanceIsNotZero.class);
+		assertThat(catchThrowable(() -> tested.transferMoney(account.getId(), -1L, Money.valueOf(1))))
+				.isInstanceOf(AccountIsNotAvailable.class);
+	}
+
+	@Test(timeout = 10_000)
+	public void shouldFailTransfersAndKeepRunningAfterAFailedLogWrite() throws IOException {
+		WriteAheadLog writeAheadLog = new WriteAheadLog(Files.createTempDirectory("wal"), Duration.ZERO, 64);
+		SequencedTransferComponentImpl durable =
+				new SequencedTransferComponentImpl(new SimpleInMemoryStorageImpl(writeAheadLog), 64);
+
+		try {
+			Account source = durable.createAccount(Money.valueOf(10));
+			Account target = durable.createAccount(Money.ZERO);
+			writeAheadLog.close();
+
+			Throwable failed = catchThrowable(() -> durable.transferMoney(source.getId(), target.getId(), Money.valueOf(1)));
+			Throwable refused = catchThrowable(() -> durable.transferMoney(source.getId(), target.getId(), Money.valueOf(1)));
+
+			assertThat(failed).hasRootCauseInstanceOf(IOException.class);
+			assertThat(refused).isInstanceOf(IllegalStateException.class);
+			assertThat(catchThrowable(() -> durable.createAccount(Money.ZERO))).isInstanceOf(IllegalStateException.class);
+		} finally {
+			durable.close();
+		}
+	}
+}
@@ -4,9 +4,14 @@ import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvail
 import com.mobilebanking.transferservice.components.exceptions.BalanceIsNotZero;
 import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
 import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.BatchTransferBody;
 import com.mobilebanking.transferservice.dtos.ImmutableAccount;
 import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionBody;
+import com.mobilebanking.transferservice.dtos.Money;
 import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.dtos.TransferResult;
 import com.mobilebanking.transferservice.services.Storage;
 import io.vavr.collection.List;
 import io.vavr.control.Option;
@@ -16,10 +21,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -32,7 +37,7 @@ public class TransferComponentTests {
 
 	@Test
 	public void shouldCreateNewAccountWithInitialBalance() {
-		BigDecimal expectedBalance = BigDecimal.valueOf(24.22);
+		Money expectedBalance = Money.valueOf(2422, 2);
 		Long expectedId = 1L;
 
 		Account expectedAccount = ImmutableAccount
@@ -61,7 +66,7 @@ public class TransferComponentTests {
 		ImmutableAccount accountWithZeroBalance = ImmutableAccount
 				.builder()
 				.id(1L)
-				.balance(BigDecimal.ZERO)
+				.balance(Money.ZERO)
 				.status(Account.AccountStatus.ACTIVE)
 				.build();
 
@@ -91,7 +96,7 @@ public class TransferComponentTests {
 		ImmutableAccount accountWithNotZeroBalance = ImmutableAccount
 				.builder()
 				.id(1L)
-				.balance(BigDecimal.valueOf(100.00))
+				.balance(Money.valueOf(100))
 				.status(Account.AccountStatus.ACTIVE)
 				.build();
 
@@ -135,7 +140,7 @@ public class TransferComponentTests {
 		Account closedAccount = ImmutableAccount
 				.builder()
 				.id(1L)
-				.balance(BigDecimal.ZERO)
+				.balance(Money.ZERO)
 				.status(Account.AccountStatus.CLOSED)
 				.build();
 
@@ -155,7 +160,7 @@ public class TransferComponentTests {
 
 		Long expectedFromId1 = 987654321L;
 		Long expectedToId1 = 122555324L;
-		BigDecimal expectedAmount1 = BigDecimal.valueOf(100.00);
+		Money expectedAmount1 = Money.valueOf(100);
 		Instant expectedTime1 = Instant.now();
 
 		Transaction expectedTransactions1 = ImmutableTransaction
@@ -168,7 +173,7 @@ public class TransferComponentTests {
 
 		Long expectedFromId2 = 123456789L;
 		Long expectedToId2 = 987654321L;
-		BigDecimal expectedAmount2 = BigDecimal.valueOf(50.00);
+		Money expectedAmount2 = Money.valueOf(50);
 		Instant expectedTime2 = Instant.now();
 
 		Transaction expectedTransactions2 = ImmutableTransaction
@@ -197,7 +202,7 @@ public class TransferComponentTests {
 	@Test
 	public void shouldReturnBalanceForAccount() throws AccountIsNotAvailable {
 		Long accountId = 123456789L;
-		BigDecimal expectedBalance = BigDecimal.valueOf(100.00);
+		Money expectedBalance = Money.valueOf(100);
 
 		Account account = ImmutableAccount
 				.builder()
@@ -234,8 +239,8 @@ public class TransferComponentTests {
 		Long transferFrom = 123456789L;
 		Long transferTo = 987654321L;
 
-		BigDecimal initialAmountFrom = BigDecimal.valueOf(200.00);
-		BigDecimal initialAmountTo = BigDecimal.ZERO;
+		Money initialAmountFrom = Money.valueOf(200);
+		Money initialAmountTo = Money.ZERO;
 
 		Account fromAccount = ImmutableAccount
 				.builder()
@@ -251,7 +256,7 @@ public class TransferComponentTests {
 				.status(Account.AccountStatus.ACTIVE)
 				.build();
 
-		BigDecimal amount = BigDecimal.valueOf(100.00);
+		Money amount = Money.valueOf(100);
 
 		Transaction transaction = ImmutableTransaction
 				.builder()
@@ -276,7 +281,7 @@ public class TransferComponentTests {
 		Transaction actualTransaction = tested.transferMoney(transferFrom, transferTo, amount);
 
 
-		verify(mockStorage).startDbTransaction();
+		verify(mockStorage).startDbTransaction(transferFrom, transferTo);
 		verify(mockStorage).getAccount(transferFrom);
 		verify(mockStorage).getAccount(transferTo);
 		verify(mockStorage).setAccount(transferFrom, initialAmountFrom.subtract(amount));
@@ -295,9 +300,9 @@ public class TransferComponentTests {
 		Long transferFrom = 123456789L;
 		Long transferTo = 987654321L;
 
-		BigDecimal initialAmountFrom = BigDecimal.valueOf(99.99);
-		BigDecimal initialAmountTo = BigDecimal.ZERO;
-		BigDecimal amount = BigDecimal.valueOf(100.00);
+		Money initialAmountFrom = Money.valueOf(9999, 2);
+		Money initialAmountTo = Money.ZERO;
+		Money amount = Money.valueOf(100);
 
 		Account fromAccount = ImmutableAccount
 				.builder()
@@ -334,8 +339,8 @@ public class TransferComponentTests {
 		Long transferFrom = 123456789L;
 		Long transferTo = 987654321L;
 
-		BigDecimal initialAmountFrom = BigDecimal.valueOf(1000.00);
-		BigDecimal amount = BigDecimal.valueOf(100.00);
+		Money initialAmountFrom = Money.valueOf(1000);
+		Money amount = Money.valueOf(100);
 
 		Account fromAccount = ImmutableAccount
 				.builder()
@@ -365,9 +370,9 @@ public class TransferComponentTests {
 		Long transferFrom = 123456789L;
 		Long transferTo = 987654321L;
 
-		BigDecimal initialAmountFrom = BigDecimal.ZERO;
-		BigDecimal initialAmountTo = BigDecimal.ZERO;
-		BigDecimal amount = BigDecimal.valueOf(100.00);
+		Money initialAmountFrom = Money.ZERO;
+		Money initialAmountTo = Money.ZERO;
+		Money amount = Money.valueOf(100);
 
 		Account fromAccount = ImmutableAccount
 				.builder()
@@ -404,9 +409,9 @@ public class TransferComponentTests {
 		Long transferFrom = 123456789L;
 		Long transferTo = 987654321L;
 
-		BigDecimal initialAmountFrom = BigDecimal.valueOf(300.00);
-		BigDecimal initialAmountTo = BigDecimal.ZERO;
-		BigDecimal amount = BigDecimal.valueOf(100.00);
+		Money initialAmountFrom = Money.valueOf(300);
+		Money initialAmountTo = Money.ZERO;
+		Money amount = Money.valueOf(100);
 
 		Account fromAccount = ImmutableAccount
 				.builder()
@@ -437,4 +442,116 @@ public class TransferComponentTests {
 			verify(mockStorage).rollbackDbTransaction();
 		}
 	}
+
+	@Test
+	public void shouldRollbackWholeAtomicBatchOnFailedTransfer() throws AccountIsNotAvailable {
+		Storage mockStorage = mock(Storage.class);
+		TransferComponent tested = new TransferComponentImpl(mockStorage);
+
+		stubAccounts(mockStorage);
+
+		try {
+			tested.transferMoney(batch(), BatchTransferBody.BatchMode.ATOMIC);
+			fail("Expected NotSufficientBalance");
+		} catch (NotSufficientBalance notSufficientBalance) {
+			verify(mockStorage).startDbTransaction(1L, 2L);
+			verify(mockStorage).rollbackDbTransaction();
+			verify(mockStorage, never()).commitDbTransaction();
+		}
+	}
+
+	@Test
+	public void shouldReportFailedTransferOfBestEffortBatch() throws NotSufficientBalance, AccountIsNotAvailable {
+		Storage mockStorage = mock(Storage.class);
+		TransferComponent tested = new TransferComponentImpl(mockStorage);
+
+		Transaction applied = stubAccounts(mockStorage);
+
+		List<TransferResult> results = tested.transferMoney(batch(), BatchTransferBody.BatchMode.BEST_EFFORT);
+
+		assertThat(results).containsExactly(
+				TransferResult.success(applied),
+				TransferResult.failure("Not sufficient balance"));
+		verify(mockStorage).startDbTransaction(1L, 2L);
+		verify(mockStorage).commitDbTransaction();
+		verify(mockStorage, never()).rollbackDbTransaction();
+	}
+
+	@Test
+	public void shouldRollbackOnUnexpectedStorageFailure() throws NotSufficientBalance, AccountIsNotAvailable {
+		Storage mockStorage = mock(Storage.class);
+		TransferComponent tested = new TransferComponentImpl(mockStorage);
+
+		stubAccounts(mockStorage);
+		when(mockStorage.createTransaction(1L, 2L, Money.valueOf(60))).thenThrow(new IllegalStateException());
+
+		try {
+			tested.transferMoney(1L, 2L, Money.valueOf(60));
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			verify(mockStorage).rollbackDbTransaction();
+			verify(mockStorage, never()).commitDbTransaction();
+		}
+	}
+
+	@Test
+	public void shouldNotWriteBestEffortItemWhoseHotCreditIsRefused() throws NotSufficientBalance, AccountIsNotAvailable {
+		Storage mockStorage = mock(Storage.class);
+		TransferComponent tested = new TransferComponentImpl(mockStorage);
+
+		when(mockStorage.getAccount(1L)).thenReturn(Option.of(ImmutableAccount
+				.builder()
+				.id(1L)
+				.balance(Money.valueOf(100))
+				.status(Account.AccountStatus.ACTIVE)
+				.build()));
+		when(mockStorage.getAccount(2L)).thenReturn(Option.of(ImmutableAccount
+				.builder()
+				.id(2L)
+				.balance(Money.ZERO)
+				.status(Account.AccountStatus.ACTIVE)
+				.build()));
+		when(mockStorage.isHotAccount(2L)).thenReturn(true);
+		// Closed by someone else after it was read.
+		when(mockStorage.creditAccount(2L, Money.valueOf(60))).thenReturn(Option.none());
+
+		List<TransferResult> results = tested.transferMoney(batch().take(1), BatchTransferBody.BatchMode.BEST_EFFORT);
+
+		assertThat(results).containsExactly(TransferResult.failure(new AccountIsNotAvailable().getMessage()));
+		verify(mockStorage, never()).createTransaction(1L, 2L, Money.valueOf(60));
+		verify(mockStorage, never()).setAccount(1L, Money.valueOf(40));
+		verify(mockStorage).commitDbTransaction();
+	}
+
+	private List<TransactionBody> batch() {
+		return List.of(
+				ImmutableTransactionBody.builder().fromAccountId(1L).toAccountId(2L).amount(Money.valueOf(60)).build(),
+				ImmutableTransactionBody.builder().fromAccountId(1L).toAccountId(2L).amount(Money.valueOf(200)).build());
+	}
+
+	private Transaction stubAccounts(Storage mockStorage) {
+		Transaction transaction = ImmutableTransaction
+				.builder()
+				.fromAccountId(1L)
+				.toAccountId(2L)
+				.amount(Money.valueOf(60))
+				.timeStamp(Instant.now())
+				.build();
+
+		when(mockStorage.getAccount(1L)).thenReturn(Option.of(ImmutableAccount
+				.builder()
+				.id(1L)
+				.balance(Money.valueOf(100))
+				.status(Account.AccountStatus.ACTIVE)
+				.build()));
+		when(mockStorage.getAccount(2L)).thenReturn(Option.of(ImmutableAccount
+				.builder()
+				.id(2L)
+				.balance(Money.ZERO)
+				.status(Account.AccountStatus.ACTIVE)
+				.build()));
+		when(mockStorage.createTransaction(1L, 2L, Money.valueOf(60))).thenReturn(transaction);
+
+		return transaction;
+	}
 }
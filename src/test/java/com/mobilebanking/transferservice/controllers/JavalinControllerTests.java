@@ -11,14 +11,17 @@ import com.mobilebanking.transferservice.dtos.TransactionBody;
 import com.mobilebanking.transferservice.dtos.Account;
 import com.mobilebanking.transferservice.dtos.ImmutableAccount;
 import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionPage;
+import com.mobilebanking.transferservice.dtos.Money;
 import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionQuery;
 import io.javalin.http.Context;
 import io.vavr.collection.List;
+import io.vavr.control.Option;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -35,7 +38,7 @@ public class JavalinControllerTests {
 		Context mockContext = mock(Context.class);
 
 		Long id = 1L;
-		BigDecimal initialBalance = BigDecimal.valueOf(100.00);
+		Money initialBalance = Money.valueOf(100);
 
 		AccountBody accountBody = ImmutableAccountBody
 				.builder()
@@ -72,7 +75,7 @@ public class JavalinControllerTests {
 		Account closedAccount = ImmutableAccount
 				.builder()
 				.id(id)
-				.balance(BigDecimal.ZERO)
+				.balance(Money.ZERO)
 				.status(Account.AccountStatus.CLOSED)
 				.build();
 
@@ -98,7 +101,7 @@ public class JavalinControllerTests {
 		Account account = ImmutableAccount
 				.builder()
 				.id(id)
-				.balance(BigDecimal.valueOf(100.00))
+				.balance(Money.valueOf(100))
 				.status(Account.AccountStatus.ACTIVE)
 				.build();
 
@@ -121,7 +124,7 @@ public class JavalinControllerTests {
 
 		Long fromAccount = 1L;
 		Long toAccount = 2L;
-		BigDecimal amount = BigDecimal.valueOf(100.00);
+		Money amount = Money.valueOf(100);
 
 		Transaction transaction = ImmutableTransaction
 				.builder()
@@ -161,7 +164,7 @@ public class JavalinControllerTests {
 				.builder()
 				.fromAccountId(id)
 				.toAccountId(2L)
-				.amount(BigDecimal.valueOf(100.00))
+				.amount(Money.valueOf(100))
 				.timeStamp(Instant.now())
 				.build();
 
@@ -169,13 +172,17 @@ public class JavalinControllerTests {
 				.builder()
 				.fromAccountId(2L)
 				.toAccountId(id)
-				.amount(BigDecimal.valueOf(100.00))
+				.amount(Money.valueOf(100))
 				.timeStamp(Instant.now())
 				.build();
 
 		when(mockContext.pathParam("id")).thenReturn(id.toString());
-		when(mockTransferComponent.getTransactionsForAccount(id))
-				.thenReturn(List.of(transaction1, transaction2));
+		when(mockTransferComponent.getTransactionsForAccount(id, TransactionQuery.all()))
+				.thenReturn(ImmutableTransactionPage
+						.builder()
+						.transactions(List.of(transaction1, transaction2))
+						.nextCursor(Option.none())
+						.build());
 
 		Controller<Context> tested = new JavalinControllerImpl(mockTransferComponent);
 
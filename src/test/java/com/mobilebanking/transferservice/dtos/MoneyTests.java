@@ -0,0 +1,47 @@
+package com.mobilebanking.transferservice.dtos;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MoneyTests {
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void shouldWriteAmountsAsTheyWereRead() throws IOException {
+		for (String amount : new String[]{"\"10\"", "\"100.50\"", "\"0\"", "\"1000.12\""}) {
+			Money money = objectMapper.readValue(amount, Money.class);
+
+			assertThat(objectMapper.writeValueAsString(money)).isEqualTo(amount);
+		}
+	}
+
+	@Test
+	public void shouldAddAndSubtractAcrossScales() {
+		Money balance = Money.valueOf(100012, 2);
+
+		assertThat(balance.add(Money.valueOf(100))).isEqualTo(Money.valueOf(110012, 2));
+		assertThat(balance.subtract(Money.valueOf(1, 1))).isEqualTo(Money.of(new BigDecimal("1000.02")));
+	}
+
+	@Test
+	public void shouldCompareByValueIgnoringScale() {
+		assertThat(Money.valueOf(1000, 1)).isEqualTo(Money.valueOf(100));
+		assertThat(Money.valueOf(1000, 1).hashCode()).isEqualTo(Money.valueOf(100).hashCode());
+		assertThat(Money.valueOf(0, 2).isZero()).isTrue();
+		assertThat(Money.valueOf(9999, 2)).isLessThan(Money.valueOf(100));
+	}
+
+	@Test
+	public void shouldFailOnOverflow() {
+		Money max = Money.valueOf(Long.MAX_VALUE);
+
+		assertThatThrownBy(() -> max.add(Money.valueOf(1))).isInstanceOf(ArithmeticException.class);
+		assertThatThrownBy(() -> Money.of(new BigDecimal("1e30"))).isInstanceOf(ArithmeticException.class);
+	}
+}
@@ -0,0 +1,40 @@
+package com.mobilebanking.transferservice.metrics;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTests {
+
+	@Test
+	public void shouldPlaceEveryValueInABucketThatContainsIt() {
+		for (long value = 0; value < 100_000; value++) {
+			int index = LatencyHistogram.indexOf(value);
+
+			assertThat(LatencyHistogram.highestValueOf(index)).isGreaterThanOrEqualTo(value);
+			assertThat(index == 0 || LatencyHistogram.highestValueOf(index - 1) < value).isTrue();
+		}
+	}
+
+	@Test
+	public void shouldReportQuantilesWithinBucketPrecision() {
+		LatencyHistogram tested = new LatencyHistogram();
+
+		for (long micros = 1; micros <= 1000; micros++) {
+			tested.record(TimeUnit.MICROSECONDS.toNanos(micros));
+		}
+
+		assertThat(tested.count()).isEqualTo(1000);
+		assertThat(tested.sum(TimeUnit.MICROSECONDS)).isEqualTo(500_500.0);
+		assertThat(tested.quantileNanos(0.5)).isBetween(500_000L, 500_000L + 500_000L / 8);
+		assertThat(tested.quantileNanos(0.99)).isBetween(990_000L, 990_000L + 990_000L / 8);
+		assertThat(tested.quantileNanos(1.0)).isBetween(1_000_000L, 1_000_000L + 1_000_000L / 8);
+	}
+
+	@Test
+	public void shouldReportZeroWhenEmpty() {
+		assertThat(new LatencyHistogram().quantileNanos(0.99)).isZero();
+	}
+}
@@ -0,0 +1,44 @@
+package com.mobilebanking.transferservice.metrics;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MetricsTests {
+
+	@Test
+	public void shouldRenderCountersAndSummariesInPrometheusFormat() {
+		Metrics.counter("tests_total", "Counted by tests", "kind", "a\"b").increment();
+		Metrics.histogram("tests_duration_seconds", "Timed by tests", "kind", "x").record(2_000_000);
+
+		assertThat(Metrics.counter("tests_total", "Counted by tests", "kind", "a\"b").value()).isEqualTo(1);
+		assertThat(Metrics.scrape())
+				.contains("# TYPE tests_total counter\n")
+				.contains("tests_total{kind=\"a\\\"b\"} 1\n")
+				.contains("# HELP tests_duration_seconds Timed by tests\n")
+				.contains("# TYPE tests_duration_seconds summary\n")
+				.contains("tests_duration_seconds{kind=\"x\",quantile=\"0.99\"} 0.0020")
+				.contains("tests_duration_seconds_count{kind=\"x\"} 1\n");
+	}
+
+	@Test
+	public void shouldRenderTheLatestSourceOfAGauge() {
+		Metrics.gauge("tests_gauge", "Measured by tests", () -> 1.5, "kind", "x");
+		Metrics.gauge("tests_gauge", "Measured by tests", () -> 2.5, "kind", "x");
+		Metrics.gauge("tests_gauge", "Measured by tests", () -> Double.POSITIVE_INFINITY, "kind", "y");
+
+		assertThat(Metrics.scrape())
+				.contains("# TYPE tests_gauge gauge\n")
+				.contains("tests_gauge{kind=\"x\"} 2.5\n")
+				.contains("tests_gauge{kind=\"y\"} +Inf\n");
+	}
+
+	@Test
+	public void shouldRefuseToRegisterANameWithAnotherType() {
+		Metrics.counter("tests_conflict", "Counter");
+
+		assertThatThrownBy(() -> Metrics.histogram("tests_conflict", "Histogram"))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,155 @@
+package com.mobilebanking.transferservice.replication;
+
+import com.mobilebanking.transferservice.components.exceptions.NodeIsReadOnly;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.metrics.Metrics;
+import com.mobilebanking.transferservice.services.SimpleInMemoryStorageImpl;
+import com.mobilebanking.transferservice.services.Storage;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReplicationTests {
+	private static final Duration HEARTBEAT = Duration.ofMillis(20);
+
+	private SimpleInMemoryStorageImpl storage;
+	private ReplicationLeader leader;
+	private ReplicationFollower follower;
+
+	@BeforeMethod
+	public void init() throws IOException {
+		storage = new SimpleInMemoryStorageImpl();
+		leader = startLeader(storage, 0, 1024);
+	}
+
+	@AfterMethod
+	public void close() throws IOException {
+		if (follower != null) {
+			follower.close();
+		}
+
+		leader.close();
+	}
+
+	@Test
+	public void shouldCopyTheStateAndThenStreamCommits() {
+		Account before = storage.createAccount(Money.valueOf(10));
+		storage.createTransaction(1L, before.getId(), Money.valueOf(1));
+
+		Storage replica = startFollower(leader.getPort()).getStorage();
+		awaitTrue(() -> replica.getAccount(before.getId()).isDefined());
+
+		Account after = storage.createAccount(Money.valueOf(20));
+		storage.createTransaction(before.getId(), after.getId(), Money.valueOf(2));
+		storage.closeAccount(2L);
+
+		// The close commits last.
+		awaitTrue(() -> replica.getAccount(2L).get().getStatus() == Account.AccountStatus.CLOSED);
+
+		assertThat(replica.getAccount(after.getId())).isEqualTo(storage.getAccount(after.getId()));
+		assertThat(replica.getAccount(2L)).isEqualTo(storage.getAccount(2L));
+		assertThat(replica.getTransactionsForAccount(before.getId()))
+				.isEqualTo(storage.getTransactionsForAccount(before.getId()));
+		assertThat(follower.getLagCommits()).isZero();
+	}
+
+	@Test
+	public void shouldNotReplicateRolledBackWrites() {
+		startFollower(leader.getPort());
+		Storage replica = follower.getStorage();
+
+		storage.startDbTransaction();
+		storage.setAccount(1L, Money.ZERO);
+		storage.rollbackDbTransaction();
+		Account created = storage.createAccount(Money.valueOf(5));
+
+		awaitTrue(() -> replica.getAccount(created.getId()).isDefined());
+
+		assertThat(replica.getAccount(1L)).isEqualTo(storage.getAccount(1L));
+	}
+
+	@Test
+	public void shouldRefuseWritesOnAFollower() {
+		Storage replica = startFollower(leader.getPort()).getStorage();
+
+		assertThatThrownBy(() -> replica.createAccount(Money.ZERO))
+				.isInstanceOf(NodeIsReadOnly.class);
+		assertThatThrownBy(() -> replica.startDbTransaction(1L))
+				.isInstanceOf(NodeIsReadOnly.class);
+	}
+
+	@Test
+	public void shouldGrowStalenessWhileTheLeaderIsDownAndCatchUpWithItsSuccessor() throws IOException {
+		int port = leader.getPort();
+		startFollower(port);
+		awaitTrue(() -> follower.getStalenessNanos() < TimeUnit.SECONDS.toNanos(1));
+
+		leader.close();
+		awaitTrue(() -> follower.getStalenessNanos() > HEARTBEAT.toNanos() * 10);
+
+		// The new leader numbers its commits from scratch, the follower has to copy its state.
+		SimpleInMemoryStorageImpl successor = new SimpleInMemoryStorageImpl();
+		successor.createAccount(Money.valueOf(7));
+		leader = startLeader(successor, port, 1024);
+		Account created = successor.createAccount(Money.valueOf(8));
+
+		awaitTrue(() -> follower.getStorage().getAccount(created.getId()).isDefined());
+
+		assertThat(follower.getStorage().getAccount(created.getId())).isEqualTo(successor.getAccount(created.getId()));
+		assertThat(follower.getStalenessNanos()).isLessThan(TimeUnit.SECONDS.toNanos(1));
+		assertThat(Metrics.scrape()).contains("replication_lag_seconds ").contains("replication_lag_commits 0.0\n");
+	}
+
+	@Test
+	public void shouldCatchUpWhenCommitsOutrunTheBacklog() throws IOException {
+		leader.close();
+		leader = startLeader(storage, 0, 4);
+
+		startFollower(leader.getPort());
+		Storage replica = follower.getStorage();
+		awaitTrue(() -> follower.getStalenessNanos() < TimeUnit.SECONDS.toNanos(1));
+
+		// More commits at once than the leader keeps, the follower is cut off or keeps up, it ends up equal.
+		Account created = null;
+		for (int i = 0; i < 100; i++) {
+			created = storage.createAccount(Money.valueOf(i));
+		}
+
+		Long last = created.getId();
+		awaitTrue(() -> replica.getAccount(last).isDefined());
+
+		assertThat(replica.getAccount(last)).isEqualTo(storage.getAccount(last));
+		assertThat(replica.getAccount(last - 50)).isEqualTo(storage.getAccount(last - 50));
+	}
+
+	private ReplicationLeader startLeader(SimpleInMemoryStorageImpl storage, int port, int backlog)
+			throws IOException {
+		return new ReplicationLeader(storage, new InetSocketAddress("localhost", port), backlog, HEARTBEAT);
+	}
+
+	private ReplicationFollower startFollower(int port) {
+		follower = new ReplicationFollower(new InetSocketAddress("localhost", port),
+				Duration.ofSeconds(1), Duration.ofMillis(20));
+
+		return follower;
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.yield();
+		}
+	}
+}
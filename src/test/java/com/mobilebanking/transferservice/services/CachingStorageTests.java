@@ -0,0 +1,164 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.components.TransferComponent;
+import com.mobilebanking.transferservice.components.TransferComponentImpl;
+import com.mobilebanking.transferservice.components.exceptions.AccountIsNotAvailable;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.metrics.Metrics;
+import io.vavr.control.Option;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingStorageTests {
+	private CountingStorage storage;
+	private CachingStorage tested;
+
+	@BeforeMethod
+	public void init() {
+		storage = new CountingStorage();
+		tested = new CachingStorage(storage, 100);
+	}
+
+	@Test
+	public void shouldServeRepeatedReadsFromTheCache() {
+		long hits = counter("hit");
+		long misses = counter("miss");
+
+		Account account = tested.getAccount(1L).get();
+
+		assertThat(tested.getAccount(1L).get()).isEqualTo(account);
+		assertThat(tested.getAccount(1L).get()).isEqualTo(account);
+		assertThat(storage.reads.get()).isEqualTo(1);
+		assertThat(counter("hit") - hits).isEqualTo(2);
+		assertThat(counter("miss") - misses).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldWriteThroughOnSetAndClose() {
+		tested.getAccount(2L);
+
+		assertThat(tested.setAccount(2L, Money.valueOf(3)).get().getBalance()).isEqualTo(Money.valueOf(3));
+		assertThat(tested.getAccount(2L).get().getBalance()).isEqualTo(Money.valueOf(3));
+
+		tested.closeAccount(2L);
+
+		assertThat(tested.getAccount(2L).get().getStatus()).isEqualTo(Account.AccountStatus.CLOSED);
+		assertThat(storage.reads.get()).isEqualTo(1);
+		assertThat(storage.getAccount(2L)).isEqualTo(tested.getAccount(2L));
+	}
+
+	@Test(timeOut = 10000)
+	public void shouldHideUncommittedWritesFromOtherThreads() {
+		Account before = tested.getAccount(1L).get();
+
+		tested.startDbTransaction(1L);
+		tested.setAccount(1L, Money.ZERO);
+
+		assertThat(tested.getAccount(1L).get().getBalance()).isEqualTo(Money.ZERO);
+		assertThat(CompletableFuture.supplyAsync(() -> tested.getAccount(1L)).join()).contains(before);
+
+		tested.commitDbTransaction();
+
+		assertThat(CompletableFuture.supplyAsync(() -> tested.getAccount(1L)).join().get().getBalance())
+				.isEqualTo(Money.ZERO);
+	}
+
+	@Test
+	public void shouldInvalidateWritesOnRollback() {
+		Account before = tested.getAccount(1L).get();
+
+		tested.startDbTransaction(1L);
+		tested.setAccount(1L, Money.ZERO);
+		tested.rollbackDbTransaction();
+
+		assertThat(tested.getAccount(1L)).contains(before);
+		assertThat(storage.getAccount(1L)).contains(before);
+	}
+
+	@Test
+	public void shouldEvictBeyondItsSize() {
+		tested = new CachingStorage(storage, 10);
+		long evictions = evictions();
+
+		for (int i = 0; i < 100; i++) {
+			tested.getAccount(tested.createAccount(Money.valueOf(i)).getId());
+		}
+		tested.cleanUp();
+
+		assertThat(tested.getCachedCount()).isLessThanOrEqualTo(10);
+		assertThat(evictions() - evictions).isGreaterThanOrEqualTo(90);
+	}
+
+	@Test
+	public void shouldKeepUncommittedWritesBeyondItsSize() {
+		tested = new CachingStorage(storage, 1);
+		Account created = tested.createAccount(Money.ZERO);
+
+		tested.startDbTransaction(1L, 2L, created.getId());
+		tested.setAccount(1L, Money.valueOf(1));
+		tested.setAccount(2L, Money.valueOf(2));
+		tested.setAccount(created.getId(), Money.valueOf(3));
+		tested.cleanUp();
+		tested.commitDbTransaction();
+
+		assertThat(tested.getAccount(1L).get().getBalance()).isEqualTo(Money.valueOf(1));
+		assertThat(tested.getAccount(2L).get().getBalance()).isEqualTo(Money.valueOf(2));
+		assertThat(tested.getAccount(created.getId()).get().getBalance()).isEqualTo(Money.valueOf(3));
+	}
+
+	@Test(timeOut = 20000)
+	public void shouldStayConsistentWithTheStorageUnderConcurrentTransfers() {
+		TransferComponent transfers = new TransferComponentImpl(tested);
+		Account first = tested.createAccount(Money.valueOf(1000));
+		Account second = tested.createAccount(Money.valueOf(1000));
+
+		CompletableFuture<?>[] workers = new CompletableFuture<?>[4];
+		for (int w = 0; w < workers.length; w++) {
+			boolean forth = w % 2 == 0;
+
+			workers[w] = CompletableFuture.runAsync(() -> {
+				for (int i = 0; i < 500; i++) {
+					try {
+						transfers.transferMoney(forth ? first.getId() : second.getId(),
+								forth ? second.getId() : first.getId(), Money.valueOf(1));
+					} catch (NotSufficientBalance | AccountIsNotAvailable e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			});
+		}
+		CompletableFuture.allOf(workers).join();
+
+		assertThat(tested.getAccount(first.getId())).isEqualTo(storage.getAccount(first.getId()));
+		assertThat(tested.getAccount(second.getId())).isEqualTo(storage.getAccount(second.getId()));
+		assertThat(storage.getAccount(first.getId()).get().getBalance()).isEqualTo(Money.valueOf(1000));
+	}
+
+	private static long counter(String result) {
+		return Metrics.counter("storage_cache_requests_total",
+				"Account lookups of the caching storage, by result", "result", result).value();
+	}
+
+	private static long evictions() {
+		return Metrics.counter("storage_cache_evictions_total",
+				"Accounts evicted from the caching storage to stay within its size").value();
+	}
+
+	// Counts the reads that reach the storage behind the cache.
+	private static class CountingStorage extends SimpleInMemoryStorageImpl {
+		private final AtomicInteger reads = new AtomicInteger();
+
+		@Override
+		public Option<Account> getAccount(Long accountId) {
+			reads.incrementAndGet();
+			return super.getAccount(accountId);
+		}
+	}
+}
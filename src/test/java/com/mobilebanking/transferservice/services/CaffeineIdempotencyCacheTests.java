@@ -0,0 +1,142 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.components.exceptions.IdempotencyKeyIsReused;
+import com.mobilebanking.transferservice.components.exceptions.NotSufficientBalance;
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionBody;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionBody;
+import com.mobilebanking.transferservice.metrics.Metrics;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class CaffeineIdempotencyCacheTests {
+	private final Transaction transaction = ImmutableTransaction
+			.builder()
+			.fromAccountId(1L)
+			.toAccountId(2L)
+			.amount(Money.valueOf(10))
+			.timeStamp(Instant.now())
+			.build();
+
+	private final TransactionBody request = ImmutableTransactionBody
+			.builder()
+			.fromAccountId(1L)
+			.toAccountId(2L)
+			.amount(Money.valueOf(10))
+			.build();
+
+	@Test(timeOut = 10000)
+	public void shouldTransferOnceForConcurrentRetries() throws Exception {
+		IdempotencyCache tested = new CaffeineIdempotencyCache(Duration.ofMinutes(1), 100);
+		AtomicInteger transfers = new AtomicInteger();
+		long hits = requests("hit");
+		long misses = requests("miss");
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Transaction>> results = new ArrayList<>();
+
+		for (int i = 0; i < 8; i++) {
+			results.add(executor.submit(() -> {
+				start.await();
+
+				return tested.getOrTransfer("key", request, () -> {
+					transfers.incrementAndGet();
+					return transaction;
+				});
+			}));
+		}
+
+		start.countDown();
+
+		for (Future<Transaction> result : results) {
+			assertThat(result.get()).isEqualTo(transaction);
+		}
+		executor.shutdown();
+
+		assertThat(transfers.get()).isEqualTo(1);
+		assertThat(requests("hit") - hits).isEqualTo(7);
+		assertThat(requests("miss") - misses).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldNotRememberFailedTransfers() throws Exception {
+		IdempotencyCache tested = new CaffeineIdempotencyCache(Duration.ofMinutes(1), 100);
+
+		assertThatThrownBy(() -> tested.getOrTransfer("key", request, () -> {
+			throw new NotSufficientBalance();
+		})).isInstanceOf(NotSufficientBalance.class);
+
+		assertThat(tested.getOrTransfer("key", request, () -> transaction)).isEqualTo(transaction);
+	}
+
+	@Test(timeOut = 10000)
+	public void shouldFailConcurrentRetriesWithTheFirstAttemptsException() throws Exception {
+		IdempotencyCache tested = new CaffeineIdempotencyCache(Duration.ofMinutes(1), 100);
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicBoolean fail = new AtomicBoolean();
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<Transaction> first = executor.submit(() -> tested.getOrTransfer("key", request, () -> {
+			started.countDown();
+
+			while (!fail.get()) {
+				Thread.yield();
+			}
+
+			throw new ArithmeticException("overflow");
+		}));
+		started.await();
+		long hits = requests("hit");
+
+		ExecutorService retrying = Executors.newSingleThreadExecutor();
+		Future<Throwable> retry = retrying.submit(() -> catchThrowable(() ->
+				tested.getOrTransfer("key", request, () -> transaction)));
+
+		// Fails the first attempt once the retry waits on it.
+		while (requests("hit") == hits) {
+			Thread.yield();
+		}
+		fail.set(true);
+
+		assertThat(catchThrowable(first::get)).hasCauseInstanceOf(ArithmeticException.class);
+		assertThat(retry.get()).isInstanceOf(ArithmeticException.class);
+		executor.shutdown();
+		retrying.shutdown();
+	}
+
+	@Test
+	public void shouldRefuseKeyReusedForAnotherTransfer() throws Exception {
+		IdempotencyCache tested = new CaffeineIdempotencyCache(Duration.ofMinutes(1), 100);
+		TransactionBody other = ImmutableTransactionBody.builder().from(request).amount(Money.valueOf(11)).build();
+
+		tested.getOrTransfer("key", request, () -> transaction);
+
+		assertThatThrownBy(() -> tested.getOrTransfer("key", other, () -> transaction))
+				.isInstanceOf(IdempotencyKeyIsReused.class);
+		assertThat(tested.getOrTransfer("key", ImmutableTransactionBody.copyOf(request), () -> {
+			throw new IllegalStateException("Transferred twice");
+		})).isEqualTo(transaction);
+	}
+
+	private static long requests(String result) {
+		return Metrics.counter("idempotency_cache_requests_total",
+				"Transfers with an Idempotency-Key, by whether the key was known", "result", result).value();
+	}
+}
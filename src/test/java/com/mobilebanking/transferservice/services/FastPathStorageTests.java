@@ -0,0 +1,72 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionQuery;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FastPathStorageTests {
+
+	@Test
+	public void shouldKeepAccountsAcrossChunks() {
+		Storage tested = new FastPathStorageImpl(16);
+
+		Account first = tested.createAccount(Money.valueOf(12345, 2));
+
+		for (int i = 0; i < 70_000; i++) {
+			tested.createAccount(Money.valueOf(i));
+		}
+
+		Account last = tested.createAccount(Money.ZERO);
+
+		assertThat(tested.getAccount(first.getId()).get()).isEqualTo(first);
+		assertThat(tested.getAccount(last.getId()).get()).isEqualTo(last);
+		assertThat(tested.getAccount(1L).get().getBalance()).isEqualTo(Money.valueOf(100012, 2));
+		assertThat(tested.getAccount(last.getId() + 1).isEmpty()).isTrue();
+		assertThat(tested.getAccount(-1L).isEmpty()).isTrue();
+	}
+
+	@Test
+	public void shouldRollbackBalancesStatusesAndHistories() {
+		Storage tested = new FastPathStorageImpl(16);
+		Account from = tested.createAccount(Money.valueOf(10));
+		Account to = tested.createAccount(Money.ZERO);
+
+		tested.createTransaction(from.getId(), to.getId(), Money.valueOf(1));
+
+		tested.startDbTransaction(from.getId(), to.getId());
+		tested.createTransaction(from.getId(), to.getId(), Money.valueOf(5));
+		tested.setAccount(from.getId(), Money.valueOf(5));
+		tested.closeAccount(to.getId());
+		tested.rollbackDbTransaction();
+
+		assertThat(tested.getAccount(from.getId()).get()).isEqualTo(from);
+		assertThat(tested.getAccount(to.getId()).get()).isEqualTo(to);
+		assertThat(tested.getTransactionsForAccount(from.getId())).hasSize(1);
+		assertThat(tested.getTransactionsForAccount(to.getId()).get(0).getAmount()).isEqualTo(Money.valueOf(1));
+	}
+
+	@Test
+	public void shouldPageThroughGrowingHistory() {
+		Storage tested = new FastPathStorageImpl(16);
+		Account from = tested.createAccount(Money.valueOf(1000));
+		Account to = tested.createAccount(Money.ZERO);
+
+		for (int i = 0; i < 10; i++) {
+			tested.createTransaction(from.getId(), to.getId(), Money.valueOf(i));
+		}
+
+		TransactionPage page = tested.getTransactionsForAccount(to.getId(),
+				ImmutableTransactionQuery.builder().cursor(4).limit(3).build());
+
+		assertThat(page.getTransactions().isLazy()).isTrue();
+		assertThat(page.getTransactions().map(Transaction::getAmount))
+				.containsExactly(Money.valueOf(4), Money.valueOf(5), Money.valueOf(6));
+		assertThat(page.getNextCursor().get()).isEqualTo(7L);
+		assertThat(tested.getTransactionsForAccount(1L)).isEmpty();
+	}
+}
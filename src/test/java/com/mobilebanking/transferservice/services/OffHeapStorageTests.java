@@ -0,0 +1,55 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapStorageTests {
+
+	@Test
+	public void shouldKeepAccountsWhenTableGrows() {
+		Storage tested = new OffHeapStorageImpl(4);
+
+		Account first = tested.createAccount(Money.valueOf(12345, 2));
+
+		for (int i = 0; i < 10000; i++) {
+			tested.createAccount(Money.valueOf(i));
+		}
+
+		Account last = tested.createAccount(Money.ZERO);
+
+		assertThat(tested.getAccount(first.getId()).get()).isEqualTo(first);
+		assertThat(tested.getAccount(last.getId()).get()).isEqualTo(last);
+		assertThat(tested.getAccount(1L).get().getBalance()).isEqualTo(Money.valueOf(100012, 2));
+		assertThat(tested.getAccount(-1L).isEmpty()).isTrue();
+	}
+
+	@Test
+	public void shouldUpdateBalanceAndStatusInPlace() {
+		Storage tested = new OffHeapStorageImpl(16);
+		Account account = tested.createAccount(Money.valueOf(10));
+
+		tested.setAccount(account.getId(), Money.valueOf(75, 1));
+		Account closed = tested.closeAccount(account.getId()).get();
+
+		assertThat(closed.getBalance().toString()).isEqualTo("7.5");
+		assertThat(closed.getStatus()).isEqualTo(Account.AccountStatus.CLOSED);
+		assertThat(tested.getAccount(account.getId()).get()).isEqualTo(closed);
+		assertThat(tested.setAccount(-1L, Money.ZERO).isEmpty()).isTrue();
+	}
+
+	@Test
+	public void shouldRollbackAccountChanges() {
+		Storage tested = new OffHeapStorageImpl(16);
+		Account account = tested.createAccount(Money.valueOf(10));
+
+		tested.startDbTransaction(account.getId());
+		tested.setAccount(account.getId(), Money.ZERO);
+		tested.closeAccount(account.getId());
+		tested.rollbackDbTransaction();
+
+		assertThat(tested.getAccount(account.getId()).get()).isEqualTo(account);
+	}
+}
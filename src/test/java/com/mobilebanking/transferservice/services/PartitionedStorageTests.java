@@ -0,0 +1,91 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.services.wal.WriteAheadLog;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class PartitionedStorageTests {
+
+	@Test
+	public void shouldSpreadNewAccountsOverPartitions() {
+		PartitionedStorage tested = new PartitionedStorage(4);
+
+		int[] accountsPerPartition = new int[4];
+		for (int i = 0; i < 40; i++) {
+			Account account = tested.createAccount(Money.valueOf(i));
+
+			accountsPerPartition[tested.partitionOf(account.getId())]++;
+			assertThat(tested.getAccount(account.getId()).get()).isEqualTo(account);
+		}
+
+		assertThat(accountsPerPartition).containsExactly(10, 10, 10, 10);
+		assertThat(tested.getAccount(1L).get().getBalance()).isEqualTo(Money.valueOf(100012, 2));
+		assertThat(tested.getAccount(2L).get().getBalance()).isEqualTo(Money.ZERO);
+		assertThat(tested.getAccount(43L).isEmpty()).isTrue();
+	}
+
+	@Test
+	public void shouldRecordTransactionsAcrossPartitionsInBothHistories() {
+		PartitionedStorage tested = new PartitionedStorage(2);
+		Account from = tested.createAccount(Money.valueOf(10));
+		Account to = tested.createAccount(Money.ZERO);
+		Account other = tested.createAccount(Money.ZERO);
+
+		assertThat(tested.partitionOf(from.getId())).isNotEqualTo(tested.partitionOf(to.getId()));
+
+		tested.createTransaction(from.getId(), to.getId(), Money.valueOf(1));
+		tested.createTransaction(from.getId(), other.getId(), Money.valueOf(2));
+
+		assertThat(tested.getTransactionsForAccount(from.getId())).hasSize(2);
+		assertThat(tested.getTransactionsForAccount(to.getId())).hasSize(1);
+		assertThat(tested.getTransactionsForAccount(other.getId())).hasSize(1);
+	}
+
+	@Test
+	public void shouldRollbackEveryLockedPartition() {
+		PartitionedStorage tested = new PartitionedStorage(2);
+		Account from = tested.createAccount(Money.valueOf(10));
+		Account to = tested.createAccount(Money.ZERO);
+
+		tested.startDbTransaction(to.getId(), from.getId());
+		tested.createTransaction(from.getId(), to.getId(), Money.valueOf(5));
+		tested.setAccount(from.getId(), Money.valueOf(5));
+		tested.setAccount(to.getId(), Money.valueOf(5));
+		tested.rollbackDbTransaction();
+
+		assertThat(tested.getAccount(from.getId()).get()).isEqualTo(from);
+		assertThat(tested.getAccount(to.getId()).get()).isEqualTo(to);
+		assertThat(tested.getTransactionsForAccount(from.getId())).isEmpty();
+		assertThat(tested.getTransactionsForAccount(to.getId())).isEmpty();
+	}
+
+	@Test(timeOut = 10000)
+	public void shouldReleaseStartedPartitionsWhenAnotherRefusesToStart() throws IOException, InterruptedException {
+		WriteAheadLog failing = new WriteAheadLog(Files.createTempDirectory("partition"), Duration.ZERO, 64);
+		PartitionedStorage tested = new PartitionedStorage(2, partition -> true, (partition, partitions) ->
+				partition == 0
+						? new SimpleInMemoryStorageImpl(partition, partitions)
+						: new SimpleInMemoryStorageImpl(partition, partitions, failing));
+
+		// Partition 1 stops taking DB transactions after its log failed.
+		failing.close();
+		catchThrowable(() -> tested.setAccount(2L, Money.valueOf(1)));
+
+		assertThat(catchThrowable(() -> tested.startDbTransaction(1L, 2L))).isInstanceOf(IllegalStateException.class);
+
+		Thread other = new Thread(() -> {
+			tested.startDbTransaction(1L);
+			tested.commitDbTransaction();
+		});
+		other.start();
+		other.join();
+	}
+}
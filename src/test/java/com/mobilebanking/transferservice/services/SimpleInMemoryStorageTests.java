@@ -2,14 +2,30 @@ package com.mobilebanking.transferservice.services;
 
 
 import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.ImmutableTransactionQuery;
+import com.mobilebanking.transferservice.dtos.Money;
 import com.mobilebanking.transferservice.dtos.Transaction;
+import com.mobilebanking.transferservice.dtos.TransactionPage;
+import com.mobilebanking.transferservice.services.wal.WriteAheadLog;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 
 public class SimpleInMemoryStorageTests {
@@ -24,7 +40,7 @@ public class SimpleInMemoryStorageTests {
 
 	@Test
 	public void shouldCreateAccount() {
-		BigDecimal expectedBalance = BigDecimal.valueOf(100.00);
+		Money expectedBalance = Money.valueOf(100);
 
 		Account actualAccount = tested.createAccount(expectedBalance);
 
@@ -34,7 +50,7 @@ public class SimpleInMemoryStorageTests {
 
 	@Test
 	public void shouldReturnAccount() {
-		BigDecimal expectedBalance = BigDecimal.valueOf(100.00);
+		Money expectedBalance = Money.valueOf(100);
 
 		Account account = tested.createAccount(expectedBalance);
 		Account actualAccount = tested.getAccount(account.getId()).get();
@@ -43,10 +59,45 @@ public class SimpleInMemoryStorageTests {
 		assertThat(actualAccount.getBalance()).isEqualTo(expectedBalance);
 	}
 
+	@Test(timeOut = 30000)
+	public void shouldCreateAccountsWithUniqueIdsUnderConcurrentLoad() throws Exception {
+		SimpleInMemoryStorageImpl storage = new SimpleInMemoryStorageImpl();
+		int threads = 16;
+		int accountsPerThread = 2000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<List<Long>>> created = new ArrayList<>();
+
+		for (int i = 0; i < threads; i++) {
+			created.add(executor.submit(() -> {
+				start.await();
+				List<Long> ids = new ArrayList<>();
+
+				for (int j = 0; j < accountsPerThread; j++) {
+					ids.add(storage.createAccount(Money.valueOf(j)).getId());
+				}
+
+				return ids;
+			}));
+		}
+
+		start.countDown();
+
+		Set<Long> ids = new HashSet<>();
+		for (Future<List<Long>> future : created) {
+			ids.addAll(future.get());
+		}
+		executor.shutdown();
+
+		assertThat(ids).hasSize(threads * accountsPerThread).doesNotContain(1L, 2L);
+		assertThat(ids).allSatisfy(id -> assertThat(storage.getAccount(id).isDefined()).isTrue());
+	}
+
 	@Test
 	public void shouldChangeBalanceForAccountIfActiveAtomic() {
-		BigDecimal originalBalance = BigDecimal.valueOf(100.00);
-		BigDecimal expectedBalance = BigDecimal.valueOf(200.00);
+		Money originalBalance = Money.valueOf(100);
+		Money expectedBalance = Money.valueOf(200);
 
 		Account account = tested.createAccount(originalBalance);
 		tested.setAccount(account.getId(), expectedBalance);
@@ -57,14 +108,14 @@ public class SimpleInMemoryStorageTests {
 
 	@Test(threadPoolSize = 5, invocationCount = 20,  timeOut = 10000)
 	public void shouldIncrementallyChangeBalanceForAccountWithDbTransaction() {
-		BigDecimal increment = BigDecimal.valueOf(100.00);
+		Money increment = Money.valueOf(100);
 
 		tested.startDbTransaction();
 
 		int count = counterForConcurrentTests.addAndGet(1);
-		BigDecimal expectedBalance = BigDecimal
-				.valueOf(1000.12)
-				.add(increment.multiply(BigDecimal.valueOf(count)));
+		Money expectedBalance = Money
+				.valueOf(100012, 2)
+				.add(Money.valueOf(100L * count));
 
 		Account account = tested.getAccount(1L).get();
 		tested.setAccount(1L, account.getBalance().add(increment));
@@ -78,8 +129,8 @@ public class SimpleInMemoryStorageTests {
 
 	@Test(threadPoolSize = 5, invocationCount = 20,  timeOut = 10000)
 	public void shouldPerformRollback() {
-		BigDecimal increment = BigDecimal.valueOf(100.00);
-		BigDecimal expectedBalance = BigDecimal.valueOf(1000.12);
+		Money increment = Money.valueOf(100);
+		Money expectedBalance = Money.valueOf(100012, 2);
 
 		tested.setAccount(1L, expectedBalance);
 
@@ -100,7 +151,7 @@ public class SimpleInMemoryStorageTests {
 		Long from = 123456789L;
 		Long to = 987654321L;
 
-		BigDecimal amount = BigDecimal.valueOf(100);
+		Money amount = Money.valueOf(100);
 
 		Transaction transaction = tested.createTransaction(from, to, amount);
 
@@ -109,6 +160,55 @@ public class SimpleInMemoryStorageTests {
 		assertThat(transaction.getFromAccountId()).isEqualTo(from);
 	}
 
+	@Test
+	public void shouldReturnTransactionsForBothSides() {
+		Account from = tested.createAccount(Money.valueOf(100));
+		Account to = tested.createAccount(Money.ZERO);
+		Account other = tested.createAccount(Money.ZERO);
+
+		Transaction transaction = tested.createTransaction(from.getId(), to.getId(), Money.valueOf(10));
+		tested.createTransaction(other.getId(), other.getId(), Money.valueOf(10));
+
+		assertThat(tested.getTransactionsForAccount(from.getId())).containsExactly(transaction);
+		assertThat(tested.getTransactionsForAccount(to.getId())).containsExactly(transaction);
+	}
+
+	@Test
+	public void shouldReturnTransactionsPageByPage() {
+		Account from = tested.createAccount(Money.valueOf(100));
+		Account to = tested.createAccount(Money.ZERO);
+
+		Transaction first = tested.createTransaction(from.getId(), to.getId(), Money.valueOf(1));
+		Transaction second = tested.createTransaction(from.getId(), to.getId(), Money.valueOf(1));
+		Transaction third = tested.createTransaction(from.getId(), to.getId(), Money.valueOf(1));
+
+		TransactionPage firstPage = tested.getTransactionsForAccount(from.getId(),
+				ImmutableTransactionQuery.builder().limit(2).build());
+		TransactionPage lastPage = tested.getTransactionsForAccount(from.getId(),
+				ImmutableTransactionQuery.builder().limit(2).cursor(firstPage.getNextCursor().get()).build());
+
+		assertThat(firstPage.getTransactions().isLazy()).isTrue();
+		assertThat(firstPage.getTransactions()).containsExactly(first, second);
+		assertThat(lastPage.getTransactions()).containsExactly(third);
+		assertThat(lastPage.getNextCursor().isEmpty()).isTrue();
+	}
+
+	@Test
+	public void shouldReturnTransactionsWithinTimeRange() {
+		Account from = tested.createAccount(Money.valueOf(100));
+		Account to = tested.createAccount(Money.ZERO);
+
+		Transaction transaction = tested.createTransaction(from.getId(), to.getId(), Money.valueOf(1));
+
+		TransactionPage before = tested.getTransactionsForAccount(to.getId(),
+				ImmutableTransactionQuery.builder().toTime(transaction.getTimeStamp()).build());
+		TransactionPage after = tested.getTransactionsForAccount(to.getId(),
+				ImmutableTransactionQuery.builder().fromTime(transaction.getTimeStamp()).build());
+
+		assertThat(before.getTransactions()).isEmpty();
+		assertThat(after.getTransactions()).containsExactly(transaction);
+	}
+
 	@Test
 	public void shouldCloseAccount() {
 		Account accountBefore = tested.getAccount(1L).get();
@@ -119,4 +219,186 @@ public class SimpleInMemoryStorageTests {
 
 		assertThat(accountAfter.getStatus()).isEqualTo(Account.AccountStatus.CLOSED);
 	}
+
+	@Test
+	public void shouldRollbackOnlyChangesOfDbTransaction() {
+		Account from = tested.createAccount(Money.valueOf(100));
+		Account to = tested.createAccount(Money.ZERO);
+
+		tested.startDbTransaction(from.getId(), to.getId());
+
+		tested.setAccount(from.getId(), Money.ZERO);
+		tested.createTransaction(from.getId(), to.getId(), Money.valueOf(100));
+		tested.closeAccount(to.getId());
+
+		tested.rollbackDbTransaction();
+
+		assertThat(tested.getAccount(from.getId()).get()).isEqualTo(from);
+		assertThat(tested.getAccount(to.getId()).get()).isEqualTo(to);
+		assertThat(tested.getTransactionsForAccount(from.getId())).isEmpty();
+	}
+
+	@Test(timeOut = 10000)
+	public void shouldShowOnlyCommittedStateToOtherThreads() throws Exception {
+		Storage storage = new SimpleInMemoryStorageImpl();
+		Account account = storage.createAccount(Money.valueOf(100));
+		ExecutorService reader = Executors.newSingleThreadExecutor();
+
+		storage.startDbTransaction(account.getId());
+		storage.setAccount(account.getId(), Money.valueOf(40));
+		storage.createTransaction(account.getId(), 1L, Money.valueOf(60));
+
+		assertThat(storage.getAccount(account.getId()).get().getBalance()).isEqualTo(Money.valueOf(40));
+		assertThat(reader.submit(() -> storage.getAccount(account.getId()).get()).get()).isEqualTo(account);
+		assertThat(reader.submit(() -> storage.getTransactionsForAccount(account.getId())).get()).isEmpty();
+
+		storage.commitDbTransaction();
+
+		assertThat(reader.submit(() -> storage.getAccount(account.getId()).get().getBalance()).get())
+				.isEqualTo(Money.valueOf(40));
+		assertThat(reader.submit(() -> storage.getTransactionsForAccount(account.getId())).get()).hasSize(1);
+
+		storage.startDbTransaction(account.getId());
+		storage.setAccount(account.getId(), Money.ZERO);
+		storage.rollbackDbTransaction();
+
+		assertThat(reader.submit(() -> storage.getAccount(account.getId()).get().getBalance()).get())
+				.isEqualTo(Money.valueOf(40));
+
+		reader.shutdown();
+	}
+
+	@Test
+	public void shouldShowDurableCommitToItsWriterOnceCommitReturns() throws IOException {
+		Path directory = Files.createTempDirectory("wal");
+
+		try (SimpleInMemoryStorageImpl storage = new SimpleInMemoryStorageImpl(walOf(directory))) {
+			Account account = storage.createAccount(Money.valueOf(5));
+
+			storage.startDbTransaction(account.getId());
+			storage.setAccount(account.getId(), Money.valueOf(7));
+			storage.commitDbTransaction();
+
+			assertThat(storage.getAccount(account.getId()).get().getBalance()).isEqualTo(Money.valueOf(7));
+		}
+	}
+
+	@Test
+	public void shouldStopAcceptingWritesAfterAFailedLogWrite() throws IOException {
+		WriteAheadLog writeAheadLog = walOf(Files.createTempDirectory("wal"));
+
+		try (SimpleInMemoryStorageImpl storage = new SimpleInMemoryStorageImpl(writeAheadLog)) {
+			Account account = storage.createAccount(Money.valueOf(5));
+			writeAheadLog.close();
+
+			storage.startDbTransaction(account.getId());
+			storage.setAccount(account.getId(), Money.valueOf(7));
+
+			assertThatThrownBy(storage::commitDbTransaction).hasRootCauseInstanceOf(IOException.class);
+			assertThat(storage.getAccount(account.getId()).get().getBalance()).isEqualTo(Money.valueOf(5));
+			assertThatThrownBy(() -> storage.startDbTransaction(account.getId()))
+					.isInstanceOf(IllegalStateException.class);
+			assertThatThrownBy(storage::snapshot).isInstanceOf(IOException.class);
+		}
+	}
+
+	@Test
+	public void shouldRecoverCommittedStateFromWriteAheadLog() throws IOException {
+		Path directory = Files.createTempDirectory("storage");
+
+		Account from;
+		Account to;
+		Transaction transaction;
+
+		try (SimpleInMemoryStorageImpl durable = new SimpleInMemoryStorageImpl(walOf(directory))) {
+			from = durable.createAccount(Money.valueOf(100));
+			to = durable.createAccount(Money.ZERO);
+
+			durable.startDbTransaction(from.getId(), to.getId());
+			transaction = durable.createTransaction(from.getId(), to.getId(), Money.valueOf(40));
+			durable.setAccount(from.getId(), Money.valueOf(60));
+			durable.setAccount(to.getId(), Money.valueOf(40));
+			durable.commitDbTransaction();
+
+			durable.startDbTransaction(to.getId());
+			durable.closeAccount(to.getId());
+			durable.rollbackDbTransaction();
+		}
+
+		try (SimpleInMemoryStorageImpl recovered = new SimpleInMemoryStorageImpl(walOf(directory))) {
+			assertThat(recovered.getAccount(from.getId()).get().getBalance()).isEqualTo(Money.valueOf(60));
+			assertThat(recovered.getAccount(to.getId()).get().getBalance()).isEqualTo(Money.valueOf(40));
+			assertThat(recovered.getAccount(to.getId()).get().getStatus()).isEqualTo(Account.AccountStatus.ACTIVE);
+			assertThat(recovered.getTransactionsForAccount(to.getId())).containsExactly(transaction);
+		}
+	}
+
+	@Test
+	public void shouldRecoverFromSnapshotAndLogTail() throws IOException {
+		Path directory = Files.createTempDirectory("storage");
+
+		Account snapshotted;
+		Account logged;
+
+		try (SimpleInMemoryStorageImpl durable = new SimpleInMemoryStorageImpl(walOf(directory))) {
+			snapshotted = durable.createAccount(Money.valueOf(10));
+			durable.createTransaction(snapshotted.getId(), 1L, Money.valueOf(1));
+
+			durable.snapshot();
+
+			logged = durable.setAccount(snapshotted.getId(), Money.valueOf(9)).get();
+		}
+
+		try (SimpleInMemoryStorageImpl recovered = new SimpleInMemoryStorageImpl(walOf(directory))) {
+			assertThat(recovered.getAccount(logged.getId()).get()).isEqualTo(logged);
+			assertThat(recovered.getTransactionsForAccount(snapshotted.getId())).hasSize(1);
+		}
+	}
+
+	@Test
+	public void shouldWriteOnlyNewTransactionsOnEachSnapshot() throws IOException {
+		Path directory = Files.createTempDirectory("storage");
+		Account account;
+
+		try (SimpleInMemoryStorageImpl durable = new SimpleInMemoryStorageImpl(walOf(directory))) {
+			account = durable.createAccount(Money.valueOf(10));
+			durable.createTransaction(account.getId(), 1L, Money.valueOf(1));
+			durable.snapshot();
+
+			durable.createTransaction(account.getId(), 1L, Money.valueOf(2));
+			durable.snapshot();
+			durable.snapshot();
+		}
+
+		assertThat(Files.list(directory).filter(file -> file.getFileName().toString().startsWith("history-")))
+				.hasSize(2);
+
+		try (SimpleInMemoryStorageImpl recovered = new SimpleInMemoryStorageImpl(walOf(directory))) {
+			assertThat(recovered.getTransactionsForAccount(account.getId()))
+					.extracting(Transaction::getAmount)
+					.containsExactly(Money.valueOf(1), Money.valueOf(2));
+		}
+	}
+
+	@Test
+	public void shouldContinueAccountIdsAfterRecovery() throws IOException {
+		Path directory = Files.createTempDirectory("storage");
+		Account beforeRestart;
+
+		try (SimpleInMemoryStorageImpl durable = new SimpleInMemoryStorageImpl(walOf(directory))) {
+			durable.createAccount(Money.valueOf(1));
+			beforeRestart = durable.createAccount(Money.valueOf(2));
+		}
+
+		try (SimpleInMemoryStorageImpl recovered = new SimpleInMemoryStorageImpl(walOf(directory))) {
+			Account afterRestart = recovered.createAccount(Money.valueOf(3));
+
+			assertThat(afterRestart.getId()).isGreaterThan(beforeRestart.getId());
+			assertThat(recovered.getAccount(beforeRestart.getId()).get()).isEqualTo(beforeRestart);
+		}
+	}
+
+	private WriteAheadLog walOf(Path directory) throws IOException {
+		return new WriteAheadLog(directory, Duration.ZERO, 64);
+	}
 }
@@ -0,0 +1,339 @@
+package com.mobilebanking.transferservice.services;
+
+
+import com.mobilebanking.transferservice.dtos.Account;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+
+public class StripedLockStorageTests {
+	private Storage tested = new StripedLockStorageImpl();
+	private AtomicInteger counterForConcurrentTests = new AtomicInteger(0);
+	private AtomicInteger counterForDeadlockTests = new AtomicInteger(0);
+
+	@BeforeTest
+	public void init() {
+		tested = new StripedLockStorageImpl();
+		counterForConcurrentTests = new AtomicInteger(0);
+		counterForDeadlockTests = new AtomicInteger(0);
+	}
+
+	@Test
+	public void shouldCreateAccountsWithUniqueIds() {
+		Account first = tested.createAccount(Money.valueOf(10));
+		Account second = tested.createAccount(Money.valueOf(10));
+
+		assertThat(first.getId()).isNotEqualTo(second.getId());
+		assertThat(tested.getAccount(second.getId()).get()).isEqualTo(second);
+	}
+
+	@Test(threadPoolSize = 5, invocationCount = 20,  timeOut = 10000)
+	public void shouldIncrementallyChangeBalanceForAccountWithDbTransaction() {
+		Money increment = Money.valueOf(100);
+
+		tested.startDbTransaction(1L);
+
+		int count = counterForConcurrentTests.addAndGet(1);
+		Money expectedBalance = Money
+				.valueOf(100012, 2)
+				.add(Money.valueOf(100L * count));
+
+		Account account = tested.getAccount(1L).get();
+		tested.setAccount(1L, account.getBalance().add(increment));
+
+		Account actualAccount = tested.getAccount(1L).get();
+
+		tested.commitDbTransaction();
+
+		assertThat(actualAccount.getBalance()).isEqualTo(expectedBalance);
+	}
+
+	@Test
+	public void shouldRollbackOnlyChangesOfDbTransaction() {
+		Account from = tested.createAccount(Money.valueOf(100));
+		Account to = tested.createAccount(Money.ZERO);
+
+		tested.startDbTransaction(from.getId(), to.getId());
+
+		tested.setAccount(from.getId(), Money.ZERO);
+		tested.setAccount(to.getId(), Money.valueOf(100));
+		tested.createTransaction(from.getId(), to.getId(), Money.valueOf(100));
+
+		tested.rollbackDbTransaction();
+
+		assertThat(tested.getAccount(from.getId()).get()).isEqualTo(from);
+		assertThat(tested.getAccount(to.getId()).get()).isEqualTo(to);
+		assertThat(tested.getTransactionsForAccount(from.getId())).isEmpty();
+		assertThat(tested.getTransactionsForAccount(to.getId())).isEmpty();
+	}
+
+	@Test
+	public void shouldReturnTransactionsForBothSides() {
+		Account from = tested.createAccount(Money.valueOf(100));
+		Account to = tested.createAccount(Money.ZERO);
+
+		Transaction transaction = tested.createTransaction(from.getId(), to.getId(), Money.valueOf(10));
+
+		assertThat(tested.getTransactionsForAccount(from.getId())).containsExactly(transaction);
+		assertThat(tested.getTransactionsForAccount(to.getId())).containsExactly(transaction);
+	}
+
+	@Test(timeOut = 10000)
+	public void shouldNotBlockDbTransactionsOnDisjointAccounts() throws InterruptedException {
+		StripedLockStorageImpl storage = new StripedLockStorageImpl();
+
+		Long first = 2L;
+		Long second = 3L;
+
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Thread holder = new Thread(() -> {
+			storage.startDbTransaction(first);
+			locked.countDown();
+
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			storage.commitDbTransaction();
+		});
+		holder.start();
+
+		locked.await();
+
+		CountDownLatch done = new CountDownLatch(1);
+		Thread other = new Thread(() -> {
+			storage.startDbTransaction(second);
+			storage.commitDbTransaction();
+			done.countDown();
+		});
+		other.start();
+
+		assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+
+		release.countDown();
+		holder.join();
+	}
+
+	@Test(threadPoolSize = 8, invocationCount = 200,  timeOut = 20000)
+	public void shouldNotDeadlockOnOppositeTransfers() {
+		boolean forward = counterForDeadlockTests.incrementAndGet() % 2 == 0;
+
+		Long from = forward ? 1L : 2L;
+		Long to = forward ? 2L : 1L;
+
+		tested.startDbTransaction(from, to);
+		tested.commitDbTransaction();
+	}
+
+	@Test(timeOut = 20000)
+	public void shouldSumConcurrentCreditsOfHotAccount() throws InterruptedException {
+		StripedLockStorageImpl storage = new StripedLockStorageImpl();
+		Long hot = storage.createAccount(Money.ZERO).getId();
+		storage.enableHotAccount(hot, 4);
+
+		Thread[] creditors = new Thread[8];
+		for (int i = 0; i < creditors.length; i++) {
+			creditors[i] = new Thread(() -> {
+				for (int j = 0; j < 1000; j++) {
+					storage.creditAccount(hot, Money.valueOf(1));
+				}
+			});
+			creditors[i].start();
+		}
+
+		for (Thread creditor : creditors) {
+			creditor.join();
+		}
+
+		assertThat(storage.isHotAccount(hot)).isTrue();
+		assertThat(storage.getAccount(hot).get().getBalance()).isEqualTo(Money.valueOf(8000));
+	}
+
+	@Test
+	public void shouldFoldSubBalancesWhenHotAccountIsDebited() {
+		StripedLockStorageImpl storage = new StripedLockStorageImpl();
+		Long hot = storage.createAccount(Money.valueOf(10)).getId();
+		storage.enableHotAccount(hot, 4);
+
+		storage.creditAccount(hot, Money.valueOf(5));
+		storage.creditAccount(hot, Money.valueOf(7));
+
+		storage.startDbTransaction(hot);
+		storage.setAccount(hot, storage.getAccount(hot).get().getBalance().subtract(Money.valueOf(20)));
+		storage.commitDbTransaction();
+
+		assertThat(storage.getAccount(hot).get().getBalance()).isEqualTo(Money.valueOf(2));
+
+		storage.creditAccount(hot, Money.valueOf(3));
+
+		assertThat(storage.getAccount(hot).get().getBalance()).isEqualTo(Money.valueOf(5));
+	}
+
+	@Test
+	public void shouldRollbackCreditsAndDebitsOfHotAccount() {
+		StripedLockStorageImpl storage = new StripedLockStorageImpl();
+		Long other = storage.createAccount(Money.valueOf(100)).getId();
+		Long hot = storage.createAccount(Money.valueOf(10)).getId();
+		storage.enableHotAccount(hot, 4);
+		storage.creditAccount(hot, Money.valueOf(5));
+
+		storage.startDbTransaction(other);
+		storage.createTransaction(other, hot, Money.valueOf(1));
+		storage.creditAccount(hot, Money.valueOf(1));
+		storage.rollbackDbTransaction();
+
+		assertThat(storage.getAccount(hot).get().getBalance()).isEqualTo(Money.valueOf(15));
+		assertThat(storage.getTransactionsForAccount(hot)).isEmpty();
+
+		storage.startDbTransaction(hot);
+		storage.setAccount(hot, Money.ZERO);
+		storage.rollbackDbTransaction();
+
+		assertThat(storage.getAccount(hot).get().getBalance()).isEqualTo(Money.valueOf(15));
+	}
+
+	@Test
+	public void shouldNotCreditClosedHotAccount() {
+		StripedLockStorageImpl storage = new StripedLockStorageImpl();
+		Long hot = storage.createAccount(Money.valueOf(10)).getId();
+		storage.enableHotAccount(hot, 4);
+
+		storage.creditAccount(hot, Money.valueOf(5));
+		Account closed = storage.closeAccount(hot).get();
+
+		assertThat(closed.getBalance()).isEqualTo(Money.valueOf(15));
+		assertThat(storage.creditAccount(hot, Money.valueOf(1)).isEmpty()).isTrue();
+		assertThat(storage.getAccount(hot).get().getBalance()).isEqualTo(Money.valueOf(15));
+	}
+
+	@Test(timeOut = 20000)
+	public void shouldNotDeadlockOnOppositeTransfersBetweenHotAccounts() throws InterruptedException {
+		StripedLockStorageImpl storage = new StripedLockStorageImpl();
+		Long first = storage.createAccount(Money.valueOf(1000)).getId();
+		Long second = storage.createAccount(Money.valueOf(1000)).getId();
+		storage.enableHotAccount(first, 1);
+		storage.enableHotAccount(second, 1);
+
+		Thread[] transfers = new Thread[8];
+		for (int i = 0; i < transfers.length; i++) {
+			Long from = i % 2 == 0 ? first : second;
+			Long to = i % 2 == 0 ? second : first;
+
+			transfers[i] = new Thread(() -> {
+				for (int j = 0; j < 1000; j++) {
+					storage.startDbTransaction(from);
+					storage.setAccount(from, storage.getAccount(from).get().getBalance().subtract(Money.valueOf(1)));
+					storage.creditAccount(to, Money.valueOf(1));
+					storage.commitDbTransaction();
+				}
+			});
+			transfers[i].start();
+		}
+
+		for (Thread transfer : transfers) {
+			transfer.join();
+		}
+
+		assertThat(storage.getAccount(first).get().getBalance()).isEqualTo(Money.valueOf(1000));
+		assertThat(storage.getAccount(second).get().getBalance()).isEqualTo(Money.valueOf(1000));
+	}
+
+	@Test(timeOut = 20000)
+	public void shouldNotSpendCreditsOfHotAccountBeforeTheirCommit() throws InterruptedException {
+		StripedLockStorageImpl storage = new StripedLockStorageImpl();
+		Long other = storage.createAccount(Money.valueOf(100)).getId();
+		Long hot = storage.createAccount(Money.valueOf(10)).getId();
+		storage.enableHotAccount(hot, 4);
+
+		CountDownLatch credited = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Thread creditor = new Thread(() -> {
+			storage.startDbTransaction(other);
+			storage.creditAccount(hot, Money.valueOf(5));
+			credited.countDown();
+
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			storage.rollbackDbTransaction();
+		});
+		creditor.start();
+
+		credited.await();
+
+		storage.startDbTransaction(hot);
+		assertThat(storage.getAccount(hot).get().getBalance()).isEqualTo(Money.valueOf(10));
+		assertThat(storage.closeAccount(hot).isEmpty()).isTrue();
+		storage.setAccount(hot, Money.ZERO);
+		storage.commitDbTransaction();
+
+		release.countDown();
+		creditor.join();
+
+		assertThat(storage.getAccount(hot).get().getBalance()).isEqualTo(Money.ZERO);
+		assertThat(storage.closeAccount(hot).get().getStatus()).isEqualTo(Account.AccountStatus.CLOSED);
+	}
+
+	@Test
+	public void shouldKeepCreditsOfHotAccountCommittedDuringADebit() throws InterruptedException {
+		StripedLockStorageImpl storage = new StripedLockStorageImpl();
+		Long hot = storage.createAccount(Money.valueOf(10)).getId();
+		storage.enableHotAccount(hot, 4);
+
+		storage.startDbTransaction(hot);
+		storage.creditAccount(hot, Money.valueOf(5));
+
+		// Credited by another thread while this one holds the lock.
+		Thread creditor = new Thread(() -> storage.creditAccount(hot, Money.valueOf(3)));
+		creditor.start();
+		creditor.join();
+
+		storage.setAccount(hot, storage.getAccount(hot).get().getBalance().subtract(Money.valueOf(1)));
+		assertThat(storage.getAccount(hot).get().getBalance()).isEqualTo(Money.valueOf(17));
+		storage.rollbackDbTransaction();
+
+		assertThat(storage.getAccount(hot).get().getBalance()).isEqualTo(Money.valueOf(13));
+	}
+
+	@Test
+	public void shouldRefuseHotCreditsThatCouldOverflowWhenTheyAreReserved() throws InterruptedException {
+		StripedLockStorageImpl storage = new StripedLockStorageImpl();
+		Long other = storage.createAccount(Money.ZERO).getId();
+		Long hot = storage.createAccount(Money.valueOf(Long.MAX_VALUE - 10)).getId();
+		storage.enableHotAccount(hot, 4);
+
+		storage.startDbTransaction(other);
+		storage.creditAccount(hot, Money.valueOf(6));
+
+		// Fits the balance, not the balance with the credit reserved above.
+		AtomicReference<Throwable> refused = new AtomicReference<>();
+		Thread creditor = new Thread(() ->
+				refused.set(catchThrowable(() -> storage.creditAccount(hot, Money.valueOf(6)))));
+		creditor.start();
+		creditor.join();
+
+		storage.commitDbTransaction();
+
+		assertThat(refused.get()).isInstanceOf(ArithmeticException.class);
+		assertThat(storage.getAccount(hot).get().getBalance()).isEqualTo(Money.valueOf(Long.MAX_VALUE - 4));
+		assertThat(storage.closeAccount(other).get().getStatus()).isEqualTo(Account.AccountStatus.CLOSED);
+	}
+}
@@ -0,0 +1,105 @@
+package com.mobilebanking.transferservice.services;
+
+import com.mobilebanking.transferservice.dtos.ImmutableTransaction;
+import com.mobilebanking.transferservice.dtos.Money;
+import com.mobilebanking.transferservice.dtos.Transaction;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransactionStoreTests {
+
+	@Test
+	public void shouldReadBackTransactionsAcrossChunks() {
+		TransactionStore tested = new TransactionStore();
+		Transaction first = transaction(1L, 2L, Money.valueOf(12345, 2), Instant.parse("2019-07-01T10:15:30.123456789Z"));
+
+		assertThat(tested.append(first)).isEqualTo(0L);
+
+		for (int i = 1; i < 40_000; i++) {
+			tested.append(i, i + 1, i, 0, i);
+		}
+
+		Transaction last = transaction(3L, 4L, Money.valueOf(-7, 3), Instant.ofEpochSecond(0, 40_000));
+		long position = tested.append(last);
+
+		assertThat(tested.size()).isEqualTo(40_001L);
+		assertThat(tested.get(0)).isEqualTo(first);
+		assertThat(tested.get(position)).isEqualTo(last);
+		assertThat(tested.fromId(20_000)).isEqualTo(20_000L);
+		assertThat(tested.toId(20_000)).isEqualTo(20_001L);
+		assertThat(tested.timeStamp(20_000)).isEqualTo(Instant.ofEpochSecond(0, 20_000));
+		assertThat(tested.slice(39_999, 40_001)).containsExactly(tested.get(39_999), last);
+	}
+
+	@Test
+	public void shouldOverwriteTruncatedPositions() {
+		TransactionStore tested = new TransactionStore();
+		tested.append(1, 2, 1, 0, 1);
+		tested.append(1, 2, 2, 0, 2);
+
+		tested.truncate(1);
+		long position = tested.append(2, 1, 3, 0, 3);
+
+		assertThat(position).isEqualTo(1L);
+		assertThat(tested.size()).isEqualTo(2L);
+		assertThat(tested.get(1).getAmount()).isEqualTo(Money.valueOf(3));
+	}
+
+	@Test
+	public void shouldPublishEveryConcurrentAppend() throws InterruptedException {
+		TransactionStore tested = new TransactionStore();
+
+		Thread[] writers = new Thread[4];
+		for (int i = 0; i < writers.length; i++) {
+			long fromId = i;
+
+			writers[i] = new Thread(() -> {
+				for (int j = 0; j < 10_000; j++) {
+					tested.append(fromId, j, j, 2, j);
+				}
+			});
+			writers[i].start();
+		}
+
+		for (Thread writer : writers) {
+			writer.join();
+		}
+
+		Set<Long> appended = new HashSet<>();
+		for (Transaction transaction : tested.slice(0, tested.size())) {
+			appended.add(transaction.getFromAccountId() * 10_000 + transaction.getToAccountId());
+		}
+
+		assertThat(tested.size()).isEqualTo(40_000L);
+		assertThat(appended).hasSize(40_000);
+	}
+
+	@Test
+	public void shouldKeepOlderHistoriesWhenAppending() {
+		AccountHistory committed = AccountHistory.EMPTY.append(0).append(1);
+		AccountHistory newer = committed.append(2);
+
+		// A rollback goes back to the committed history, the next append branches off it.
+		AccountHistory branched = committed.append(3);
+
+		assertThat(committed.size()).isEqualTo(2);
+		assertThat(newer.position(2)).isEqualTo(2L);
+		assertThat(branched.position(2)).isEqualTo(3L);
+		assertThat(branched.append(4).position(3)).isEqualTo(4L);
+	}
+
+	private static Transaction transaction(Long fromId, Long toId, Money amount, Instant timeStamp) {
+		return ImmutableTransaction
+				.builder()
+				.fromAccountId(fromId)
+				.toAccountId(toId)
+				.amount(amount)
+				.timeStamp(timeStamp)
+				.build();
+	}
+}
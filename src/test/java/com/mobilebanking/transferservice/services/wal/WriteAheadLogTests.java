@@ -0,0 +1,122 @@
+package com.mobilebanking.transferservice.services.wal;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WriteAheadLogTests {
+
+	@Test
+	public void shouldReplayAppendedRecordsInOrder() throws IOException {
+		Path directory = Files.createTempDirectory("wal");
+
+		try (WriteAheadLog log = new WriteAheadLog(directory, Duration.ofMillis(1), 16)) {
+			log.append(bytes("first")).join();
+			log.append(bytes("second")).join();
+		}
+
+		assertThat(replay(directory)).containsExactly("first", "second");
+	}
+
+	@Test
+	public void shouldCompleteConcurrentAppendsInBatches() throws IOException {
+		Path directory = Files.createTempDirectory("wal");
+
+		try (WriteAheadLog log = new WriteAheadLog(directory, Duration.ofMillis(5), 64)) {
+			List<CompletableFuture<Void>> appends = IntStream.range(0, 1000)
+					.parallel()
+					.mapToObj(i -> log.append(bytes(String.valueOf(i))))
+					.collect(Collectors.toList());
+
+			CompletableFuture.allOf(appends.toArray(new CompletableFuture[0])).join();
+		}
+
+		assertThat(replay(directory)).hasSize(1000);
+	}
+
+	@Test
+	public void shouldTruncateTornRecordOnReplay() throws IOException {
+		Path directory = Files.createTempDirectory("wal");
+
+		try (WriteAheadLog log = new WriteAheadLog(directory, Duration.ZERO, 16)) {
+			log.append(bytes("complete")).join();
+		}
+
+		Path segment = directory.resolve(String.format("wal-%020d.log", 0));
+		long completeSize = Files.size(segment);
+
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+			channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 42, 1, 2}));
+		}
+
+		assertThat(replay(directory)).containsExactly("complete");
+		assertThat(Files.size(segment)).isEqualTo(completeSize);
+	}
+
+	@Test
+	public void shouldKeepRecordsAppendedAfterRotationInNewSegment() throws IOException {
+		Path directory = Files.createTempDirectory("wal");
+
+		try (WriteAheadLog log = new WriteAheadLog(directory, Duration.ZERO, 16)) {
+			log.append(bytes("before")).join();
+			long segment = log.rotate();
+			log.append(bytes("after")).join();
+
+			log.deleteSegmentsBefore(segment);
+		}
+
+		assertThat(replay(directory)).containsExactly("after");
+	}
+
+	@Test(timeOut = 20000)
+	public void shouldCompleteEveryAppendRacingWithClose() throws IOException, InterruptedException {
+		for (int round = 0; round < 20; round++) {
+			WriteAheadLog log = new WriteAheadLog(Files.createTempDirectory("wal"), Duration.ZERO, 16);
+			List<CompletableFuture<Void>> appends = new ArrayList<>();
+
+			Thread appender = new Thread(() -> {
+				for (int i = 0; i < 2000; i++) {
+					synchronized (appends) {
+						appends.add(log.append(bytes(String.valueOf(i))));
+					}
+				}
+			});
+			appender.start();
+			log.close();
+			appender.join();
+
+			synchronized (appends) {
+				// Written or failed, never left waiting.
+				appends.forEach(append -> assertThat(append).isDone());
+			}
+		}
+	}
+
+	private List<String> replay(Path directory) throws IOException {
+		List<String> records = new ArrayList<>();
+
+		try (WriteAheadLog log = new WriteAheadLog(directory, Duration.ZERO, 16)) {
+			log.replay(0, record -> records.add(StandardCharsets.UTF_8.decode(record).toString()));
+		}
+
+		return records;
+	}
+
+	private byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+}